@@ -1,6 +1,7 @@
 plugins {
     id("java")
     application
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "org.skytemple"
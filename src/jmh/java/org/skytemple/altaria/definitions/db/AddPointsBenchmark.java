@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.openjdk.jmh.annotations.*;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.singletons.ExtConfig;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how the latency of applying a multi-GP list grows with the size of the list when giving points one user
+ * at a time versus sending all the changes as a single batch.
+ * Requires a reachable database, configured through the same DB_* environment variables used by the bot.
+ * The benchmark uses user IDs 1 to {@link #listSize}, which can never belong to a real Discord user. The entries for
+ * those IDs are deleted once the benchmark ends.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddPointsBenchmark {
+	@Param({"1", "10", "100", "500"})
+	public int listSize;
+
+	private Database db;
+	private ReputationDB rdb;
+	private Map<Long, Double> amounts;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ExtConfig extConfig = ExtConfig.get();
+		db = new Database(extConfig.getDbHost(), extConfig.getDbPort(), extConfig.getDbUsername(),
+			extConfig.getDbPassword(), extConfig.getDbDatabase(), extConfig.getDbPoolSize(),
+			extConfig.getDbPoolIdleTimeout(), extConfig.getDbFailureThreshold());
+		rdb = new ReputationDB(db);
+		amounts = new TreeMap<>();
+		for (long userId = 1; userId <= listSize; userId++) {
+			amounts.put(userId, 1.0);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws DbOperationException {
+		db.updateWithReconnect("DELETE FROM rep WHERE discord_id BETWEEN 1 AND " + listSize);
+	}
+
+	@Benchmark
+	public void sequential() throws DbOperationException {
+		for (Map.Entry<Long, Double> entry : amounts.entrySet()) {
+			rdb.addPoints(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Benchmark
+	public void batch() throws DbOperationException {
+		rdb.addPointsBatch(amounts);
+	}
+}
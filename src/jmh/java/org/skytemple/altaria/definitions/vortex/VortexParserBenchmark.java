@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.vortex;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the cost of parsing the messages on the strike log channel with the regex-based parser that
+ * {@link VortexPunishmentStrikeParser} used to have versus {@link VortexMessageParser}.
+ * Each operation parses a corpus that contains the formats Vortex posts on its moderation log: strikes, pardons,
+ * punishments issued when a user reaches a certain amount of strikes, and other actions that don't change strikes,
+ * which must be rejected.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VortexParserBenchmark {
+	private static final Pattern STRIKE_MSG_STRIKE =
+		Pattern.compile("\\*\\*(?<moderator>.+)\\*\\*(#\\d+)? (gave|pardoned) `(\\d+)` strikes `\\[.+]` (to|from) " +
+			"\\*\\*(?<username>.+)\\*\\*(#\\d+)? \\(ID:(?<id>\\d+)\\)");
+	private static final Pattern STRIKE_MSG_OTHER_PUNISHMENT =
+		Pattern.compile("\\*\\*(?<moderator>.+)\\*\\*(#\\d+)? (kicked|tempmuted|muted|tempbanned|banned) " +
+			"\\*\\*(?<username>.+)\\*\\*(#\\d+)? \\(ID:(?<id>\\d+)\\)");
+	@SuppressWarnings("UnnecessaryUnicodeEscape")
+	private static final Pattern STRIKE_MSG_STRIKE_CHANGE_1 = Pattern.compile("`\\[(\\d+) \u2192 (\\d+)]`");
+	@SuppressWarnings("UnnecessaryUnicodeEscape")
+	private static final Pattern STRIKE_MSG_STRIKE_CHANGE_2 = Pattern.compile("\\[(\\d+) \u2192 (\\d+) strikes]");
+
+	@SuppressWarnings("UnnecessaryUnicodeEscape")
+	private static final String ARROW = "\u2192";
+	private static final List<String> CORPUS = List.of(
+		"`[18:04:51]` `[1542]` :triangular_flag_on_post: **Moderator**#1234 gave `1` strikes `[0 " + ARROW + " 1]` " +
+			"to **User**#5678 (ID:123456789012345678)\n`[ Reason ]` Spamming in #general",
+		"`[18:05:12]` `[1543]` :triangular_flag_on_post: **mod.name** gave `2` strikes `[1 " + ARROW + " 3]` to " +
+			"**user_name** (ID:987654321098765432)\n`[ Reason ]` Rule 3",
+		"`[02:11:09]` `[1544]` :wastebasket: **Moderator** pardoned `1` strikes `[3 " + ARROW + " 2]` from **User** " +
+			"(ID:223456789012345678)\n`[ Reason ]` Appeal accepted",
+		"`[02:11:10]` `[1545]` :hammer: **Vortex**#2501 banned **User**#0001 (ID:323456789012345678)\n" +
+			"`[ Reason ]` [4 " + ARROW + " 5 strikes] Posting NSFW",
+		"`[02:11:11]` `[1546]` :mute: **Vortex**#2501 tempmuted **User** (ID:423456789012345678) for 10 minutes\n" +
+			"`[ Reason ]` [2 " + ARROW + " 3 strikes] Spam",
+		"`[02:11:12]` `[1547]` :warning: **Moderator** warned **User** (ID:513456789012345678)\n`[ Reason ]` Be nice",
+		"`[02:11:13]` `[1548]` :hammer: **Moderator** banned **User** (ID:413456789012345678)\n`[ Reason ]` Raiding",
+		"`[02:11:14]` `[1549]` :wrench: **Moderator** unbanned **User** (ID:613456789012345678)"
+	);
+
+	@Benchmark
+	public void regex(Blackhole blackhole) {
+		for (String message : CORPUS) {
+			blackhole.consume(parseWithRegex(message));
+		}
+	}
+
+	@Benchmark
+	public void singlePass(Blackhole blackhole) {
+		for (String message : CORPUS) {
+			blackhole.consume(VortexPunishmentStrikeParser.parse(message));
+		}
+	}
+
+	/**
+	 * Former implementation of {@link VortexPunishmentStrikeParser#parse(String)}
+	 */
+	private static VortexPunishmentStrikeParser.StrikePunishment parseWithRegex(String message) {
+		Matcher strikesMatcher = STRIKE_MSG_STRIKE.matcher(message);
+		Matcher punishmentMatcher = STRIKE_MSG_OTHER_PUNISHMENT.matcher(message);
+		Matcher matcher;
+
+		if (strikesMatcher.find()) {
+			matcher = strikesMatcher;
+		} else if (punishmentMatcher.find()) {
+			matcher = punishmentMatcher;
+		} else {
+			return null;
+		}
+
+		long userId = Long.parseLong(matcher.group("id"));
+		String username = matcher.group("username");
+		String moderator = matcher.group("moderator");
+		int newNumStrikes;
+
+		Matcher strikeChangeMatcher = STRIKE_MSG_STRIKE_CHANGE_1.matcher(message);
+		if (strikeChangeMatcher.find()) {
+			newNumStrikes = Integer.parseInt(strikeChangeMatcher.group(2));
+		} else {
+			Matcher strikeChangeMatcher2 = STRIKE_MSG_STRIKE_CHANGE_2.matcher(message);
+
+			if (strikeChangeMatcher2.find()) {
+				newNumStrikes = Integer.parseInt(strikeChangeMatcher2.group(2));
+			} else {
+				return null;
+			}
+		}
+		return new VortexPunishmentStrikeParser.StrikePunishment(userId, username, moderator, newNumStrikes);
+	}
+}
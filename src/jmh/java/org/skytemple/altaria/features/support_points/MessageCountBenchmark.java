@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.support_points;
+
+import org.openjdk.jmh.annotations.*;
+import org.skytemple.altaria.utils.DiscordUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Compares the heap used to count the messages of a support thread when all the messages are collected before
+ * counting them versus counting them as they are retrieved.
+ * Discord is not contacted: messages are generated locally, each one with its own copy of a content of a size
+ * similar to a typical support message.
+ * The "retained" benchmarks report the heap used by live objects at the point where the most messages are reachable
+ * (retainedBytes), measured after a full GC. Since the heap usage reported by the JVM is not precise, only differences
+ * of about 1 MB or more are meaningful. These benchmarks run a single operation, since forcing a GC dominates their
+ * time. The other two can be run with the GC profiler (-prof gc) to compare the time and the memory allocated
+ * per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageCountBenchmark {
+	// Amount of different users who post on the thread
+	private static final int NUM_USERS = 20;
+	// Time between two messages, in seconds
+	private static final long MESSAGE_INTERVAL = 60;
+	private static final int CONTENT_LENGTH = 300;
+
+	@Param({"1000", "10000", "100000"})
+	public int numMessages;
+
+	private long firstMessageId;
+	private long lastMessageId;
+	private String content;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		firstMessageId = DiscordUtils.timestampToSnowflake(System.currentTimeMillis() / 1000 - numMessages *
+			MESSAGE_INTERVAL);
+		lastMessageId = getMessageId(numMessages - 1);
+		content = "x".repeat(CONTENT_LENGTH);
+	}
+
+	/**
+	 * Collects all the messages first and then counts them, like the old calcGp() implementation did
+	 */
+	@Benchmark
+	public Map<Long, Integer> collected() {
+		return countCollected(messages().toList());
+	}
+
+	/**
+	 * Counts messages as they are generated, like {@link SupportMessageIndex} does
+	 */
+	@Benchmark
+	public SupportMessageCounter streamed() {
+		SupportMessageCounter counter = new SupportMessageCounter();
+		messages().forEach((message) -> counter.add(message.id, message.authorId));
+		return counter;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 1)
+	public Map<Long, Integer> collectedRetained(HeapUsage heapUsage) {
+		List<FakeMessage> messages = messages().toList();
+		// All the messages are reachable at this point
+		heapUsage.measure();
+		return countCollected(messages);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 1)
+	public SupportMessageCounter streamedRetained(HeapUsage heapUsage) {
+		SupportMessageCounter counter = new SupportMessageCounter();
+		messages().forEach((message) -> {
+			counter.add(message.id, message.authorId);
+			if (message.id == lastMessageId) {
+				// The counter has reached its final size at this point
+				heapUsage.measure();
+			}
+		});
+		return counter;
+	}
+
+	/**
+	 * Counts messages the way the old calcGp() implementation did
+	 * @param messages Messages to count, sorted by ID
+	 * @return Amount of messages posted by each user
+	 */
+	private Map<Long, Integer> countCollected(List<FakeMessage> messages) {
+		Map<Long, Integer> userMessages = new TreeMap<>();
+		long lastUserId = -1;
+		for (FakeMessage message : messages) {
+			if (message.authorId != lastUserId) {
+				userMessages.merge(message.authorId, 1, Integer::sum);
+				lastUserId = message.authorId;
+			}
+		}
+		return userMessages;
+	}
+
+	/**
+	 * @return Stream that generates the messages of the thread lazily, sorted by ID.
+	 * Each user posts 2 consecutive messages before the next one replies.
+	 */
+	private Stream<FakeMessage> messages() {
+		return LongStream.range(0, numMessages).mapToObj((i) -> new FakeMessage(getMessageId(i),
+			1 + (i / 2) % NUM_USERS, new String(content.toCharArray())));
+	}
+
+	/**
+	 * @param index Index of a message on the thread
+	 * @return ID of the message
+	 */
+	private long getMessageId(long index) {
+		// Snowflakes store their creation time in milliseconds on the upper bits
+		return firstMessageId + ((index * MESSAGE_INTERVAL * 1000) << 22);
+	}
+
+	/**
+	 * Stand-in for a retrieved message. Holds its own copy of its content, like the real entities do.
+	 */
+	private record FakeMessage(long id, long authorId, String content) {}
+
+	/**
+	 * Measures the heap used by live objects during an operation, relative to the heap used when the iteration
+	 * started
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class HeapUsage {
+		public long retainedBytes;
+		private long baseline;
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			retainedBytes = 0;
+			baseline = getUsedHeap();
+		}
+
+		void measure() {
+			retainedBytes = getUsedHeap() - baseline;
+		}
+
+		/**
+		 * @return Heap used by live objects, in bytes
+		 */
+		private static long getUsedHeap() {
+			System.gc();
+			System.gc();
+			return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.utils;
+
+import org.javacord.api.DiscordApi;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call cost of building the request used to list archived threads when Javacord internals are
+ * looked up by name through reflection on every call (as {@link JavacordUtils#getPublicArchivedThreads} used to do)
+ * versus using the method handles resolved once on startup.
+ * The request is only built, not sent. Both variants include the cost of the RestRequest constructor itself, which
+ * captures a stack trace.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavacordInternalsBenchmark {
+	private static final long CHANNEL_ID = 123456789012345678L;
+	private static final Instant BEFORE = Instant.ofEpochSecond(1700000000L);
+	private static final int LIMIT = 50;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		JavacordUtils.init();
+	}
+
+	@Benchmark
+	public Object reflectionLookupPerCall() throws ReflectiveOperationException {
+		Class<?> restMethodClass = Class.forName("org.javacord.core.util.rest.RestMethod");
+		Object restMethodGet = restMethodClass.getDeclaredMethod("valueOf", String.class)
+			.invoke(restMethodClass, "GET");
+		Class<?> restEndpointClass = Class.forName("org.javacord.core.util.rest.RestEndpoint");
+		Class<?> restRequestClass = Class.forName("org.javacord.core.util.rest.RestRequest");
+		Object endpoint = restEndpointClass.getDeclaredMethod("valueOf", String.class)
+			.invoke(restEndpointClass, "LIST_PUBLIC_ARCHIVED_THREADS");
+		Object restRequest = restRequestClass.getDeclaredConstructor(DiscordApi.class, restMethodClass,
+			restEndpointClass).newInstance(null, restMethodGet, endpoint);
+		restRequestClass.getMethod("setUrlParameters", String[].class)
+			.invoke(restRequest, (Object) new String[]{String.valueOf(CHANNEL_ID)});
+		restRequestClass.getMethod("addQueryParameter", String.class, String.class)
+			.invoke(restRequest, "before", BEFORE.toString());
+		restRequestClass.getMethod("addQueryParameter", String.class, String.class)
+			.invoke(restRequest, "limit", String.valueOf(LIMIT));
+		return restRequest;
+	}
+
+	@Benchmark
+	public Object cachedHandles() throws Throwable {
+		return JavacordUtils.createPublicArchivedThreadsRequest(null, CHANNEL_ID, BEFORE, LIMIT);
+	}
+}
@@ -25,7 +25,9 @@ import org.apache.logging.log4j.Logger;
 import org.javacord.api.event.interaction.SlashCommandCreateEvent;
 import org.javacord.api.interaction.SlashCommandInteraction;
 import org.skytemple.altaria.definitions.CommandCreator;
+import org.skytemple.altaria.definitions.db.CachedReputationDB;
 import org.skytemple.altaria.definitions.db.Database;
+import org.skytemple.altaria.definitions.db.ReputationDB;
 import org.skytemple.altaria.features.auto_punishment.AutoPunishment;
 import org.skytemple.altaria.features.fun.fun2025.Fun2025;
 import org.skytemple.altaria.features.fun.fun2026.Fun2026;
@@ -37,6 +39,7 @@ import org.skytemple.altaria.features.rules.Rules;
 import org.skytemple.altaria.features.strikes_list.StrikesList;
 import org.skytemple.altaria.features.support_points.SupportPoints;
 import org.skytemple.altaria.features.verification.Verification;
+import org.skytemple.altaria.utils.JavacordUtils;
 import org.skytemple.altaria.utils.Utils;
 
 public class Main {
@@ -45,26 +48,36 @@ public class Main {
 	public static void main(String[] args) {
 		Logger logger = Utils.getLogger(Main.class);
 		ExtConfig extConfig = ExtConfig.get();
+		// Fail right away if the Javacord version in use doesn't have the internals some workarounds rely on
+		JavacordUtils.init();
 
 		String token = extConfig.getBotToken();
 		DiscordApi api = new DiscordApiBuilder().setToken(token).addIntents(Intent.MESSAGE_CONTENT).login().join();
 		ApiGetter.init(api);
 		Database db = new Database(extConfig.getDbHost(), extConfig.getDbPort(), extConfig.getDbUsername(),
-			extConfig.getDbPassword(), extConfig.getDbDatabase());
+			extConfig.getDbPassword(), extConfig.getDbDatabase(), extConfig.getDbPoolSize(),
+			extConfig.getDbPoolIdleTimeout(), extConfig.getDbFailureThreshold());
+		// Shared by all features, so the GP cache (if enabled) sees every change
+		ReputationDB rdb;
+		if (extConfig.getGpCacheSize() > 0) {
+			rdb = new CachedReputationDB(db, extConfig.getGpCacheSize());
+		} else {
+			rdb = new ReputationDB(db);
+		}
 
 		// Register a listener to log commands
 		api.addSlashCommandCreateListener(Main::logCommand);
 
 		// Create functional classes. A CommandCreator is used to bulk create all bot commands.
 		try (CommandCreator commandCreator = new CommandCreator()){
-			Reputation reputation = new Reputation(db, commandCreator);
+			Reputation reputation = new Reputation(rdb, commandCreator);
 			ModActions modActions = new ModActions(commandCreator);
 			Rules rules = new Rules(commandCreator);
 			AutoPunishment autoPunishment = new AutoPunishment(db, commandCreator);
-			SupportPoints supportPoints = new SupportPoints(db, commandCreator);
-			StrikesList strikesList = new StrikesList(commandCreator);
+			SupportPoints supportPoints = new SupportPoints(db, rdb, commandCreator);
+			StrikesList strikesList = new StrikesList(db, commandCreator);
 			Fun2025 fun2025 = new Fun2025(commandCreator);
-			Fun2026 fun2026 = new Fun2026(db, commandCreator);
+			Fun2026 fun2026 = new Fun2026(rdb, commandCreator);
 			Verification verification = new Verification();
 		}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -18,11 +18,15 @@
 package org.skytemple.altaria.definitions;
 
 import org.apache.logging.log4j.Logger;
+import org.skytemple.altaria.definitions.exceptions.DbTimeoutException;
+import org.skytemple.altaria.definitions.exceptions.DbUnavailableException;
 import org.skytemple.altaria.definitions.senders.ChannelMsgSender;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 import org.skytemple.altaria.definitions.singletons.ExtConfig;
 import org.skytemple.altaria.utils.Utils;
 
+import java.util.concurrent.CompletionException;
+
 /**
  * Class used to handle errors that take place while the bot is running. It can both log them and send them as Discord
  * messages.
@@ -32,6 +36,14 @@ public class ErrorHandler {
 
 	private final Logger logger;
 	private final String error;
+	/*
+	 * Set if the error was caused by the database being unavailable. These errors are expected while the database is
+	 * down and have already been reported once, so only a short message is logged and they are not printed to the
+	 * error channel.
+	 */
+	private final DbUnavailableException dbUnavailableError;
+	// Set if the error was caused by a database operation that timed out, but might still complete
+	private final boolean dbTimeout;
 
 	private String responseMsg;
 	private Long printToChannelId;
@@ -39,11 +51,17 @@ public class ErrorHandler {
 
 	/**
 	 * Prepares a chain of calls used to log the specified error, optionally printing different information.
-	 * @param error Error to log
+	 * @param error Error to log. If it's a {@link CompletionException} (which is how errors thrown by asynchronous
+	 *              operations usually reach their callers), its cause will be logged instead.
 	 */
 	public ErrorHandler(Throwable error) {
 		logger = Utils.getLogger(getClass());
+		if (error instanceof CompletionException && error.getCause() != null) {
+			error = error.getCause();
+		}
 		this.error = Utils.throwableToStr(error);
+		dbUnavailableError = error instanceof DbUnavailableException ? (DbUnavailableException) error : null;
+		dbTimeout = error instanceof DbTimeoutException;
 
 		responseMsg = null;
 		printToChannelId = null;
@@ -51,13 +69,21 @@ public class ErrorHandler {
 	}
 
 	/**
-	 * Sends a default error message using the specified message sender.
+	 * Sends a default error message using the specified message sender. If the error was caused by the database
+	 * being unavailable, or by a database operation that timed out and might still apply its changes, a message
+	 * stating so is sent instead.
 	 * Cannot be combined with other MessageSender methods, only the last one will be run.
 	 * @param sender Sender used to send the message
 	 * @return this
 	 */
 	public ErrorHandler sendDefaultMessage(MessageSender sender) {
-		responseMsg = DEFAULT_ERROR_MESSAGE;
+		if (dbUnavailableError != null) {
+			responseMsg = dbUnavailableError.getMessage();
+		} else if (dbTimeout) {
+			responseMsg = DbTimeoutException.USER_MESSAGE;
+		} else {
+			responseMsg = DEFAULT_ERROR_MESSAGE;
+		}
 		this.sender = sender;
 		return this;
 	}
@@ -88,11 +114,14 @@ public class ErrorHandler {
 	}
 
 	/**
-	 * Prints the full error message to the default error channel, if one has been specified.
+	 * Prints the full error message to the default error channel, if one has been specified. Does nothing if the
+	 * error was caused by the database being unavailable.
 	 * @return this
 	 */
 	public ErrorHandler printToErrorChannel() {
-		ExtConfig.get().getErrorChannelId().ifPresent(channelId -> printToChannelId = channelId);
+		if (dbUnavailableError == null) {
+			ExtConfig.get().getErrorChannelId().ifPresent(channelId -> printToChannelId = channelId);
+		}
 		return this;
 	}
 
@@ -100,7 +129,11 @@ public class ErrorHandler {
 	 * Logs the error and performs the other actions that might have been specified through previous calls.
 	 */
 	public void run() {
-		logger.error(error);
+		if (dbUnavailableError != null) {
+			logger.warn("Operation rejected: " + dbUnavailableError.getMessage());
+		} else {
+			logger.error(error);
+		}
 		if (responseMsg != null) {
 			sender.send(responseMsg);
 		}
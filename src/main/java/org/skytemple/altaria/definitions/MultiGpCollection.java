@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -18,16 +18,17 @@
 package org.skytemple.altaria.definitions;
 
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Stores a collection of multi-GP lists, each identified by a user ID
+ * Stores a collection of multi-GP lists, each identified by a user ID.
+ * This class is thread-safe, since lists are added and removed both from listeners and from asynchronous callbacks.
  */
 public class MultiGpCollection {
 	private final Map<Long, MultiGpList> lists;
 
 	public MultiGpCollection() {
-		lists = new TreeMap<>();
+		lists = new ConcurrentHashMap<>();
 	}
 
 	/**
@@ -61,8 +62,10 @@ public class MultiGpCollection {
 	/**
 	 * Deletes the multi-GP list associated to the given user ID
 	 * @param userId User ID
+	 * @return The list that was deleted, or null if no list was associated to the given ID. If multiple threads try
+	 * to delete the same list at once, only one of them receives it.
 	 */
-	public void remove(Long userId) {
-		lists.remove(userId);
+	public MultiGpList remove(Long userId) {
+		return lists.remove(userId);
 	}
 }
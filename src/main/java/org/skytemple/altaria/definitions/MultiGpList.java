@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -27,6 +27,7 @@ import java.util.AbstractMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Used to store a list of users alongside a GP amount they will receive
@@ -142,21 +143,41 @@ public class MultiGpList implements Iterable<Map.Entry<Long, Double>> {
 
 	/**
 	 * Applies the integer version of the amounts stored on the list, altering the GP of all the users listed.
-	 * Entries are removed from the list as they are processed. If an error happens, unprocessed entries will not be
-	 * removed.
+	 * All the changes are applied at once. If the operation succeeds, the list is cleared. If an error happens,
+	 * no changes are applied and the list is left untouched.
 	 * @param rdb Reputation database
 	 * @throws DbOperationException If the operation fails due to a database error
 	 */
 	public void apply(ReputationDB rdb) throws DbOperationException {
+		rdb.addPointsBatch(getNonZeroIntAmounts());
+		list.clear();
+	}
+
+	/**
+	 * Asynchronous version of {@link #apply(ReputationDB)}. The list is cleared once the changes have been applied.
+	 * @param rdb Reputation database
+	 * @return Future that completes once the changes have been applied, or that fails with a
+	 * {@link DbOperationException} if they couldn't be applied.
+	 */
+	public CompletableFuture<Void> applyAsync(ReputationDB rdb) {
+		return rdb.addPointsBatchAsync(getNonZeroIntAmounts()).thenRun(list::clear);
+	}
+
+	/**
+	 * @return Integer version of the amounts stored on the list, excluding the ones that would be 0 after dropping
+	 * their decimals.
+	 */
+	private Map<Long, Double> getNonZeroIntAmounts() {
+		Map<Long, Double> amounts = new TreeMap<>();
 		Iterator<Map.Entry<Long, Integer>> it = intIterator();
 		while (it.hasNext()) {
 			Map.Entry<Long, Integer> entry = it.next();
 			int points = entry.getValue();
 			if (points != 0) {
-				rdb.addPoints(entry.getKey(), entry.getValue());
+				amounts.put(entry.getKey(), (double) points);
 			}
-			it.remove();
 		}
+		return amounts;
 	}
 
 	/**
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.collections;
+
+/**
+ * Bounded, thread-safe cache that maps long keys to double values without boxing either of them.
+ * The cache is set-associative: each key can only be stored in one of the {@link #WAYS} slots of the set it hashes
+ * to. When all the slots of a set are in use, the least recently used entry of the set is evicted.
+ * Entries also expire after a fixed amount of time, after which they are treated as missing.
+ * The key 0 is reserved to mark empty slots and cannot be stored. NaN is used to report missing entries, so it
+ * shouldn't be stored either.
+ */
+public class LongDoubleCache {
+	// Number of slots per set
+	private static final int WAYS = 4;
+	private static final long EMPTY_KEY = 0;
+
+	private final long[] keys;
+	private final double[] values;
+	// Last time each slot was accessed, used to pick the entry to evict
+	private final long[] lastAccess;
+	// Time each slot was written, used to expire entries
+	private final long[] writeTime;
+	private final int setMask;
+	private final long ttlNanos;
+
+	// All the fields below are guarded by the instance lock
+	// Increases on every access. Used instead of System.nanoTime() for LRU ordering since it's cheaper.
+	private long accessCounter;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates a new cache
+	 * @param capacity Minimum amount of entries the cache can hold. Will be rounded up to a power of 2.
+	 * @param ttlNanos Amount of nanoseconds an entry stays valid after being written
+	 */
+	public LongDoubleCache(int capacity, long ttlNanos) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Cache capacity must be > 0");
+		}
+		int numSets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1)) << 1;
+		keys = new long[numSets * WAYS];
+		values = new double[numSets * WAYS];
+		lastAccess = new long[numSets * WAYS];
+		writeTime = new long[numSets * WAYS];
+		setMask = numSets - 1;
+		this.ttlNanos = ttlNanos;
+	}
+
+	/**
+	 * Returns the value associated to a key. Counts as a hit or a miss.
+	 * @param key Key to get
+	 * @return Value associated to the key, or {@link Double#NaN} if the cache doesn't contain a valid entry for it.
+	 */
+	public synchronized double get(long key) {
+		int slot = find(key);
+		if (slot == -1) {
+			misses++;
+			return Double.NaN;
+		} else {
+			hits++;
+			return values[slot];
+		}
+	}
+
+	/**
+	 * Stores a value, replacing any previous value for the same key
+	 * @param key Key to store. Cannot be 0.
+	 * @param value Value to associate to the key
+	 */
+	public synchronized void put(long key, double value) {
+		if (key == EMPTY_KEY) {
+			throw new IllegalArgumentException("Key 0 is reserved");
+		}
+		int base = setBase(key);
+		int target = -1;
+		for (int i = base; i < base + WAYS; i++) {
+			if (keys[i] == key) {
+				target = i;
+				break;
+			} else if (target == -1 && keys[i] == EMPTY_KEY) {
+				target = i;
+			}
+		}
+		if (target == -1) {
+			// Set is full, evict the least recently used entry
+			target = base;
+			for (int i = base + 1; i < base + WAYS; i++) {
+				if (lastAccess[i] < lastAccess[target]) {
+					target = i;
+				}
+			}
+			evictions++;
+		}
+		keys[target] = key;
+		values[target] = value;
+		lastAccess[target] = ++accessCounter;
+		writeTime[target] = System.nanoTime();
+	}
+
+	/**
+	 * Adds an amount to the value associated to a key, if the key is present on the cache
+	 * @param key Key to update
+	 * @param amount Amount to add
+	 */
+	public synchronized void addIfPresent(long key, double amount) {
+		int slot = find(key);
+		if (slot != -1) {
+			values[slot] += amount;
+		}
+	}
+
+	/**
+	 * Removes the entry for the given key, if present
+	 * @param key Key to remove
+	 */
+	public synchronized void remove(long key) {
+		int slot = find(key);
+		if (slot != -1) {
+			keys[slot] = EMPTY_KEY;
+		}
+	}
+
+	/**
+	 * @return Snapshot of the usage metrics of the cache
+	 */
+	public synchronized Stats getStats() {
+		int size = 0;
+		for (long key : keys) {
+			if (key != EMPTY_KEY) {
+				size++;
+			}
+		}
+		return new Stats(size, keys.length, hits, misses, evictions);
+	}
+
+	/**
+	 * Finds the slot that contains the given key. Expired entries are cleared and treated as missing.
+	 * Must be called while holding the instance lock.
+	 * @param key Key to find
+	 * @return Slot that contains the key, or -1 if the key is not present
+	 */
+	private int find(long key) {
+		int base = setBase(key);
+		for (int i = base; i < base + WAYS; i++) {
+			if (keys[i] == key && key != EMPTY_KEY) {
+				if (System.nanoTime() - writeTime[i] > ttlNanos) {
+					keys[i] = EMPTY_KEY;
+					return -1;
+				}
+				lastAccess[i] = ++accessCounter;
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param key A key
+	 * @return Index of the first slot of the set the key belongs to
+	 */
+	private int setBase(long key) {
+		// Discord IDs have their timestamp on the upper bits, so the bits are mixed before picking a set
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return ((int) (hash ^ (hash >>> 32)) & setMask) * WAYS;
+	}
+
+	/**
+	 * Usage metrics of a cache
+	 * @param size Number of entries currently stored
+	 * @param capacity Maximum number of entries
+	 * @param hits Number of lookups that found an entry
+	 * @param misses Number of lookups that didn't find an entry
+	 * @param evictions Number of entries removed to make room for new ones
+	 */
+	public record Stats(int size, int capacity, long hits, long misses, long evictions) {
+		/**
+		 * @return Fraction of lookups that found an entry, between 0 and 1
+		 */
+		public double hitRate() {
+			long total = hits + misses;
+			return total == 0 ? 0 : hits / (double) total;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions", size, capacity,
+				hits, misses, hitRate() * 100, evictions);
+		}
+	}
+}
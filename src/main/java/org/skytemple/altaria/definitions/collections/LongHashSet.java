@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.collections;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Hash set of long values that doesn't box them. Mostly meant to store IDs.
+ * Uses open addressing with linear probing, and grows when it's more than half full. Removed entries are filled by
+ * shifting back the ones after them, so lookups never need to skip deleted slots.
+ * The value 0 is reserved to mark empty slots and cannot be stored. Not thread-safe.
+ */
+public class LongHashSet {
+	private static final long EMPTY_KEY = 0;
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private int mask;
+	private int size;
+
+	public LongHashSet() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates a new set
+	 * @param expectedSize Amount of values the set can hold before it needs to grow
+	 */
+	public LongHashSet(int expectedSize) {
+		int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1);
+		keys = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @param key Value to check
+	 * @return True if the set contains the value
+	 */
+	public boolean contains(long key) {
+		if (key == EMPTY_KEY) {
+			return false;
+		}
+		for (int i = slot(key); ; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return true;
+			} else if (keys[i] == EMPTY_KEY) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Adds a value to the set
+	 * @param key Value to add. Cannot be 0.
+	 * @return True if the value was added, false if the set already contained it
+	 */
+	public boolean add(long key) {
+		if (key == EMPTY_KEY) {
+			throw new IllegalArgumentException("Key 0 is reserved");
+		}
+		for (int i = slot(key); ; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return false;
+			} else if (keys[i] == EMPTY_KEY) {
+				keys[i] = key;
+				if (++size * 2 > keys.length) {
+					grow();
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Removes a value from the set
+	 * @param key Value to remove
+	 * @return True if the value was removed, false if the set didn't contain it
+	 */
+	public boolean remove(long key) {
+		if (key == EMPTY_KEY) {
+			return false;
+		}
+		int i = slot(key);
+		while (keys[i] != key) {
+			if (keys[i] == EMPTY_KEY) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		// Move back the entries after the removed one that would become unreachable otherwise
+		int gap = i;
+		for (int j = (gap + 1) & mask; keys[j] != EMPTY_KEY; j = (j + 1) & mask) {
+			// Distance from the slot where the search for the entry starts to the slots it's in and to the gap
+			int entryDistance = (j - slot(keys[j])) & mask;
+			int gapDistance = (j - gap) & mask;
+			if (entryDistance >= gapDistance) {
+				keys[gap] = keys[j];
+				gap = j;
+			}
+		}
+		keys[gap] = EMPTY_KEY;
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return Amount of values in the set
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Runs an action for each value in the set. The order of the values is not specified.
+	 * @param action Action to run
+	 */
+	public void forEach(LongConsumer action) {
+		for (long key : keys) {
+			if (key != EMPTY_KEY) {
+				action.accept(key);
+			}
+		}
+	}
+
+	/**
+	 * Doubles the capacity of the set
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		keys = new long[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for (long key : oldKeys) {
+			if (key != EMPTY_KEY) {
+				int i = slot(key);
+				while (keys[i] != EMPTY_KEY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+			}
+		}
+	}
+
+	/**
+	 * @param key A value
+	 * @return Slot where the search for the value starts
+	 */
+	private int slot(long key) {
+		// Discord IDs have their timestamp on the upper bits, so the bits are mixed before picking a slot
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
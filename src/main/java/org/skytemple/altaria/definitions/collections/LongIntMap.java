@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.collections;
+
+/**
+ * Hash map from long keys to int values that doesn't box either of them. Mostly meant to count things by ID.
+ * Uses open addressing with linear probing, and grows when it's more than half full. Entries cannot be removed.
+ * The key 0 is reserved to mark empty slots and cannot be stored. Not thread-safe.
+ */
+public class LongIntMap {
+	private static final long EMPTY_KEY = 0;
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+
+	public LongIntMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates a new map
+	 * @param expectedSize Amount of entries the map can hold before it needs to grow
+	 */
+	public LongIntMap(int expectedSize) {
+		int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1);
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @param key Key to get
+	 * @return Value associated to the key, or 0 if the map doesn't contain it
+	 */
+	public int get(long key) {
+		if (key == EMPTY_KEY) {
+			return 0;
+		}
+		for (int i = slot(key); ; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return values[i];
+			} else if (keys[i] == EMPTY_KEY) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Adds an amount to the value associated to a key. If the key is not present, it's added with that amount as its
+	 * value.
+	 * @param key Key to update. Cannot be 0.
+	 * @param amount Amount to add
+	 * @return New value associated to the key
+	 */
+	public int add(long key, int amount) {
+		if (key == EMPTY_KEY) {
+			throw new IllegalArgumentException("Key 0 is reserved");
+		}
+		int i = slot(key);
+		while (keys[i] != key) {
+			if (keys[i] == EMPTY_KEY) {
+				keys[i] = key;
+				if (++size * 2 > keys.length) {
+					grow();
+				}
+				// The key was just added with value 0, but growing might have moved it
+				return add(key, amount);
+			}
+			i = (i + 1) & mask;
+		}
+		values[i] += amount;
+		return values[i];
+	}
+
+	/**
+	 * Associates a value to a key, unless the key is already present
+	 * @param key Key to add. Cannot be 0.
+	 * @param value Value to associate to the key
+	 * @return Value that was already associated to the key, or 0 if the key was added
+	 */
+	public int putIfAbsent(long key, int value) {
+		if (key == EMPTY_KEY) {
+			throw new IllegalArgumentException("Key 0 is reserved");
+		}
+		for (int i = slot(key); ; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return values[i];
+			} else if (keys[i] == EMPTY_KEY) {
+				keys[i] = key;
+				values[i] = value;
+				if (++size * 2 > keys.length) {
+					grow();
+				}
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * @return Amount of entries in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Runs an action for each entry in the map. The order of the entries is not specified.
+	 * @param action Action to run
+	 * @param <E> Type of the exception the action can throw
+	 * @throws E If the action throws it. The remaining entries are skipped.
+	 */
+	public <E extends Exception> void forEach(EntryConsumer<E> action) throws E {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY_KEY) {
+				action.accept(keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Doubles the capacity of the map
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY_KEY) {
+				int i = slot(oldKeys[j]);
+				while (keys[i] != EMPTY_KEY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * @param key A key
+	 * @return Slot where the search for the key starts
+	 */
+	private int slot(long key) {
+		// Discord IDs have their timestamp on the upper bits, so the bits are mixed before picking a slot
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	/**
+	 * Action performed on each entry of a map
+	 * @param <E> Type of the exception the action can throw
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<E extends Exception> {
+		void accept(long key, int value) throws E;
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -22,11 +22,10 @@ import org.skytemple.altaria.definitions.enums.PunishmentAction;
 import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Types;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class used to perform database operations on the auto_timeout table
@@ -35,6 +34,12 @@ public class AutoPunishmentDB {
 	private static final String AUTO_PUNISHMENT_TABLE = "auto_punishment";
 
 	private final Database db;
+	/*
+	 * Immutable snapshot of the punishment list, keyed by amount of strikes. Reads don't need to access the database,
+	 * since the table can only be modified through this class. A new snapshot is published every time the list
+	 * changes.
+	 */
+	private final AtomicReference<NavigableMap<Integer, Punishment>> ladder;
 
 	public AutoPunishmentDB(Database db) {
 		this.db = db;
@@ -49,6 +54,12 @@ public class AutoPunishmentDB {
 		} catch (DbOperationException e) {
 			throw new FatalErrorException("Cannot create auto_timeout table", e);
 		}
+
+		try {
+			ladder = new AtomicReference<>(Collections.unmodifiableNavigableMap(load()));
+		} catch (DbOperationException e) {
+			throw new FatalErrorException("Cannot load strike punishments", e);
+		}
 	}
 
 	/**
@@ -56,88 +67,115 @@ public class AutoPunishmentDB {
 	 * @param numStrikes Number of strikes
 	 * @return Punishment applied when a user receives the specified amount of strikes
 	 */
-	public Punishment get(int numStrikes) throws DbOperationException {
-		try (ResultSet result = new PreparedStatementBuilder(db, "SELECT action, duration FROM " +
-			AUTO_PUNISHMENT_TABLE + " WHERE strikes = ?")
-			.setInt(numStrikes)
-			.executeQuery()) {
-			if (result.next()) {
-				int duration = result.getInt(2);
-				Long actualDuration;
-				if (result.wasNull()) {
-					actualDuration = null;
-				} else {
-					actualDuration = (long) duration;
-				}
-				return new Punishment(PunishmentAction.valueOf(result.getString(1).toUpperCase()), actualDuration);
-			} else {
-				return new Punishment(PunishmentAction.NONE, 0L);
-			}
-		} catch (SQLException e) {
-			throw new DbOperationException(e);
+	public Punishment get(int numStrikes) {
+		Punishment punishment = ladder.get().get(numStrikes);
+		return punishment == null ? new Punishment(PunishmentAction.NONE, 0L) : punishment;
+	}
+
+	/**
+	 * Returns the punishment that should be applied to a user whose strike count goes from oldNumStrikes to
+	 * newNumStrikes.
+	 * @param oldNumStrikes Number of strikes before the change
+	 * @param newNumStrikes Number of strikes after the change
+	 * @param floor If false, only the punishment set for exactly newNumStrikes will be returned. If true, the
+	 *              punishment set for the highest amount of strikes in the (oldNumStrikes, newNumStrikes] range will be
+	 *              returned. This prevents punishments from being skipped when a user receives multiple strikes at
+	 *              once.
+	 * @return Punishment to apply
+	 */
+	public Punishment getForStrikeChange(int oldNumStrikes, int newNumStrikes, boolean floor) {
+		if (!floor) {
+			return get(newNumStrikes);
+		}
+		Map.Entry<Integer, Punishment> entry = ladder.get().floorEntry(newNumStrikes);
+		if (entry == null || entry.getKey() <= oldNumStrikes) {
+			return new Punishment(PunishmentAction.NONE, 0L);
+		} else {
+			return entry.getValue();
 		}
 	}
 
 	/**
-	 * @return List of punishments to apply when users are striked and amount of strikes required to apply each of them.
+	 * @return List of punishments to apply when users are striked and amount of strikes required to apply each of them,
+	 * sorted by amount of strikes.
 	 */
-	public List<StrikesAndPunishment> getAll() throws DbOperationException {
-		try (ResultSet result = new PreparedStatementBuilder(db, "SELECT strikes, action, duration FROM " +
-			AUTO_PUNISHMENT_TABLE)
-			.executeQuery()) {
-			List<StrikesAndPunishment> ret = new ArrayList<>();
-			while (result.next()) {
-				int stikes = result.getInt(1);
-				PunishmentAction action = PunishmentAction.valueOf(result.getString(2).toUpperCase());
-				int duration = result.getInt(3);
-				Long actualDuration;
-				if (result.wasNull()) {
-					actualDuration = null;
-				} else {
-					actualDuration = (long) duration;
-				}
-				ret.add(new StrikesAndPunishment(stikes, new Punishment(action, actualDuration)));
-			}
-			return ret;
-		} catch (SQLException e) {
-			throw new DbOperationException(e);
+	public List<StrikesAndPunishment> getAll() {
+		List<StrikesAndPunishment> ret = new ArrayList<>();
+		for (Map.Entry<Integer, Punishment> entry : ladder.get().entrySet()) {
+			ret.add(new StrikesAndPunishment(entry.getKey(), entry.getValue()));
 		}
+		return ret;
 	}
 
 	/**
-	 * Sets the punishment to issue to a user when reaching the given number of strikes
+	 * Sets the punishment to issue to a user when reaching the given number of strikes. The change is written to the
+	 * database first, then a new snapshot of the punishment list that includes it is published.
 	 * @param strikes Number of strikes
 	 * @param punishment Punishment to issue
 	 */
-	public void set(int strikes, Punishment punishment) throws DbOperationException {
+	public synchronized void set(int strikes, Punishment punishment) throws DbOperationException {
 		if (punishment.action == PunishmentAction.NONE) {
 			new PreparedStatementBuilder(db, "DELETE FROM " + AUTO_PUNISHMENT_TABLE + " WHERE strikes = ?")
 				.setInt(strikes)
 				.executeUpdate();
 		} else {
-			PreparedStatementBuilder builder = new PreparedStatementBuilder(db, "UPDATE " + AUTO_PUNISHMENT_TABLE +
-				" SET action = ?, duration = ? WHERE strikes = ?")
+			PreparedStatementBuilder builder = new PreparedStatementBuilder(db, "INSERT INTO " + AUTO_PUNISHMENT_TABLE +
+				"(strikes, action, duration) VALUES(?, ?, ?) AS new_row ON DUPLICATE KEY UPDATE " +
+				"action = new_row.action, duration = new_row.duration")
+				.setInt(strikes)
 				.setString(punishment.action.toString().toLowerCase());
 			if (punishment.duration == null) {
 				builder.setNull(Types.INTEGER);
 			} else {
 				builder.setInt((int) punishment.duration.toSeconds());
 			}
-			int result = builder.setInt(strikes)
-				.executeUpdate();
-			if (result == 0) {
-				builder = new PreparedStatementBuilder(db, "INSERT INTO " + AUTO_PUNISHMENT_TABLE +
-					"(strikes, action, duration) VALUES(?, ?, ?)")
-					.setInt(strikes)
-					.setString(punishment.action.toString().toLowerCase());
-				if (punishment.duration == null) {
-					builder.setNull(Types.INTEGER);
-				} else {
-					builder.setInt((int) punishment.duration.toSeconds());
-				}
-				builder.executeUpdate();
-			}
+			builder.executeUpdate();
 		}
+
+		NavigableMap<Integer, Punishment> newLadder = new TreeMap<>(ladder.get());
+		if (punishment.action == PunishmentAction.NONE) {
+			newLadder.remove(strikes);
+		} else {
+			// Same as the value stored on the database, which only has a precision of seconds
+			Long durationSeconds = punishment.duration == null ? null : punishment.duration.toSeconds();
+			newLadder.put(strikes, new Punishment(punishment.action, durationSeconds));
+		}
+		ladder.set(Collections.unmodifiableNavigableMap(newLadder));
+	}
+
+	/**
+	 * Asynchronous version of {@link #set(int, Punishment)}
+	 * @param strikes Number of strikes
+	 * @param punishment Punishment to issue
+	 * @return Future that completes once the change has been saved
+	 */
+	public CompletableFuture<Void> setAsync(int strikes, Punishment punishment) {
+		return db.runAsync(() -> set(strikes, punishment), "Set punishment for " + strikes + " strikes");
+	}
+
+	/**
+	 * Reads all the punishments from the database
+	 * @return Map that contains the punishment to apply for each amount of strikes
+	 */
+	private NavigableMap<Integer, Punishment> load() throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT strikes, action, duration FROM " +
+			AUTO_PUNISHMENT_TABLE)
+			.executeQuery((result) -> {
+				NavigableMap<Integer, Punishment> ret = new TreeMap<>();
+				while (result.next()) {
+					int stikes = result.getInt(1);
+					PunishmentAction action = PunishmentAction.valueOf(result.getString(2).toUpperCase());
+					int duration = result.getInt(3);
+					Long actualDuration;
+					if (result.wasNull()) {
+						actualDuration = null;
+					} else {
+						actualDuration = (long) duration;
+					}
+					ret.put(stikes, new Punishment(action, actualDuration));
+				}
+				return ret;
+			});
 	}
 
 	/**
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.apache.logging.log4j.Logger;
+import org.skytemple.altaria.definitions.collections.LongDoubleCache;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.utils.Utils;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Version of {@link ReputationDB} that keeps the balance of recently used users in memory.
+ * The cache is filled the first time the balance of a user is read and updated every time points are added through
+ * this instance, so repeated reads don't need to query the database. Leaderboard positions are cached too, but
+ * since they depend on the points of everyone, they are all discarded every time points are added. The database is
+ * still the source of truth: all writes go to it first, and entries expire after a while in case the table is
+ * modified by something else.
+ * For the cache to stay consistent, the same instance should be shared by everything that modifies points.
+ * The usage metrics of the cache are logged periodically, as long as it has been used since the previous time.
+ */
+public class CachedReputationDB extends ReputationDB {
+	// Amount of minutes a cached balance stays valid
+	private static final long ENTRY_TTL_MINUTES = 10;
+	// Number of locks used to serialize operations on the same user. Must be a power of 2.
+	private static final int NUM_LOCKS = 64;
+	// Amount of minutes between two logs of the cache metrics
+	private static final long STATS_LOG_INTERVAL_MINUTES = 60;
+
+	private final LongDoubleCache cache;
+	private final RankCache rankCache;
+	/*
+	 * Operations that read from the database to fill the cache or write to it and then update the cache hold the lock
+	 * assigned to the affected user. This prevents a slow operation from overwriting the cache entry with an outdated
+	 * value after a more recent one has been stored.
+	 */
+	private final ReentrantLock[] userLocks;
+	private final Logger logger;
+	// Number of lookups performed the last time the cache metrics were logged. Only accessed from the stats logger.
+	private long loggedLookups;
+
+	/**
+	 * Creates a new cached reputation database instance
+	 * @param db Database instance
+	 * @param cacheSize Maximum amount of user balances to keep in memory
+	 */
+	public CachedReputationDB(Database db, int cacheSize) {
+		super(db);
+		cache = new LongDoubleCache(cacheSize, TimeUnit.MINUTES.toNanos(ENTRY_TTL_MINUTES));
+		rankCache = new RankCache(cacheSize, TimeUnit.MINUTES.toNanos(ENTRY_TTL_MINUTES));
+		userLocks = new ReentrantLock[NUM_LOCKS];
+		for (int i = 0; i < NUM_LOCKS; i++) {
+			userLocks[i] = new ReentrantLock();
+		}
+		logger = Utils.getLogger(getClass());
+
+		ScheduledExecutorService statsLogger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "gp-cache-stats");
+			thread.setDaemon(true);
+			return thread;
+		});
+		statsLogger.scheduleWithFixedDelay(this::logCacheStats, STATS_LOG_INTERVAL_MINUTES,
+			STATS_LOG_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	@Override
+	public double getPoints(long userId) throws DbOperationException {
+		double points = cache.get(userId);
+		if (!Double.isNaN(points)) {
+			return points;
+		}
+		ReentrantLock lock = getLock(userId);
+		lock.lock();
+		try {
+			points = super.getPoints(userId);
+			cache.put(userId, points);
+			return points;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public RankEntry getPointsAndRank(long userId) throws DbOperationException {
+		return rankCache.get(userId, () -> {
+			ReentrantLock lock = getLock(userId);
+			lock.lock();
+			try {
+				RankEntry rank = super.getPointsAndRank(userId);
+				if (rank != null) {
+					cache.put(userId, rank.points());
+				}
+				return rank;
+			} finally {
+				lock.unlock();
+			}
+		});
+	}
+
+	@Override
+	public double addPoints(long userId, double amount) throws DbOperationException {
+		ReentrantLock lock = getLock(userId);
+		lock.lock();
+		try {
+			double newPoints = super.addPoints(userId, amount);
+			cache.put(userId, newPoints);
+			return newPoints;
+		} catch (DbOperationException e) {
+			// The change might or might not have been applied
+			cache.remove(userId);
+			throw e;
+		} finally {
+			// Invalidated even if the change failed, since it might have been applied anyway
+			rankCache.invalidate();
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void addPointsBatch(Map<Long, Double> amounts) throws DbOperationException {
+		// Batches are rare, so all the locks are taken instead of just the ones for the affected users.
+		// They are always taken in the same order to avoid deadlocks.
+		for (ReentrantLock lock : userLocks) {
+			lock.lock();
+		}
+		try {
+			super.addPointsBatch(amounts);
+			for (Map.Entry<Long, Double> entry : amounts.entrySet()) {
+				cache.addIfPresent(entry.getKey(), entry.getValue());
+			}
+		} catch (DbOperationException e) {
+			for (Long userId : amounts.keySet()) {
+				cache.remove(userId);
+			}
+			throw e;
+		} finally {
+			rankCache.invalidate();
+			for (ReentrantLock lock : userLocks) {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return Usage metrics of the points cache
+	 */
+	public LongDoubleCache.Stats getCacheStats() {
+		return cache.getStats();
+	}
+
+	/**
+	 * Logs the usage metrics of the points cache, unless it hasn't been used since the last time they were logged
+	 */
+	private void logCacheStats() {
+		LongDoubleCache.Stats stats = getCacheStats();
+		long lookups = stats.hits() + stats.misses();
+		if (lookups > loggedLookups) {
+			logger.info("GP cache stats: " + stats);
+			loggedLookups = lookups;
+		}
+	}
+
+	private ReentrantLock getLock(long userId) {
+		return userLocks[Long.hashCode(userId) & (NUM_LOCKS - 1)];
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.apache.logging.log4j.Logger;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbUnavailableException;
+import org.skytemple.altaria.utils.Utils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of failed attempts to reach the database and stops further attempts while it's down.
+ * After a certain amount of consecutive connectivity failures, the breaker opens. While open, operations are rejected
+ * right away instead of waiting for a connection attempt to time out. In the meantime, the database is probed in the
+ * background, waiting longer after each failed probe. The breaker closes again once a probe succeeds.
+ * Every transition is logged: opening at warn level, and probing (half-open) and closing at info level, the latter
+ * along with the metrics returned by {@link #getStats()}.
+ */
+public class CircuitBreaker {
+	// Amount of milliseconds to wait before the first probe after the breaker opens
+	private static final long INITIAL_PROBE_DELAY = 1000;
+	// Maximum amount of milliseconds between two probes
+	private static final long MAX_PROBE_DELAY = 60 * 1000;
+
+	private final int failureThreshold;
+	private final Probe probe;
+	private final TransitionListener listener;
+	private final ScheduledExecutorService probeExecutor;
+	private final Logger logger;
+
+	// All the fields below are guarded by the instance lock
+	private boolean open;
+	private int consecutiveFailures;
+	private long probeDelay;
+	// Time the breaker was last opened, as returned by System.nanoTime()
+	private long openTime;
+	private long totalOpenNanos;
+	private long numOpened;
+	private long numClosed;
+	private long numRejected;
+
+	/**
+	 * Creates a new circuit breaker, initially closed
+	 * @param failureThreshold Amount of consecutive failures required to open the breaker
+	 * @param probe Used to check if the database is reachable again while the breaker is open
+	 * @param listener Notified every time the breaker opens or closes
+	 */
+	CircuitBreaker(int failureThreshold, Probe probe, TransitionListener listener) {
+		if (failureThreshold <= 0) {
+			throw new IllegalArgumentException("Failure threshold must be > 0");
+		}
+		this.failureThreshold = failureThreshold;
+		this.probe = probe;
+		this.listener = listener;
+		logger = Utils.getLogger(getClass());
+		probeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "db-circuit-probe");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Checks if an operation can be attempted
+	 * @throws DbUnavailableException If the breaker is open
+	 */
+	synchronized void checkAvailable() throws DbUnavailableException {
+		if (open) {
+			numRejected++;
+			throw new DbUnavailableException();
+		}
+	}
+
+	/**
+	 * Records an operation that reached the database, resetting the consecutive failure count
+	 */
+	synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+	}
+
+	/**
+	 * Records an operation that failed because the database could not be reached. Opens the breaker if the failure
+	 * threshold is reached.
+	 * @param cause Error that caused the failure
+	 */
+	void recordFailure(Throwable cause) {
+		int numFailures;
+		synchronized (this) {
+			numFailures = ++consecutiveFailures;
+			if (open || numFailures < failureThreshold) {
+				return;
+			}
+			open = true;
+			openTime = System.nanoTime();
+			numOpened++;
+			probeDelay = INITIAL_PROBE_DELAY;
+			probeExecutor.schedule(this::runProbe, probeDelay, TimeUnit.MILLISECONDS);
+		}
+		logger.warn("Circuit breaker opened after " + numFailures + " consecutive connectivity failures. Database " +
+			"operations will be rejected until a probe succeeds.");
+		listener.onOpen(numFailures, cause);
+	}
+
+	/**
+	 * @return Snapshot of the state of the breaker and its usage metrics
+	 */
+	public synchronized Stats getStats() {
+		long openNanos = totalOpenNanos + (open ? System.nanoTime() - openTime : 0);
+		return new Stats(open, consecutiveFailures, numOpened, numClosed, numRejected,
+			TimeUnit.NANOSECONDS.toSeconds(openNanos));
+	}
+
+	/**
+	 * Checks if the database can be reached again. Closes the breaker if so, or schedules another probe otherwise.
+	 */
+	private void runProbe() {
+		logger.info("Circuit breaker half-open: probing the database");
+		try {
+			probe.run();
+		} catch (DbOperationException | RuntimeException e) {
+			synchronized (this) {
+				probeDelay = Math.min(probeDelay * 2, MAX_PROBE_DELAY);
+				logger.debug("Database still unreachable. Next attempt in " + probeDelay + " ms.");
+				probeExecutor.schedule(this::runProbe, probeDelay, TimeUnit.MILLISECONDS);
+			}
+			return;
+		}
+
+		long downtime;
+		synchronized (this) {
+			open = false;
+			consecutiveFailures = 0;
+			numClosed++;
+			downtime = System.nanoTime() - openTime;
+			totalOpenNanos += downtime;
+		}
+		logger.info("Circuit breaker closed after " + TimeUnit.NANOSECONDS.toSeconds(downtime) + " seconds. Stats: " +
+			getStats());
+		listener.onClose(TimeUnit.NANOSECONDS.toSeconds(downtime));
+	}
+
+	/**
+	 * Used to check if the database is reachable
+	 */
+	@FunctionalInterface
+	interface Probe {
+		/**
+		 * Attempts to reach the database
+		 * @throws DbOperationException If the database cannot be reached
+		 */
+		void run() throws DbOperationException;
+	}
+
+	/**
+	 * Notified when the state of the breaker changes. Called without holding the breaker's lock.
+	 */
+	interface TransitionListener {
+		/**
+		 * Called when the breaker opens
+		 * @param numFailures Amount of consecutive failures that caused the breaker to open
+		 * @param cause Error that caused the last failure
+		 */
+		void onOpen(int numFailures, Throwable cause);
+
+		/**
+		 * Called when the breaker closes
+		 * @param downtime Amount of seconds the breaker was open
+		 */
+		void onClose(long downtime);
+	}
+
+	/**
+	 * Snapshot of the state and usage metrics of a circuit breaker
+	 * @param open True if the breaker is currently open
+	 * @param consecutiveFailures Number of consecutive connectivity failures recorded
+	 * @param timesOpened Number of times the breaker has opened
+	 * @param timesClosed Number of times the breaker has closed after being open
+	 * @param rejected Number of operations rejected while the breaker was open
+	 * @param totalOpenSeconds Total amount of time the breaker has been open, in seconds
+	 */
+	public record Stats(boolean open, int consecutiveFailures, long timesOpened, long timesClosed, long rejected,
+		long totalOpenSeconds) {
+		@Override
+		public String toString() {
+			return String.format("%s, %d consecutive failures, opened %d times, closed %d times, %d rejected, " +
+				"%d s open in total", open ? "open" : "closed", consecutiveFailures, timesOpened, timesClosed, rejected,
+				totalOpenSeconds);
+		}
+	}
+}
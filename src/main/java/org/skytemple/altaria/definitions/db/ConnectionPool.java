@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.apache.logging.log4j.Logger;
+import org.skytemple.altaria.definitions.exceptions.DbConnectException;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.utils.Utils;
+
+import java.sql.Connection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, thread-safe pool of database connections.
+ * Connections are created lazily up to the maximum size, validated when they are borrowed (unless they have just been
+ * used) and closed once they have been idle for longer than the configured timeout. The pool also keeps track of how
+ * long callers have to wait to get a connection and how many of them are in use, which can be retrieved through
+ * {@link #getStats()}. These metrics are logged periodically whenever the pool was saturated or callers timed out
+ * waiting for a connection since the previous check.
+ */
+public class ConnectionPool {
+	// Amount of seconds to wait before determining that a database connection has been lost
+	private static final int VALIDATION_TIMEOUT = 2;
+	/*
+	 * Connections returned to the pool less than this amount of milliseconds ago are not validated when borrowed,
+	 * since they are very likely to still be alive. This saves a round trip to the database when running many
+	 * operations in a row. If the connection did get lost, the operation will fail with a communications error and
+	 * Database will retry it on a new connection.
+	 */
+	private static final long VALIDATION_BYPASS_WINDOW = 1000;
+	// Maximum amount of time between two idle connection eviction runs, in seconds
+	private static final long MAX_EVICTION_INTERVAL = 60;
+
+	private final ConnectionFactory connectionFactory;
+	private final int maxSize;
+	private final long idleTimeoutNanos;
+	private final long borrowTimeoutNanos;
+	private final long validationBypassNanos;
+	private final Logger logger;
+
+	private final ReentrantLock lock;
+	// Signaled every time a connection is returned to the pool or a connection slot is freed
+	private final Condition connectionAvailable;
+	// Idle connections. The most recently used connection is always at the head.
+	private final Deque<PooledConnection> idleConnections;
+	private final ScheduledExecutorService evictionExecutor;
+
+	// All the fields below are guarded by the lock
+	// Number of open connections, including borrowed ones and connections that are being created
+	private int numConnections;
+	private int numBorrowed;
+	private int peakBorrowed;
+	// Highest number of connections in use at the same time since the last eviction run
+	private int intervalPeakBorrowed;
+	private long numBorrows;
+	private long numTimeouts;
+	private long totalWaitNanos;
+	private long maxWaitNanos;
+	private boolean closed;
+
+	// Number of timeouts reported by the last eviction run. Only accessed from the eviction thread.
+	private long reportedTimeouts;
+
+	/**
+	 * Creates a new connection pool. No connections are opened until the first one is borrowed.
+	 * @param connectionFactory Used to open new connections
+	 * @param maxSize Maximum amount of connections that can be open at the same time
+	 * @param idleTimeout Connections that stay idle for longer than this amount of seconds will be closed
+	 * @param borrowTimeout Maximum amount of seconds to wait for a connection to be available when the pool is full
+	 */
+	public ConnectionPool(ConnectionFactory connectionFactory, int maxSize, long idleTimeout, long borrowTimeout) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Connection pool size must be > 0");
+		}
+		this.connectionFactory = connectionFactory;
+		this.maxSize = maxSize;
+		idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeout);
+		borrowTimeoutNanos = TimeUnit.SECONDS.toNanos(borrowTimeout);
+		validationBypassNanos = TimeUnit.MILLISECONDS.toNanos(VALIDATION_BYPASS_WINDOW);
+		logger = Utils.getLogger(getClass());
+
+		lock = new ReentrantLock();
+		connectionAvailable = lock.newCondition();
+		idleConnections = new ArrayDeque<>();
+
+		evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "db-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long evictionInterval = Math.max(1, Math.min(idleTimeout / 2, MAX_EVICTION_INTERVAL));
+		evictionExecutor.scheduleWithFixedDelay(this::evictIdleConnections, evictionInterval, evictionInterval,
+			TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Borrows a connection from the pool. If no idle connections are available, a new one will be opened, unless
+	 * the pool is full, in which case this method blocks until another caller returns a connection.
+	 * The returned connection has been checked to be valid, unless it was returned to the pool very recently. It must
+	 * always be returned to the pool afterwards by calling either {@link #release(PooledConnection)} or
+	 * {@link #discard(PooledConnection)}.
+	 * @return Valid connection
+	 * @throws DbConnectException If a new connection had to be opened and the attempt failed
+	 * @throws DbOperationException If no connection became available before the borrow timeout expired, or if the
+	 * thread was interrupted while waiting for one.
+	 */
+	PooledConnection borrow() throws DbOperationException {
+		long startTime = System.nanoTime();
+		long deadline = startTime + borrowTimeoutNanos;
+
+		while (true) {
+			PooledConnection connection = null;
+			boolean create = false;
+
+			lock.lock();
+			try {
+				while (connection == null && !create) {
+					if (closed) {
+						throw new DbOperationException("The connection pool has been closed");
+					}
+					connection = idleConnections.pollFirst();
+					if (connection == null) {
+						if (numConnections < maxSize) {
+							// Reserve a slot for the new connection
+							numConnections++;
+							create = true;
+						} else {
+							long remaining = deadline - System.nanoTime();
+							if (remaining <= 0) {
+								numTimeouts++;
+								throw new DbOperationException("Timed out waiting for a database connection. All " +
+									maxSize + " connections are in use.");
+							}
+							connectionAvailable.awaitNanos(remaining);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DbOperationException("Interrupted while waiting for a database connection", e);
+			} finally {
+				lock.unlock();
+			}
+
+			// Opening and validating connections requires network I/O, so it's done without holding the lock
+			if (create) {
+				try {
+					connection = new PooledConnection(connectionFactory.connect());
+				} catch (DbConnectException | RuntimeException e) {
+					freeSlot();
+					throw e;
+				}
+			} else if (System.nanoTime() - connection.getLastReleaseTime() > validationBypassNanos &&
+				!connection.isValid(VALIDATION_TIMEOUT)) {
+				logger.warn("Pooled database connection failed validation. Discarding it.");
+				connection.closeQuietly();
+				freeSlot();
+				continue;
+			}
+
+			long waitTime = System.nanoTime() - startTime;
+			lock.lock();
+			try {
+				numBorrowed++;
+				peakBorrowed = Math.max(peakBorrowed, numBorrowed);
+				intervalPeakBorrowed = Math.max(intervalPeakBorrowed, numBorrowed);
+				numBorrows++;
+				totalWaitNanos += waitTime;
+				maxWaitNanos = Math.max(maxWaitNanos, waitTime);
+			} finally {
+				lock.unlock();
+			}
+			return connection;
+		}
+	}
+
+	/**
+	 * Returns a borrowed connection to the pool so it can be reused
+	 * @param connection Connection to return. Must have been obtained through {@link #borrow()}.
+	 */
+	void release(PooledConnection connection) {
+		connection.touch();
+		lock.lock();
+		try {
+			numBorrowed--;
+			if (closed) {
+				numConnections--;
+				connection.closeQuietly();
+			} else {
+				idleConnections.addFirst(connection);
+				connectionAvailable.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes a borrowed connection instead of returning it to the pool. Should be used when the connection has been
+	 * lost or is otherwise unusable.
+	 * @param connection Connection to discard. Must have been obtained through {@link #borrow()}.
+	 */
+	void discard(PooledConnection connection) {
+		connection.closeQuietly();
+		lock.lock();
+		try {
+			numBorrowed--;
+			numConnections--;
+			connectionAvailable.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Snapshot of the current state of the pool and its usage metrics
+	 */
+	public Stats getStats() {
+		lock.lock();
+		try {
+			double avgWaitMs = numBorrows == 0 ? 0 : totalWaitNanos / (double) numBorrows / 1_000_000;
+			return new Stats(maxSize, numConnections, numBorrowed, idleConnections.size(), peakBorrowed, numBorrows,
+				numTimeouts, avgWaitMs, maxWaitNanos / 1_000_000.0);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes all idle connections and stops the eviction task. Borrowed connections will be closed as soon as they
+	 * are returned. No more connections can be borrowed after calling this method.
+	 */
+	public void close() {
+		evictionExecutor.shutdownNow();
+		List<PooledConnection> toClose;
+		lock.lock();
+		try {
+			closed = true;
+			toClose = new ArrayList<>(idleConnections);
+			numConnections -= idleConnections.size();
+			idleConnections.clear();
+			connectionAvailable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		toClose.forEach(PooledConnection::closeQuietly);
+	}
+
+	/**
+	 * Frees a connection slot, allowing a new connection to be opened
+	 */
+	private void freeSlot() {
+		lock.lock();
+		try {
+			numConnections--;
+			connectionAvailable.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes all the connections that have been idle for longer than the idle timeout. Also logs the usage metrics
+	 * of the pool if it was saturated since the previous run.
+	 */
+	private void evictIdleConnections() {
+		List<PooledConnection> evicted = new ArrayList<>();
+		long now = System.nanoTime();
+		boolean saturated;
+		lock.lock();
+		try {
+			saturated = intervalPeakBorrowed >= maxSize;
+			intervalPeakBorrowed = numBorrowed;
+			// The least recently used connections are at the tail of the deque
+			Iterator<PooledConnection> it = idleConnections.descendingIterator();
+			while (it.hasNext()) {
+				PooledConnection connection = it.next();
+				if (now - connection.getLastReleaseTime() > idleTimeoutNanos) {
+					it.remove();
+					numConnections--;
+					evicted.add(connection);
+				} else {
+					break;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		evicted.forEach(PooledConnection::closeQuietly);
+
+		if (!evicted.isEmpty()) {
+			logger.debug("Closed " + evicted.size() + " idle database connection(s)");
+		}
+		Stats stats = getStats();
+		if (stats.timeouts() > reportedTimeouts) {
+			logger.info("Callers timed out waiting for a database connection " + (stats.timeouts() -
+				reportedTimeouts) + " time(s) since the last check. Consider increasing DB_POOL_SIZE. Pool stats: " +
+				stats);
+			reportedTimeouts = stats.timeouts();
+		} else if (saturated) {
+			logger.info("All database connections were in use at some point since the last check. Pool stats: " +
+				stats);
+		}
+	}
+
+	/**
+	 * Used by the pool to open new connections
+	 */
+	@FunctionalInterface
+	public interface ConnectionFactory {
+		/**
+		 * Opens a new database connection
+		 * @return New connection
+		 * @throws DbConnectException If the connection cannot be opened
+		 */
+		Connection connect() throws DbConnectException;
+	}
+
+	/**
+	 * Snapshot of the state and usage metrics of a connection pool
+	 * @param maxSize Maximum amount of connections the pool can hold
+	 * @param open Number of currently open connections
+	 * @param borrowed Number of connections currently in use
+	 * @param idle Number of connections currently idle
+	 * @param peakBorrowed Highest number of connections that have been in use at the same time
+	 * @param borrows Total number of times a connection has been borrowed
+	 * @param timeouts Total number of times a caller gave up waiting for a connection
+	 * @param avgWaitMs Average time spent waiting to borrow a connection, in milliseconds
+	 * @param maxWaitMs Longest time spent waiting to borrow a connection, in milliseconds
+	 */
+	public record Stats(int maxSize, int open, int borrowed, int idle, int peakBorrowed, long borrows, long timeouts,
+		double avgWaitMs, double maxWaitMs) {
+		/**
+		 * @return Fraction of the pool currently in use, between 0 and 1
+		 */
+		public double utilization() {
+			return borrowed / (double) maxSize;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d/%d borrowed (peak %d), %d open, %d idle, %d borrows, %d timeouts, " +
+				"wait avg %.2f ms, max %.2f ms", borrowed, maxSize, peakBorrowed, open, idle, borrows, timeouts,
+				avgWaitMs, maxWaitMs);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -19,20 +19,45 @@ package org.skytemple.altaria.definitions.db;
 
 import com.mysql.cj.jdbc.exceptions.CommunicationsException;
 import org.apache.logging.log4j.Logger;
+import org.skytemple.altaria.definitions.ErrorHandler;
+import org.skytemple.altaria.definitions.senders.ChannelMsgSender;
+import org.skytemple.altaria.definitions.singletons.ExtConfig;
 import org.skytemple.altaria.utils.Utils;
+import org.skytemple.altaria.definitions.exceptions.DbConnectException;
 import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbTimeoutException;
+import org.skytemple.altaria.definitions.exceptions.DbUnavailableException;
 import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
 
 import java.sql.*;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Class used to connect to the bot's database
+ * Class used to connect to the bot's database.
+ * Operations are run on connections borrowed from a {@link ConnectionPool}, so multiple threads can access the
+ * database at the same time.
+ * Most operations have an asynchronous variant that runs them on a dedicated executor and returns a
+ * {@link CompletableFuture}. Those should be preferred when calling the database from event listeners, so a slow
+ * response doesn't block the handling of other events.
+ * If the database cannot be reached several times in a row, a {@link CircuitBreaker} opens and further operations
+ * fail right away with a {@link DbUnavailableException} until the connection is restored.
+ * Requires MySQL 8.0.19 or newer, since upserts refer to the inserted values through a row alias
+ * ({@code INSERT ... AS new_row ON DUPLICATE KEY UPDATE}).
  */
 public class Database {
-	// Amount of seconds to wait before determining that a database connection has been lost
-	private static final int DB_PING_TIMEOUT = 2;
+	// Maximum amount of seconds to wait for a free connection when all of them are in use
+	private static final int DB_BORROW_TIMEOUT = 10;
+	// Maximum amount of seconds to wait for a new connection to be established
+	private static final int DB_CONNECT_TIMEOUT = 10;
+	// Maximum amount of asynchronous operations that can be waiting for a free thread
+	private static final int ASYNC_QUEUE_SIZE = 256;
+	// Maximum amount of time to wait for an asynchronous operation to complete, unless otherwise specified
+	private static final Duration DEFAULT_ASYNC_TIMEOUT = Duration.ofSeconds(15);
+	// Maximum amount of seconds to wait for a ping to the database when checking if it's reachable again
+	private static final int PROBE_TIMEOUT = 5;
 
 	private final String host;
 	private final String port;
@@ -42,9 +67,24 @@ public class Database {
 
 	private final Logger logger;
 
-	private Connection connection;
+	private final ConnectionPool pool;
+	private final DbExecutor executor;
+	private final CircuitBreaker circuitBreaker;
 
-	public Database(String host, String port, String user, String password, String database) {
+	/**
+	 * Creates a new database instance and checks that a connection can be established
+	 * @param host Database host
+	 * @param port Database port
+	 * @param user Database user
+	 * @param password Database password
+	 * @param database Name of the database to use
+	 * @param poolSize Maximum amount of connections that can be open at the same time
+	 * @param idleTimeout Connections that stay unused for longer than this amount of seconds will be closed
+	 * @param failureThreshold Amount of consecutive failed attempts to reach the database after which operations
+	 *                         will be rejected until the database is reachable again
+	 */
+	public Database(String host, String port, String user, String password, String database, int poolSize,
+		long idleTimeout, int failureThreshold) {
 		this.host = host;
 		this.port = port;
 		this.user = user;
@@ -52,53 +92,138 @@ public class Database {
 		this.database = database;
 
 		logger = Utils.getLogger(getClass());
+		pool = new ConnectionPool(this::connect, poolSize, idleTimeout, DB_BORROW_TIMEOUT);
+		circuitBreaker = new CircuitBreaker(failureThreshold, this::probe, new CircuitBreaker.TransitionListener() {
+			@Override
+			public void onOpen(int numFailures, Throwable cause) {
+				// Reported once here, since the operations rejected while the breaker is open are not reported
+				new ErrorHandler(new DbOperationException("The database could not be reached after " + numFailures +
+					" attempts. Operations will be rejected until the connection is restored.", cause))
+					.printToErrorChannel().run();
+			}
+
+			@Override
+			public void onClose(long downtime) {
+				String msg = "Database connection restored after " + downtime + " seconds";
+				logger.info(msg);
+				ExtConfig.get().getErrorChannelId().ifPresent(channelId -> new ChannelMsgSender(channelId).send(msg));
+			}
+		});
+		// Make sure the database can be reached, so configuration errors are reported on startup
 		try {
-			connection = connect();
+			pool.release(pool.borrow());
 		} catch (DbOperationException e) {
 			throw new FatalErrorException(e);
 		}
+		// Running more operations at the same time than there are connections would only make them wait for one
+		executor = new DbExecutor(poolSize, ASYNC_QUEUE_SIZE);
 	}
 
 	/**
-	 * Runs a database operation that could throw an error. If it does and the error is due to the DB connection
-	 * being lost, it will attempt to reconnect if possible.
-	 * <br><b>Note</b>: Some operations will not fail immediately if the connection has been lost (for example,
-	 * {@link Connection#prepareStatement(String)}), but will throw an error later on, even if a reconnect is performed.
-	 * In those cases, it's convenient to run {@link #ensureConnection()} first to check if a reconnection is necessary.
+	 * Runs a database operation that could throw an error. The operation will receive a connection borrowed from the
+	 * pool, which will be returned once the operation completes. If the operation fails due to the connection
+	 * being lost, the connection will be discarded and the operation will be retried once on a new connection.
+	 * <br><b>Note</b>: The connection should not be used after the operation completes, and any statements or result
+	 * sets created during the operation must be closed before it returns.
 	 * @param dbOperation The operation to run. Can be anything capable of throwing an {@link SQLException}.
 	 * @param operation A string that describes the operation performed. Used for error messages.
 	 * @throws DbOperationException If the operation throws an error for reasons other than a disconnect, if the
 	 * reconnect attempt fails or if the operation throws an error after a successful reconnection.
 	 */
 	public void runWithReconnect(DatabaseOperation dbOperation, String operation) throws DbOperationException {
+		runWithReconnectPooled((connection) -> dbOperation.run(connection.get()), operation);
+	}
+
+	/**
+	 * Same as {@link #runWithReconnect(DatabaseOperation, String)}, but gives the operation access to the pooled
+	 * connection, so it can use its prepared statement cache.
+	 * @param dbOperation The operation to run
+	 * @param operation A string that describes the operation performed. Used for error messages.
+	 * @throws DbOperationException If the operation fails. See {@link #runWithReconnect(DatabaseOperation, String)}.
+	 */
+	void runWithReconnectPooled(PooledOperation dbOperation, String operation) throws DbOperationException {
+		circuitBreaker.checkAvailable();
 		try {
-			dbOperation.run(connection);
-		} catch (CommunicationsException e) {
-			// DB connection lost, reconnect and try again
-			logger.warn("Database connection lost. Attempting to reconnect.");
-			connection = connect();
 			try {
-				dbOperation.run(connection);
-			} catch (SQLException e2) {
-				throw new DbOperationException("Error when retrying DB operation.\nOperation: " + operation, e2);
+				runOnPooledConnection(dbOperation);
+			} catch (CommunicationsException e) {
+				// DB connection lost, try again with a different one
+				logger.warn("Database connection lost. Attempting to reconnect.");
+				runOnPooledConnection(dbOperation);
 			}
+			circuitBreaker.recordSuccess();
+		} catch (CommunicationsException e) {
+			circuitBreaker.recordFailure(e);
+			throw new DbOperationException("Error when retrying DB operation.\nOperation: " + operation, e);
 		} catch (SQLException e) {
+			// The database was reached, so this doesn't count as a connectivity failure
+			circuitBreaker.recordSuccess();
 			throw new DbOperationException("Error when performing DB operation.\nOperation: " + operation, e);
+		} catch (DbConnectException e) {
+			// A new connection could not be opened. Other errors when borrowing a connection, such as the pool being
+			// saturated, don't mean that the database is down, so they are not recorded.
+			circuitBreaker.recordFailure(e);
+			throw e;
 		}
 	}
 
+	/**
+	 * Runs a database operation inside a transaction. If the operation completes, the transaction is committed.
+	 * If it throws an error, the transaction is rolled back, so either all the changes made by the operation are
+	 * applied or none of them are. Reconnection is handled like in
+	 * {@link #runWithReconnect(DatabaseOperation, String)}.
+	 * Since a lost connection causes the transaction to be rolled back, retrying the operation is safe.
+	 * @param dbOperation The operation to run
+	 * @param operation A string that describes the operation performed. Used for error messages.
+	 * @throws DbOperationException If the operation fails. See {@link #runWithReconnect(DatabaseOperation, String)}.
+	 */
+	public void runInTransaction(DatabaseOperation dbOperation, String operation) throws DbOperationException {
+		runInTransactionPooled((connection) -> dbOperation.run(connection.get()), operation);
+	}
+
+	/**
+	 * Same as {@link #runInTransaction(DatabaseOperation, String)}, but gives the operation access to the pooled
+	 * connection, so it can use its prepared statement cache.
+	 * @param dbOperation The operation to run
+	 * @param operation A string that describes the operation performed. Used for error messages.
+	 * @throws DbOperationException If the operation fails. See {@link #runWithReconnect(DatabaseOperation, String)}.
+	 */
+	void runInTransactionPooled(PooledOperation dbOperation, String operation) throws DbOperationException {
+		runWithReconnectPooled((pooledConnection) -> {
+			Connection connection = pooledConnection.get();
+			connection.setAutoCommit(false);
+			try {
+				dbOperation.run(pooledConnection);
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				try {
+					connection.rollback();
+				} catch (SQLException ignored) {}
+				throw e;
+			} finally {
+				// If this fails, the connection has been lost and will be discarded anyway
+				try {
+					connection.setAutoCommit(true);
+				} catch (SQLException ignored) {}
+			}
+		}, operation);
+	}
+
 	/**
 	 * Executes a simple SQL query, attempting a reconnection if required. Should not be used for queries with
 	 * parameters or that are meant to run multiple times. Use {@link PreparedStatementBuilder} for that.
 	 * @param query The query to execute
-	 * @return Query result
+	 * @param reader Used to read the result of the query. The result set is closed once the reader returns.
+	 * @return Value returned by the reader
+	 * @param <T> Type of the value returned by the reader
 	 */
-	public ResultSet queryWithReconnect(String query) throws DbOperationException {
-		AtomicReference<ResultSet> result = new AtomicReference<>();
+	public <T> T queryWithReconnect(String query, ResultReader<T> reader) throws DbOperationException {
+		AtomicReference<T> result = new AtomicReference<>();
 		runWithReconnect((_connection) -> {
-			Statement statement = _connection.createStatement();
-			statement.closeOnCompletion();
-			result.set(statement.executeQuery(query));
+			try (Statement statement = _connection.createStatement();
+				 ResultSet resultSet = statement.executeQuery(query)) {
+				result.set(reader.read(resultSet));
+			}
 		}, query);
 		return result.get();
 	}
@@ -120,30 +245,123 @@ public class Database {
 	}
 
 	/**
-	 * Checks if the database connection has been lost and reconnects if that's the case.
-	 * @throws DbOperationException If the reconnect attempt fails
+	 * Creates an index on a table if an index with the same name doesn't exist yet. Used to add indexes to tables
+	 * that were created before the index was introduced.
+	 * @param table Table to create the index on
+	 * @param indexName Name of the index
+	 * @param columns Comma-separated list of the columns to include in the index
+	 */
+	public void ensureIndex(String table, String indexName, String columns) throws DbOperationException {
+		boolean exists = new PreparedStatementBuilder(this, "SELECT EXISTS(SELECT 1 FROM " +
+			"information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?)")
+			.setString(table)
+			.setString(indexName)
+			.executeQuery((result) -> {
+				result.next();
+				return result.getBoolean(1);
+			});
+		if (!exists) {
+			logger.info("Creating index " + indexName + " on table " + table);
+			updateWithReconnect("CREATE INDEX `" + indexName + "` ON `" + table + "` (" + columns + ")");
+		}
+	}
+
+	/**
+	 * Runs an operation asynchronously on the database executor, using the default timeout.
+	 * @param dbSupplier The operation to run. Usually calls one or more synchronous database methods.
+	 * @param operation A string that describes the operation performed. Used for error messages.
+	 * @return Future that completes with the value returned by the operation, or fails with a
+	 * {@link DbOperationException} if the operation fails or times out. If it times out after it started running,
+	 * the exception is a {@link DbTimeoutException}, since the operation might still complete.
+	 * @param <T> Type of the value returned by the operation
+	 */
+	public <T> CompletableFuture<T> supplyAsync(DbSupplier<T> dbSupplier, String operation) {
+		return supplyAsync(dbSupplier, operation, DEFAULT_ASYNC_TIMEOUT);
+	}
+
+	/**
+	 * Runs an operation asynchronously on the database executor.
+	 * @param dbSupplier The operation to run. Usually calls one or more synchronous database methods.
+	 * @param operation A string that describes the operation performed. Used for error messages.
+	 * @param timeout Maximum amount of time to wait for the operation to complete
+	 * @return Future that completes with the value returned by the operation, or fails with a
+	 * {@link DbOperationException} if the operation fails or times out. If it times out after it started running,
+	 * the exception is a {@link DbTimeoutException}, since the operation might still complete.
+	 * @param <T> Type of the value returned by the operation
 	 */
-	public void ensureConnection() throws DbOperationException {
-		boolean fail;
+	public <T> CompletableFuture<T> supplyAsync(DbSupplier<T> dbSupplier, String operation, Duration timeout) {
 		try {
-			fail = !connection.isValid(DB_PING_TIMEOUT);
-		} catch (SQLException e) {
-			fail = true;
+			// Checked here too so operations are not queued if they are going to be rejected anyway
+			circuitBreaker.checkAvailable();
+		} catch (DbUnavailableException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		return executor.submit(dbSupplier, operation, timeout);
+	}
+
+	/**
+	 * Same as {@link #supplyAsync(DbSupplier, String)}, for operations that don't return a value.
+	 * @param dbRunnable The operation to run
+	 * @param operation A string that describes the operation performed. Used for error messages.
+	 * @return Future that completes once the operation is done
+	 */
+	public CompletableFuture<Void> runAsync(DbRunnable dbRunnable, String operation) {
+		return supplyAsync(() -> {
+			dbRunnable.run();
+			return null;
+		}, operation);
+	}
+
+	/**
+	 * Runs a database operation on a connection borrowed from the pool. The connection is returned to the pool
+	 * afterwards, unless the operation failed because the connection was lost, in which case it's discarded.
+	 * @param dbOperation The operation to run
+	 * @throws SQLException If the operation fails
+	 * @throws DbOperationException If a connection cannot be borrowed from the pool
+	 */
+	private void runOnPooledConnection(PooledOperation dbOperation) throws SQLException, DbOperationException {
+		PooledConnection connection = pool.borrow();
+		boolean connectionLost = false;
+		try {
+			dbOperation.run(connection);
+		} catch (CommunicationsException e) {
+			connectionLost = true;
+			throw e;
+		} finally {
+			if (connectionLost) {
+				pool.discard(connection);
+			} else {
+				pool.release(connection);
+			}
 		}
-		if (fail) {
-			logger.warn("Database ping failed. Attempting to reconnect.");
-			connection = connect();
+	}
+
+	/**
+	 * Checks if the database is reachable by pinging it through a pooled connection. Used by the circuit breaker.
+	 * @throws DbOperationException If the database cannot be reached
+	 */
+	private void probe() throws DbOperationException {
+		PooledConnection connection = pool.borrow();
+		if (connection.isValid(PROBE_TIMEOUT)) {
+			pool.release(connection);
+		} else {
+			pool.discard(connection);
+			throw new DbOperationException("Database ping failed");
 		}
 	}
 
-	private Connection connect() throws DbOperationException {
-		String url = "jdbc:mysql://" + host + ":" + port + "/" + database;
+	private Connection connect() throws DbConnectException {
+		// Batched statements are rewritten into multi-row statements to reduce round trips.
+		// The connect timeout prevents reconnection attempts from blocking for the default OS timeout if the database
+		// host is unreachable.
+		String url = "jdbc:mysql://" + host + ":" + port + "/" + database +
+			"?rewriteBatchedStatements=true&connectTimeout=" + DB_CONNECT_TIMEOUT * 1000;
 		try {
 			Connection connection = DriverManager.getConnection(url, user, password);
 			logger.debug("Database connection successful");
 			return connection;
 		} catch (SQLException e) {
-			throw new DbOperationException("Database connection failed", e);
+			throw new DbConnectException("Database connection failed", e);
 		}
 	}
 
@@ -160,4 +378,54 @@ public class Database {
 		 */
 		void run(Connection connection) throws SQLException;
 	}
+
+	/**
+	 * Database operation that returns a value, run asynchronously through {@link #supplyAsync(DbSupplier, String)}
+	 * @param <T> Type of the returned value
+	 */
+	@FunctionalInterface
+	public interface DbSupplier<T> {
+		/**
+		 * Performs the operation
+		 * @return Result of the operation
+		 * @throws DbOperationException If the operation fails
+		 */
+		T get() throws DbOperationException;
+	}
+
+	/**
+	 * Database operation that doesn't return a value, run asynchronously through
+	 * {@link #runAsync(DbRunnable, String)}
+	 */
+	@FunctionalInterface
+	public interface DbRunnable {
+		/**
+		 * Performs the operation
+		 * @throws DbOperationException If the operation fails
+		 */
+		void run() throws DbOperationException;
+	}
+
+	/**
+	 * Same as {@link DatabaseOperation}, but runs on the pooled connection wrapper
+	 */
+	@FunctionalInterface
+	interface PooledOperation {
+		void run(PooledConnection connection) throws SQLException;
+	}
+
+	/**
+	 * Used to read the result of a query before the result set is closed and its connection returned to the pool
+	 * @param <T> Type of the value read from the result set
+	 */
+	@FunctionalInterface
+	public interface ResultReader<T> {
+		/**
+		 * Reads the result of a query
+		 * @param resultSet Query result
+		 * @return Value read from the result
+		 * @throws SQLException If reading the result fails
+		 */
+		T read(ResultSet resultSet) throws SQLException;
+	}
 }
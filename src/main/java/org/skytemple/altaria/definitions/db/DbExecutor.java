@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.apache.logging.log4j.Logger;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbTimeoutException;
+import org.skytemple.altaria.utils.Utils;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor used to run database operations outside the threads that call them, so callers such as event
+ * listeners don't block while waiting for the database.
+ * The executor uses virtual threads if the runtime supports them, and daemon platform threads otherwise. Either way,
+ * the amount of operations running at the same time is limited, since each one needs a connection from the pool
+ * anyway. Operations that don't fit in the queue are rejected instead of piling up.
+ */
+class DbExecutor {
+	private static final String THREAD_NAME_PREFIX = "db-async-";
+
+	private final ThreadPoolExecutor executor;
+	private final Logger logger;
+
+	/**
+	 * Creates a new executor
+	 * @param numThreads Maximum amount of operations that can run at the same time
+	 * @param queueSize Maximum amount of operations that can be waiting to run
+	 */
+	DbExecutor(int numThreads, int queueSize) {
+		logger = Utils.getLogger(getClass());
+		executor = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(queueSize), createThreadFactory());
+	}
+
+	/**
+	 * Runs an operation on the executor.
+	 * The returned future fails with a {@link DbOperationException} if the operation throws one, if the queue is full
+	 * or if the operation doesn't start before the timeout, in which case it's discarded. If the operation starts but
+	 * doesn't complete before the timeout, the future fails with a {@link DbTimeoutException} instead. Such an
+	 * operation is not interrupted, since that could leave its connection in an unknown state, so it might still
+	 * apply its changes later. Its result will be ignored.
+	 * @param dbSupplier Operation to run
+	 * @param operation A string that describes the operation performed. Used for error messages.
+	 * @param timeout Maximum amount of time to wait for the operation to complete
+	 * @return Future that completes with the value returned by the operation
+	 * @param <T> Type of the value returned by the operation
+	 */
+	<T> CompletableFuture<T> submit(Database.DbSupplier<T> dbSupplier, String operation, Duration timeout) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		// Set once the operation starts running, or once it times out while waiting on the queue. Whichever happens
+		// first determines if the operation runs.
+		AtomicBoolean claimed = new AtomicBoolean();
+		try {
+			executor.execute(() -> {
+				if (!claimed.compareAndSet(false, true)) {
+					// Timed out while waiting on the queue
+					return;
+				}
+				try {
+					future.complete(dbSupplier.get());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(new DbOperationException("Too many pending database operations.\n" +
+				"Operation: " + operation, e));
+			return future;
+		}
+		CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+			if (claimed.compareAndSet(false, true)) {
+				// The operation will never run, so it's safe to report it as failed
+				future.completeExceptionally(new DbOperationException("Database operation did not start after " +
+					timeout.toMillis() + " ms.\nOperation: " + operation));
+				logger.warn("Database operation timed out before starting: " + operation);
+			} else if (future.completeExceptionally(new DbTimeoutException("Database operation timed out after " +
+				timeout.toMillis() + " ms. It might still complete.\nOperation: " + operation))) {
+				logger.warn("Database operation timed out: " + operation);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Creates the factory used to create the executor threads. Virtual threads are used if available.
+	 * @return Thread factory
+	 */
+	private ThreadFactory createThreadFactory() {
+		try {
+			// Thread.ofVirtual() only exists in Java 19+ (as a preview feature until Java 21), so it's called
+			// reflectively to keep the code compatible with older runtimes.
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX, 0L);
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			logger.debug("Using virtual threads for asynchronous database operations");
+			return factory;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			logger.debug("Virtual threads not available, using platform threads for asynchronous database operations");
+			AtomicInteger threadCount = new AtomicInteger();
+			return runnable -> {
+				Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wraps a JDBC connection owned by a {@link ConnectionPool}, alongside the bookkeeping data the pool needs.
+ * Each connection keeps a cache of the prepared statements created on it, so statements that run often only need
+ * to be prepared once. Since the cache belongs to the connection, it's thrown away alongside it when the connection
+ * is lost.
+ * Instances are only ever used by one thread at a time, since a connection is either idle or borrowed by a single
+ * caller.
+ */
+class PooledConnection {
+	// Maximum amount of prepared statements to keep per connection
+	private static final int STATEMENT_CACHE_SIZE = 32;
+
+	private final Connection connection;
+	// Cached prepared statements, keyed by their SQL text. Iteration order goes from least to most recently used.
+	private final Map<String, PreparedStatement> statementCache;
+	// Last time the connection was returned to the pool, as returned by System.nanoTime()
+	private long lastReleaseTime;
+
+	PooledConnection(Connection connection) {
+		this.connection = connection;
+		statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > STATEMENT_CACHE_SIZE) {
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		lastReleaseTime = System.nanoTime();
+	}
+
+	/**
+	 * @return The underlying JDBC connection
+	 */
+	Connection get() {
+		return connection;
+	}
+
+	/**
+	 * Returns a prepared statement for the given SQL text, reusing a previously prepared one if possible.
+	 * The returned statement is owned by the connection, so callers must not close it. Its parameters might still
+	 * hold the values from a previous execution, so all of them must be set again before executing it.
+	 * @param sql SQL statement to prepare
+	 * @return Prepared statement for the given SQL text
+	 * @throws SQLException If the statement cannot be prepared
+	 */
+	PreparedStatement prepareStatement(String sql) throws SQLException {
+		PreparedStatement statement = statementCache.get(sql);
+		if (statement == null || statement.isClosed()) {
+			statement = connection.prepareStatement(sql);
+			statementCache.put(sql, statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * @return Last time the connection was returned to the pool, as returned by {@link System#nanoTime()}
+	 */
+	long getLastReleaseTime() {
+		return lastReleaseTime;
+	}
+
+	/**
+	 * Marks the connection as having just been returned to the pool
+	 */
+	void touch() {
+		lastReleaseTime = System.nanoTime();
+	}
+
+	/**
+	 * Checks if the connection is still usable by pinging the database.
+	 * @param timeout Maximum amount of seconds to wait for the ping to complete
+	 * @return True if the connection is still valid, false otherwise
+	 */
+	boolean isValid(int timeout) {
+		try {
+			return connection.isValid(timeout);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the underlying connection and all its cached statements, ignoring any errors
+	 */
+	void closeQuietly() {
+		statementCache.values().forEach(PooledConnection::closeQuietly);
+		statementCache.clear();
+		try {
+			connection.close();
+		} catch (SQLException ignored) {}
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException ignored) {}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -21,56 +21,72 @@ import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class used to run a {@link java.sql.PreparedStatement} by chaining method calls, setting the value of the parameters
  * in order.
+ * The parameter values are stored until the statement is executed. At that point, a connection is borrowed from the
+ * database pool and the statement is filled and executed on it. Statements are cached per connection, so each SQL
+ * statement is only prepared once on every connection.
+ * The same statement can be run with multiple sets of parameters by calling {@link #addBatch()} after setting each of
+ * them and then running {@link #executeBatch()}.
  */
 public class PreparedStatementBuilder {
+	// Minimum amount of placeholders generated by inPlaceholders()
+	private static final int MIN_IN_PLACEHOLDERS = 8;
+
 	private final Database db;
-	private PreparedStatement statement;
 	// String containing the SQL statement used to build the prepared statement
 	private final String sqlStatement;
-	// Index of the next parameter to set
-	private int nextParamIndex;
+	// Operations used to set the value of each parameter, in order
+	private List<ParameterSetter> parameters;
+	// Parameter sets added to the batch so far
+	private final List<List<ParameterSetter>> batch;
 
-	public PreparedStatementBuilder(Database db, String sqlStatement) throws DbOperationException {
+	public PreparedStatementBuilder(Database db, String sqlStatement) {
 		this.db = db;
 		this.sqlStatement = sqlStatement;
-		nextParamIndex = 1;
-		/*
-			If the connection has been lost, this operation won't cause an error, but an exception will be thrown when
-			trying to execute the statement later because the reference to the statement will be outdated.
-			To avoid this, we check if a reconnection is necessary now.
-		 */
-		db.ensureConnection();
-		db.runWithReconnect((connection) -> statement = connection.prepareStatement(sqlStatement),
-			"Prepare " + sqlStatement);
-	}
-
-	public PreparedStatementBuilder setString(String value) throws DbOperationException {
-		db.runWithReconnect((connection) -> statement.setString(nextParamIndex, value), "Set string: " + value);
-		nextParamIndex++;
+		parameters = new ArrayList<>();
+		batch = new ArrayList<>();
+	}
+
+	public PreparedStatementBuilder setString(String value) {
+		parameters.add((statement, index) -> statement.setString(index, value));
+		return this;
+	}
+
+	public PreparedStatementBuilder setInt(Integer value) {
+		parameters.add((statement, index) -> statement.setInt(index, value));
 		return this;
 	}
 
-	public PreparedStatementBuilder setInt(Integer value) throws DbOperationException {
-		db.runWithReconnect((connection) -> statement.setInt(nextParamIndex, value), "Set int: " + value);
-		nextParamIndex++;
+	public PreparedStatementBuilder setLong(Long value) {
+		parameters.add((statement, index) -> statement.setLong(index, value));
 		return this;
 	}
 
-	public PreparedStatementBuilder setLong(Long value) throws DbOperationException {
-		db.runWithReconnect((connection) -> statement.setLong(nextParamIndex, value), "Set long: " + value);
-		nextParamIndex++;
+	public PreparedStatementBuilder setDouble(Double value) {
+		parameters.add((statement, index) -> statement.setDouble(index, value));
 		return this;
 	}
 
-	public PreparedStatementBuilder setDouble(Double value) throws DbOperationException {
-		db.runWithReconnect((connection) -> statement.setDouble(nextParamIndex, value), "Set double: " + value);
-		nextParamIndex++;
+	/**
+	 * Sets the values of a list of placeholders generated by {@link #inPlaceholders(int)}. The placeholders that don't
+	 * have a value are filled by repeating the last one, which doesn't change the result of an IN clause.
+	 * @param values Values to set. Cannot be empty.
+	 * @return this
+	 */
+	public PreparedStatementBuilder setLongsPadded(List<Long> values) {
+		int numPlaceholders = numInPlaceholders(values.size());
+		for (int i = 0; i < numPlaceholders; i++) {
+			setLong(values.get(Math.min(i, values.size() - 1)));
+		}
 		return this;
 	}
 
@@ -79,21 +95,118 @@ public class PreparedStatementBuilder {
 	 * @param sqlColumnType Column type, as defined in {@link java.sql.Types}.
 	 * @return this
 	 */
-	public PreparedStatementBuilder setNull(int sqlColumnType) throws DbOperationException {
-		db.runWithReconnect((connection) -> statement.setNull(nextParamIndex, sqlColumnType), "Set null");
-		nextParamIndex++;
+	public PreparedStatementBuilder setNull(int sqlColumnType) {
+		parameters.add((statement, index) -> statement.setNull(index, sqlColumnType));
+		return this;
+	}
+
+	/**
+	 * Adds the parameters set so far to the batch and starts a new set of parameters
+	 * @return this
+	 */
+	public PreparedStatementBuilder addBatch() {
+		batch.add(parameters);
+		parameters = new ArrayList<>();
 		return this;
 	}
 
-	public ResultSet executeQuery() throws DbOperationException {
-		AtomicReference<ResultSet> result = new AtomicReference<>();
-		db.runWithReconnect((connection) -> result.set(statement.executeQuery()), sqlStatement);
+	/**
+	 * Executes the statement once per set of parameters added to the batch. All the executions are sent together
+	 * and run inside a single transaction, so if any of them fails, none of them will be applied.
+	 * @return Number of affected rows for each set of parameters. If the driver merges the batch into a single
+	 * statement, the values will be {@link java.sql.Statement#SUCCESS_NO_INFO} instead.
+	 */
+	public int[] executeBatch() throws DbOperationException {
+		if (batch.isEmpty()) {
+			return new int[0];
+		}
+		AtomicReference<int[]> result = new AtomicReference<>();
+		db.runInTransactionPooled((connection) -> {
+			PreparedStatement statement = connection.prepareStatement(sqlStatement);
+			try {
+				for (List<ParameterSetter> batchParameters : batch) {
+					setParameters(statement, batchParameters);
+					statement.addBatch();
+				}
+				result.set(statement.executeBatch());
+			} catch (SQLException | RuntimeException e) {
+				// The statement is cached, so it can't be left with a partial batch
+				statement.clearBatch();
+				throw e;
+			}
+		}, sqlStatement + " (batch of " + batch.size() + ")");
+		return result.get();
+	}
+
+	/**
+	 * Executes the statement as a query
+	 * @param reader Used to read the result of the query. The result set is closed once the reader returns.
+	 * @return Value returned by the reader
+	 * @param <T> Type of the value returned by the reader
+	 */
+	public <T> T executeQuery(Database.ResultReader<T> reader) throws DbOperationException {
+		AtomicReference<T> result = new AtomicReference<>();
+		db.runWithReconnectPooled((connection) -> {
+			PreparedStatement statement = connection.prepareStatement(sqlStatement);
+			setParameters(statement);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				result.set(reader.read(resultSet));
+			}
+		}, sqlStatement);
 		return result.get();
 	}
 
 	public int executeUpdate() throws DbOperationException {
 		AtomicInteger result = new AtomicInteger();
-		db.runWithReconnect((connection) -> result.set(statement.executeUpdate()), sqlStatement);
+		db.runWithReconnectPooled((connection) -> {
+			PreparedStatement statement = connection.prepareStatement(sqlStatement);
+			setParameters(statement);
+			result.set(statement.executeUpdate());
+		}, sqlStatement);
 		return result.get();
 	}
+
+	/**
+	 * Returns a list of placeholders to use in an IN clause that will hold the given amount of values.
+	 * The number of placeholders is rounded up to a power of 2, so only a few different statements are generated and
+	 * they can be reused from the prepared statement cache. Their values should be set with
+	 * {@link #setLongsPadded(List)}.
+	 * @param numValues Amount of values the clause will hold
+	 * @return Comma-separated list of placeholders
+	 */
+	public static String inPlaceholders(int numValues) {
+		return String.join(", ", Collections.nCopies(numInPlaceholders(numValues), "?"));
+	}
+
+	private static int numInPlaceholders(int numValues) {
+		return Math.max(MIN_IN_PLACEHOLDERS, Integer.highestOneBit(numValues - 1) << 1);
+	}
+
+	/**
+	 * Sets the value of all the parameters on the given statement
+	 * @param statement Statement to fill
+	 */
+	private void setParameters(PreparedStatement statement) throws SQLException {
+		setParameters(statement, parameters);
+	}
+
+	/**
+	 * Sets the value of the given parameters on the given statement
+	 * @param statement Statement to fill
+	 * @param parameters Parameters to set
+	 */
+	private static void setParameters(PreparedStatement statement, List<ParameterSetter> parameters)
+		throws SQLException {
+		for (int i = 0; i < parameters.size(); i++) {
+			parameters.get(i).set(statement, i + 1);
+		}
+	}
+
+	/**
+	 * Sets the value of a single parameter on a prepared statement
+	 */
+	@FunctionalInterface
+	private interface ParameterSetter {
+		void set(PreparedStatement statement, int index) throws SQLException;
+	}
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.skytemple.altaria.definitions.db.ReputationDB.RankEntry;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of leaderboard positions used by {@link CachedReputationDB}.
+ * A change to the points of any user can move every other user on the leaderboard, so the whole cache is invalidated
+ * every time points are modified. To prevent a lookup that started before a change from storing an outdated position
+ * after it, entries are tagged with the generation of the cache they were loaded in, and only entries from the
+ * current generation are valid. Entries also expire after a fixed amount of time.
+ * This class is thread-safe.
+ */
+class RankCache {
+	private final Map<Long, Entry> entries;
+	private final int maxSize;
+	private final long ttlNanos;
+	// Increased every time the cache is invalidated
+	private final AtomicLong generation;
+
+	/**
+	 * @param maxSize Maximum amount of entries. The cache is emptied when it's full, since it's emptied on every
+	 *                change anyway.
+	 * @param ttlNanos Amount of nanoseconds an entry stays valid after being loaded
+	 */
+	RankCache(int maxSize, long ttlNanos) {
+		entries = new ConcurrentHashMap<>();
+		this.maxSize = maxSize;
+		this.ttlNanos = ttlNanos;
+		generation = new AtomicLong();
+	}
+
+	/**
+	 * Returns the points and leaderboard position of a user, loading them if the cache doesn't contain a valid entry
+	 * for them.
+	 * @param userId User to check
+	 * @param loader Used to load the entry if required. Empty results are not cached.
+	 * @return Cached or loaded entry, or null if the loader returned null
+	 * @throws DbOperationException If the loader throws it
+	 */
+	RankEntry get(long userId, Database.DbSupplier<RankEntry> loader) throws DbOperationException {
+		long currentGeneration = generation.get();
+		Entry entry = entries.get(userId);
+		if (entry != null && entry.generation == currentGeneration &&
+			System.nanoTime() - entry.loadTime < ttlNanos) {
+			return entry.rank;
+		}
+
+		long loadTime = System.nanoTime();
+		RankEntry rank = loader.get();
+		if (rank != null) {
+			if (entries.size() >= maxSize) {
+				entries.clear();
+			}
+			entries.put(userId, new Entry(rank, currentGeneration, loadTime));
+		}
+		return rank;
+	}
+
+	/**
+	 * Invalidates all the entries. Must be called after the points of any user are modified.
+	 */
+	void invalidate() {
+		generation.incrementAndGet();
+		entries.clear();
+	}
+
+	private record Entry(RankEntry rank, long generation, long loadTime) {}
+}
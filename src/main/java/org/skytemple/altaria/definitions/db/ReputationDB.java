@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -21,10 +21,13 @@ import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
 import org.skytemple.altaria.utils.Utils;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class used to perform database operations on the reputation table
@@ -42,7 +45,10 @@ public class ReputationDB {
 			db.updateWithReconnect("CREATE TABLE IF NOT EXISTS " + REPUTATION_TABLE_NAME + "(" +
 				"`discord_id` BIGINT(30) UNSIGNED NOT NULL," +
 				"`points` DOUBLE SIGNED NOT NULL," +
-				"PRIMARY KEY (`discord_id`));");
+				"PRIMARY KEY (`discord_id`)," +
+				"INDEX `idx_points` (`points`));");
+			// Tables created by older versions don't have the index yet
+			db.ensureIndex(REPUTATION_TABLE_NAME, "idx_points", "`points`");
 		} catch (DbOperationException e) {
 			throw new FatalErrorException("Cannot create reputation table", e);
 		}
@@ -54,15 +60,13 @@ public class ReputationDB {
 	 * @return User points
 	 */
 	public double getPoints(long userId) throws DbOperationException {
-		try (ResultSet result = new PreparedStatementBuilder(db, "SELECT IFNULL((SELECT points FROM " +
+		return new PreparedStatementBuilder(db, "SELECT IFNULL((SELECT points FROM " +
 			REPUTATION_TABLE_NAME + " " + "WHERE discord_id = ?), 0)")
 			.setLong(userId)
-			.executeQuery()) {
-			result.next();
-			return result.getDouble(1);
-		} catch (SQLException e) {
-			throw new DbOperationException(e);
-		}
+			.executeQuery((result) -> {
+				result.next();
+				return result.getDouble(1);
+			});
 	}
 
 	/**
@@ -79,16 +83,14 @@ public class ReputationDB {
 	 * @return Lis of (user, points) pairs
 	 */
 	public List<PointsEntry> getPoints() throws DbOperationException {
-		List<PointsEntry> res = new ArrayList<>();
-		try (ResultSet result = db.queryWithReconnect("SELECT discord_id, points FROM " + REPUTATION_TABLE_NAME +
-			" ORDER BY points DESC")) {
+		return db.queryWithReconnect("SELECT discord_id, points FROM " + REPUTATION_TABLE_NAME +
+			" ORDER BY points DESC", (result) -> {
+			List<PointsEntry> res = new ArrayList<>();
 			while (result.next()) {
 				res.add(new PointsEntry(result.getLong(1), result.getDouble(2)));
 			}
-		} catch (SQLException e) {
-			throw new DbOperationException(e);
-		}
-		return res;
+			return res;
+		});
 	}
 
 	/**
@@ -104,23 +106,171 @@ public class ReputationDB {
 	}
 
 	/**
-	 * Adds (or removes) points from the specified user
+	 * Gets a page of the leaderboard, sorted by amount of points (desc). Users with the same amount of points are
+	 * sorted by ID (desc), so the order of the entries is consistent across pages.
+	 * Only the requested entries are read, using the index on the points column.
+	 * @param offset Number of entries to skip
+	 * @param limit Maximum number of entries to return
+	 * @return List of (user, points) pairs
+	 */
+	public List<PointsEntry> getPointsPage(int offset, int limit) throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT discord_id, points FROM " + REPUTATION_TABLE_NAME +
+			" ORDER BY points DESC, discord_id DESC LIMIT ? OFFSET ?")
+			.setInt(limit)
+			.setInt(offset)
+			.executeQuery((result) -> {
+				List<PointsEntry> res = new ArrayList<>();
+				while (result.next()) {
+					res.add(new PointsEntry(result.getLong(1), result.getDouble(2)));
+				}
+				return res;
+			});
+	}
+
+	/**
+	 * Gets a page of the leaderboard as integers. See {@link #getPointsPage(int, int)}.
+	 * @param offset Number of entries to skip
+	 * @param limit Maximum number of entries to return
+	 * @return List of (user, points) pairs
+	 */
+	public List<PointsEntryInt> getPointsPageInt(int offset, int limit) throws DbOperationException {
+		List<PointsEntryInt> res = new ArrayList<>();
+		for (PointsEntry entry : getPointsPage(offset, limit)) {
+			res.add(new PointsEntryInt(entry.userId, Utils.doubleToInt(entry.points)));
+		}
+		return res;
+	}
+
+	/**
+	 * @return Number of users that have a points entry, which is also the number of entries on the leaderboard
+	 */
+	public int getNumUsers() throws DbOperationException {
+		return db.queryWithReconnect("SELECT COUNT(*) FROM " + REPUTATION_TABLE_NAME, (result) -> {
+			result.next();
+			return result.getInt(1);
+		});
+	}
+
+	/**
+	 * Returns the amount of points a user has alongside their position on the leaderboard. The position is
+	 * consistent with the order used by {@link #getPointsPage(int, int)}.
+	 * @param userId User to check
+	 * @return User points and leaderboard position, or null if the user doesn't have a points entry.
+	 */
+	public RankEntry getPointsAndRank(long userId) throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT r.points, (SELECT COUNT(*) FROM " + REPUTATION_TABLE_NAME +
+			" o WHERE o.points > r.points OR (o.points = r.points AND o.discord_id > r.discord_id)) + 1 FROM " +
+			REPUTATION_TABLE_NAME + " r WHERE r.discord_id = ?")
+			.setLong(userId)
+			.executeQuery((result) -> {
+				if (result.next()) {
+					return new RankEntry(result.getDouble(1), result.getInt(2));
+				} else {
+					return null;
+				}
+			});
+	}
+
+	/**
+	 * Adds (or removes) points from the specified user. The user's entry is created if it doesn't exist yet.
 	 * @param userId ID of the user to give the points to
 	 * @param amount Amount of points to give
+	 * @return Amount of points the user has after the change
 	 */
-	public void addPoints(long userId, double amount) throws DbOperationException {
-		int result = new PreparedStatementBuilder(db, "UPDATE " + REPUTATION_TABLE_NAME + " SET points = points + ? " +
-			"WHERE discord_id = ?")
-			.setDouble(amount)
-			.setLong(userId)
-			.executeUpdate();
-		if (result == 0) {
-			new PreparedStatementBuilder(db, "INSERT INTO " + REPUTATION_TABLE_NAME + "(discord_id, points) " +
-				"VALUES(?, ?)")
-				.setLong(userId)
-				.setDouble(amount)
-				.executeUpdate();
+	public double addPoints(long userId, double amount) throws DbOperationException {
+		AtomicReference<Double> newPoints = new AtomicReference<>();
+		// The upsert and the query that reads the new balance run on the same connection inside a transaction. The
+		// upsert locks the row, so no other change can be applied in between.
+		db.runInTransactionPooled((connection) -> {
+			PreparedStatement upsert = connection.prepareStatement("INSERT INTO " + REPUTATION_TABLE_NAME +
+				"(discord_id, points) VALUES(?, ?) AS new_row " +
+				"ON DUPLICATE KEY UPDATE points = points + new_row.points");
+			upsert.setLong(1, userId);
+			upsert.setDouble(2, amount);
+			upsert.executeUpdate();
+
+			PreparedStatement select = connection.prepareStatement("SELECT points FROM " + REPUTATION_TABLE_NAME +
+				" WHERE discord_id = ?");
+			select.setLong(1, userId);
+			try (ResultSet result = select.executeQuery()) {
+				result.next();
+				newPoints.set(result.getDouble(1));
+			}
+		}, "Add " + amount + " points to user " + userId);
+		return newPoints.get();
+	}
+
+	/**
+	 * Adds (or removes) points from multiple users at once. All the changes are sent as a single batch and applied
+	 * inside a transaction, so either all of them are applied or none of them are.
+	 * @param amounts Map that contains the amount of points to give to each user, keyed by user ID
+	 */
+	public void addPointsBatch(Map<Long, Double> amounts) throws DbOperationException {
+		PreparedStatementBuilder builder = new PreparedStatementBuilder(db, "INSERT INTO " + REPUTATION_TABLE_NAME +
+			"(discord_id, points) VALUES(?, ?) AS new_row " +
+				"ON DUPLICATE KEY UPDATE points = points + new_row.points");
+		for (Map.Entry<Long, Double> entry : amounts.entrySet()) {
+			builder.setLong(entry.getKey())
+				.setDouble(entry.getValue())
+				.addBatch();
 		}
+		builder.executeBatch();
+	}
+
+	/**
+	 * Asynchronous version of {@link #getPointsInt(long)}
+	 * @param userId User to check
+	 * @return Future that completes with the amount of points the user has
+	 */
+	public CompletableFuture<Integer> getPointsIntAsync(long userId) {
+		return db.supplyAsync(() -> getPointsInt(userId), "Get points of user " + userId);
+	}
+
+	/**
+	 * Asynchronous version of {@link #getPointsPageInt(int, int)}
+	 * @param offset Number of entries to skip
+	 * @param limit Maximum number of entries to return
+	 * @return Future that completes with the entries on the page
+	 */
+	public CompletableFuture<List<PointsEntryInt>> getPointsPageIntAsync(int offset, int limit) {
+		return db.supplyAsync(() -> getPointsPageInt(offset, limit), "Get points page at offset " + offset);
+	}
+
+	/**
+	 * Asynchronous version of {@link #getNumUsers()}
+	 * @return Future that completes with the number of users that have a points entry
+	 */
+	public CompletableFuture<Integer> getNumUsersAsync() {
+		return db.supplyAsync(this::getNumUsers, "Get number of users with points");
+	}
+
+	/**
+	 * Asynchronous version of {@link #getPointsAndRank(long)}
+	 * @param userId User to check
+	 * @return Future that completes with the user's points and leaderboard position, or with null if the user
+	 * doesn't have a points entry.
+	 */
+	public CompletableFuture<RankEntry> getPointsAndRankAsync(long userId) {
+		return db.supplyAsync(() -> getPointsAndRank(userId), "Get points and rank of user " + userId);
+	}
+
+	/**
+	 * Asynchronous version of {@link #addPoints(long, double)}
+	 * @param userId ID of the user to give the points to
+	 * @param amount Amount of points to give
+	 * @return Future that completes with the amount of points the user has after the change
+	 */
+	public CompletableFuture<Double> addPointsAsync(long userId, double amount) {
+		return db.supplyAsync(() -> addPoints(userId, amount), "Add " + amount + " points to user " + userId);
+	}
+
+	/**
+	 * Asynchronous version of {@link #addPointsBatch(Map)}
+	 * @param amounts Map that contains the amount of points to give to each user, keyed by user ID
+	 * @return Future that completes once all the changes have been applied
+	 */
+	public CompletableFuture<Void> addPointsBatchAsync(Map<Long, Double> amounts) {
+		return db.runAsync(() -> addPointsBatch(amounts), "Add points to " + amounts.size() + " users");
 	}
 
 	/**
@@ -132,4 +282,9 @@ public class ReputationDB {
 	 * Used to return a pair of user ID and points amount (as an integer)
 	 */
 	public record PointsEntryInt(long userId, int points) {}
+
+	/**
+	 * Used to return the amount of points of a user and their position on the leaderboard (1-indexed)
+	 */
+	public record RankEntry(double points, int rank) {}
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores the current amount of strikes of each user, as reported by the latest Vortex message about them on the
+ * strike log channel.
+ * Updates are idempotent and can be applied in any order: a user's state is only replaced by one that comes from a
+ * newer message.
+ */
+public class StrikeStateDB {
+	private static final String STATE_TABLE_NAME = "strike_state";
+	private static final String SYNC_TABLE_NAME = "strike_state_sync";
+
+	private final Database db;
+
+	public StrikeStateDB(Database db) {
+		this.db = db;
+
+		// Create the tables if they don't exist
+		try {
+			db.updateWithReconnect("CREATE TABLE IF NOT EXISTS " + STATE_TABLE_NAME + "(" +
+				"`user_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`username` VARCHAR(255) NOT NULL," +
+				"`num_strikes` INT NOT NULL," +
+				// ID of the message the state was read from
+				"`last_message_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"PRIMARY KEY (`user_id`)," +
+				"INDEX `idx_num_strikes` (`num_strikes`));");
+			db.updateWithReconnect("CREATE TABLE IF NOT EXISTS " + SYNC_TABLE_NAME + "(" +
+				"`channel_id` BIGINT(30) UNSIGNED NOT NULL," +
+				// ID of the newest message that has been indexed
+				"`last_message_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"PRIMARY KEY (`channel_id`));");
+		} catch (DbOperationException e) {
+			throw new FatalErrorException("Cannot create strike state tables", e);
+		}
+	}
+
+	/**
+	 * Stores the strike state of multiple users. States that come from a message older than the one already stored
+	 * for the same user are ignored.
+	 * @param states States to store
+	 */
+	public void put(Collection<StrikeState> states) throws DbOperationException {
+		if (states.isEmpty()) {
+			return;
+		}
+		// Assignments are evaluated from left to right, so last_message_id must be the last one
+		PreparedStatementBuilder builder = new PreparedStatementBuilder(db, "INSERT INTO " + STATE_TABLE_NAME +
+			" (user_id, username, num_strikes, last_message_id) VALUES (?, ?, ?, ?) AS new_row " +
+			"ON DUPLICATE KEY UPDATE " +
+			"username = IF(new_row.last_message_id > last_message_id, new_row.username, username), " +
+			"num_strikes = IF(new_row.last_message_id > last_message_id, new_row.num_strikes, num_strikes), " +
+			"last_message_id = GREATEST(last_message_id, new_row.last_message_id)");
+		for (StrikeState state : states) {
+			builder.setLong(state.userId())
+				.setString(state.username())
+				.setInt(state.numStrikes())
+				.setLong(state.lastMessageId())
+				.addBatch();
+		}
+		builder.executeBatch();
+	}
+
+	/**
+	 * @param userId User ID
+	 * @return Strike state of the user, or an empty optional if no strikes have been recorded for them
+	 */
+	public Optional<StrikeState> get(long userId) throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT user_id, username, num_strikes, last_message_id FROM " +
+			STATE_TABLE_NAME + " WHERE user_id = ?")
+			.setLong(userId)
+			.executeQuery((result) -> {
+				if (result.next()) {
+					return Optional.of(readState(result));
+				} else {
+					return Optional.empty();
+				}
+			});
+	}
+
+	/**
+	 * @return Strike state of all the users who currently have at least one strike, sorted by user ID
+	 */
+	public List<StrikeState> getUsersWithStrikes() throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT user_id, username, num_strikes, last_message_id FROM " +
+			STATE_TABLE_NAME + " WHERE num_strikes > 0 ORDER BY user_id")
+			.executeQuery((result) -> {
+				List<StrikeState> ret = new ArrayList<>();
+				while (result.next()) {
+					ret.add(readState(result));
+				}
+				return ret;
+			});
+	}
+
+	/**
+	 * Asynchronous version of {@link #get(long)}
+	 * @param userId User ID
+	 * @return Future that completes with the strike state of the user
+	 */
+	public CompletableFuture<Optional<StrikeState>> getAsync(long userId) {
+		return db.supplyAsync(() -> get(userId), "Get strike state of user " + userId);
+	}
+
+	/**
+	 * Asynchronous version of {@link #getUsersWithStrikes()}
+	 * @return Future that completes with the strike state of all the users who currently have at least one strike
+	 */
+	public CompletableFuture<List<StrikeState>> getUsersWithStrikesAsync() {
+		return db.supplyAsync(this::getUsersWithStrikes, "Get users with strikes");
+	}
+
+	/**
+	 * @param channelId Strike log channel ID
+	 * @return ID of the newest message on the channel that has been indexed, or an empty optional if the channel
+	 * has never been indexed.
+	 */
+	public Optional<Long> getLastMessageId(long channelId) throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT last_message_id FROM " + SYNC_TABLE_NAME +
+			" WHERE channel_id = ?")
+			.setLong(channelId)
+			.executeQuery((result) -> {
+				if (result.next()) {
+					return Optional.of(result.getLong(1));
+				} else {
+					return Optional.empty();
+				}
+			});
+	}
+
+	/**
+	 * Records that all the messages on a channel up to the specified one have been indexed. Does nothing if a newer
+	 * message was already recorded.
+	 * @param channelId Strike log channel ID
+	 * @param messageId ID of the newest message indexed
+	 */
+	public void setLastMessageId(long channelId, long messageId) throws DbOperationException {
+		new PreparedStatementBuilder(db, "INSERT INTO " + SYNC_TABLE_NAME + " (channel_id, last_message_id) " +
+			"VALUES (?, ?) AS new_row ON DUPLICATE KEY UPDATE " +
+			"last_message_id = GREATEST(last_message_id, new_row.last_message_id)")
+			.setLong(channelId)
+			.setLong(messageId)
+			.executeUpdate();
+	}
+
+	private static StrikeState readState(ResultSet result) throws SQLException {
+		return new StrikeState(result.getLong(1), result.getString(2), result.getInt(3), result.getLong(4));
+	}
+
+	/**
+	 * Strike state of a user
+	 * @param userId User ID
+	 * @param username Name of the user when the state was recorded
+	 * @param numStrikes Current amount of strikes
+	 * @param lastMessageId ID of the strike log message the state was read from
+	 */
+	public record StrikeState(long userId, String username, int numStrikes, long lastMessageId) {}
+}
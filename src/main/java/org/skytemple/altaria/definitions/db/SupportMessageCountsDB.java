@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.skytemple.altaria.definitions.collections.LongIntMap;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Stores how many messages each user posted on each support thread, so support GP can be calculated without
+ * retrieving the messages from Discord.
+ * Counts are grouped in buckets of {@link #BUCKET_SECONDS} seconds based on the time the messages were posted, so they
+ * can be filtered by time range. Consecutive messages posted by the same user count as one, so each count only
+ * includes the first message of each run of consecutive messages.
+ * Each indexed thread also has an entry that stores the last message that was counted, which is used to keep applying
+ * that rule as new messages are added. Threads whose counts might be wrong are flagged as outdated until they are
+ * rebuilt.
+ */
+public class SupportMessageCountsDB {
+	private static final String COUNTS_TABLE_NAME = "support_message_counts";
+	private static final String INDEX_TABLE_NAME = "support_message_index";
+	// Size of each time bucket, in seconds
+	public static final int BUCKET_SECONDS = 3600;
+	// Maximum amount of thread IDs to include in a single query
+	private static final int MAX_THREADS_PER_QUERY = 1024;
+
+	private final Database db;
+
+	public SupportMessageCountsDB(Database db) {
+		this.db = db;
+
+		// Create the tables if they don't exist
+		try {
+			db.updateWithReconnect("CREATE TABLE IF NOT EXISTS " + COUNTS_TABLE_NAME + "(" +
+				"`thread_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`bucket` INT UNSIGNED NOT NULL," + // Start time of the bucket divided by BUCKET_SECONDS
+				"`user_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`messages` INT UNSIGNED NOT NULL," +
+				"PRIMARY KEY (`thread_id`, `bucket`, `user_id`));");
+			db.updateWithReconnect("CREATE TABLE IF NOT EXISTS " + INDEX_TABLE_NAME + "(" +
+				"`thread_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`last_message_id` BIGINT(30) UNSIGNED NOT NULL," +
+				// 0 = No messages posted by users yet
+				"`last_author_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`outdated` BOOLEAN NOT NULL," +
+				"PRIMARY KEY (`thread_id`));");
+		} catch (DbOperationException e) {
+			throw new FatalErrorException("Cannot create support message count tables", e);
+		}
+	}
+
+	/**
+	 * Given a timestamp, returns the bucket messages posted at that time belong to
+	 * @param timestamp Timestamp, in epoch seconds
+	 * @return Bucket number
+	 */
+	public static int getBucket(long timestamp) {
+		return (int) Math.floorDiv(timestamp, BUCKET_SECONDS);
+	}
+
+	/**
+	 * Rounds a timestamp up to the start of the next bucket, unless it's already at the start of one. This is how
+	 * the time ranges passed to {@link #getCounts(Collection, long, long)} are rounded.
+	 * @param timestamp Timestamp, in epoch seconds
+	 * @return Rounded timestamp, in epoch seconds
+	 */
+	public static long roundToBucket(long timestamp) {
+		return (long) getBucket(timestamp + BUCKET_SECONDS - 1) * BUCKET_SECONDS;
+	}
+
+	/**
+	 * Returns the index entries of the specified threads
+	 * @param threadIds IDs of the threads to check
+	 * @return Map that contains the index entry of each thread. Threads that have never been indexed are not included.
+	 */
+	public Map<Long, IndexEntry> getIndexEntries(Collection<Long> threadIds) throws DbOperationException {
+		Map<Long, IndexEntry> ret = new HashMap<>();
+		for (List<Long> chunk : splitIds(threadIds)) {
+			new PreparedStatementBuilder(db, "SELECT thread_id, last_message_id, last_author_id, outdated FROM " +
+				INDEX_TABLE_NAME + " WHERE thread_id IN (" + PreparedStatementBuilder.inPlaceholders(chunk.size()) +
+				")")
+				.setLongsPadded(chunk)
+				.executeQuery((result) -> {
+					while (result.next()) {
+						ret.put(result.getLong(1), new IndexEntry(result.getLong(2), result.getLong(3),
+							result.getBoolean(4)));
+					}
+					return null;
+				});
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the amount of messages each user posted on the specified threads during a time range. Only buckets
+	 * that start within the range are included, so both ends of the range are rounded up as done by
+	 * {@link #roundToBucket(long)}, and two adjacent ranges never include the same messages. Callers that show the
+	 * range to the user should show the rounded one.
+	 * @param threadIds IDs of the threads to check
+	 * @param startTimestamp Start of the time range, in epoch seconds
+	 * @param endTimestamp End of the time range (exclusive), in epoch seconds
+	 * @return Map that contains the amount of messages each user posted on each thread. Threads without messages in
+	 * the range are not included.
+	 */
+	public Map<Long, Map<Long, Integer>> getCounts(Collection<Long> threadIds, long startTimestamp,
+		long endTimestamp) throws DbOperationException {
+		int startBucket = getBucket(roundToBucket(startTimestamp));
+		int endBucket = getBucket(roundToBucket(endTimestamp));
+		Map<Long, Map<Long, Integer>> ret = new HashMap<>();
+		for (List<Long> chunk : splitIds(threadIds)) {
+			new PreparedStatementBuilder(db, "SELECT thread_id, user_id, SUM(messages) FROM " + COUNTS_TABLE_NAME +
+				" WHERE thread_id IN (" + PreparedStatementBuilder.inPlaceholders(chunk.size()) + ") AND " +
+				"bucket >= ? AND bucket < ? GROUP BY thread_id, user_id")
+				.setLongsPadded(chunk)
+				.setInt(startBucket)
+				.setInt(endBucket)
+				.executeQuery((result) -> {
+					while (result.next()) {
+						ret.computeIfAbsent(result.getLong(1), (k) -> new HashMap<>())
+							.put(result.getLong(2), result.getInt(3));
+					}
+					return null;
+				});
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds messages to the counts of an indexed thread and updates its index entry. Both changes are applied
+	 * atomically.
+	 * @param threadId Thread ID
+	 * @param counts Amount of messages to add, as a map of bucket -> user ID -> amount
+	 * @param lastMessageId ID of the last message that was counted
+	 * @param lastAuthorId ID of the last user who posted a message on the thread
+	 */
+	public void addCounts(long threadId, Map<Integer, LongIntMap> counts, long lastMessageId,
+		long lastAuthorId) throws DbOperationException {
+		db.runInTransactionPooled((connection) -> {
+			insertCounts(connection.prepareStatement("INSERT INTO " + COUNTS_TABLE_NAME + " (thread_id, bucket, " +
+				"user_id, messages) VALUES (?, ?, ?, ?) AS new_row ON DUPLICATE KEY UPDATE " +
+				"messages = " + COUNTS_TABLE_NAME + ".messages + new_row.messages"), threadId, counts);
+			PreparedStatement statement = connection.prepareStatement("UPDATE " + INDEX_TABLE_NAME + " SET " +
+				"last_message_id = ?, last_author_id = ? WHERE thread_id = ?");
+			statement.setLong(1, lastMessageId);
+			statement.setLong(2, lastAuthorId);
+			statement.setLong(3, threadId);
+			statement.executeUpdate();
+		}, "Add support message counts for thread " + threadId);
+	}
+
+	/**
+	 * Replaces all the counts of a thread and marks it as up-to-date. Both changes are applied atomically.
+	 * @param threadId Thread ID
+	 * @param counts New message counts, as a map of bucket -> user ID -> amount
+	 * @param lastMessageId ID of the last message on the thread, or 0 if it doesn't have any
+	 * @param lastAuthorId ID of the last user who posted a message on the thread, or 0 if there isn't any
+	 */
+	public void replaceCounts(long threadId, Map<Integer, LongIntMap> counts, long lastMessageId,
+		long lastAuthorId) throws DbOperationException {
+		db.runInTransactionPooled((connection) -> {
+			PreparedStatement statement = connection.prepareStatement("DELETE FROM " + COUNTS_TABLE_NAME +
+				" WHERE thread_id = ?");
+			statement.setLong(1, threadId);
+			statement.executeUpdate();
+			insertCounts(connection.prepareStatement("INSERT INTO " + COUNTS_TABLE_NAME + " (thread_id, bucket, " +
+				"user_id, messages) VALUES (?, ?, ?, ?)"), threadId, counts);
+			statement = connection.prepareStatement("INSERT INTO " + INDEX_TABLE_NAME + " (thread_id, " +
+				"last_message_id, last_author_id, outdated) VALUES (?, ?, ?, 0) AS new_row ON DUPLICATE KEY UPDATE " +
+				"last_message_id = new_row.last_message_id, last_author_id = new_row.last_author_id, outdated = 0");
+			statement.setLong(1, threadId);
+			statement.setLong(2, lastMessageId);
+			statement.setLong(3, lastAuthorId);
+			statement.executeUpdate();
+		}, "Replace support message counts for thread " + threadId);
+	}
+
+	/**
+	 * Flags the counts of a thread as outdated, so they are not used until the thread is indexed again.
+	 * Does nothing if the thread has never been indexed.
+	 * @param threadId Thread ID
+	 */
+	public void markOutdated(long threadId) throws DbOperationException {
+		new PreparedStatementBuilder(db, "UPDATE " + INDEX_TABLE_NAME + " SET outdated = 1 WHERE thread_id = ?")
+			.setLong(threadId)
+			.executeUpdate();
+	}
+
+	/**
+	 * Adds the given message counts to a statement as a batch and executes it
+	 * @param statement Statement with placeholders for the thread ID, bucket, user ID and amount of messages,
+	 *                  in that order.
+	 * @param threadId Thread ID
+	 * @param counts Message counts, as a map of bucket -> user ID -> amount
+	 */
+	private static void insertCounts(PreparedStatement statement, long threadId,
+		Map<Integer, LongIntMap> counts) throws SQLException {
+		if (counts.isEmpty()) {
+			return;
+		}
+		try {
+			for (Map.Entry<Integer, LongIntMap> bucket : counts.entrySet()) {
+				bucket.getValue().forEach((userId, amount) -> {
+					statement.setLong(1, threadId);
+					statement.setInt(2, bucket.getKey());
+					statement.setLong(3, userId);
+					statement.setInt(4, amount);
+					statement.addBatch();
+				});
+			}
+			statement.executeBatch();
+		} catch (SQLException | RuntimeException e) {
+			// The statement is cached, so it can't be left with a partial batch
+			statement.clearBatch();
+			throw e;
+		}
+	}
+
+	/**
+	 * Splits a collection of thread IDs into lists of at most {@link #MAX_THREADS_PER_QUERY} unique elements
+	 */
+	private static List<List<Long>> splitIds(Collection<Long> threadIds) {
+		List<Long> idList = new ArrayList<>(new HashSet<>(threadIds));
+		List<List<Long>> ret = new ArrayList<>();
+		for (int start = 0; start < idList.size(); start += MAX_THREADS_PER_QUERY) {
+			ret.add(idList.subList(start, Math.min(start + MAX_THREADS_PER_QUERY, idList.size())));
+		}
+		return ret;
+	}
+
+	/**
+	 * Index entry of a thread
+	 * @param lastMessageId ID of the last message that was counted on the thread
+	 * @param lastAuthorId ID of the last user who posted a message on the thread, or 0 if there isn't any
+	 * @param outdated True if the counts of the thread might be wrong and it needs to be indexed again
+	 */
+	public record IndexEntry(long lastMessageId, long lastAuthorId, boolean outdated) {}
+}
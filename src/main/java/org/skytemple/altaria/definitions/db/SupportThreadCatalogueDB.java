@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
+import org.skytemple.altaria.utils.DiscordUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stores the threads known to exist on support channels, so they don't need to be listed through the API every time
+ * they are needed.
+ * The creation time of each thread is not stored, since it can be obtained from its ID.
+ */
+public class SupportThreadCatalogueDB {
+	private static final String CATALOGUE_TABLE_NAME = "support_thread_catalogue";
+	private static final String SYNC_TABLE_NAME = "support_thread_catalogue_sync";
+
+	private final Database db;
+
+	public SupportThreadCatalogueDB(Database db) {
+		this.db = db;
+
+		// Create the tables if they don't exist
+		try {
+			db.updateWithReconnect("CREATE TABLE IF NOT EXISTS " + CATALOGUE_TABLE_NAME + "(" +
+				"`thread_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`parent_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`owner_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`archived` BOOLEAN NOT NULL," +
+				"`archive_timestamp` BIGINT NOT NULL," + // Epoch seconds
+				// 0 = Unknown
+				"`last_message_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`message_count` INT UNSIGNED NOT NULL," +
+				"PRIMARY KEY (`thread_id`)," +
+				"INDEX `idx_parent_last_message` (`parent_id`, `last_message_id`));");
+			db.updateWithReconnect("CREATE TABLE IF NOT EXISTS " + SYNC_TABLE_NAME + "(" +
+				"`channel_id` BIGINT(30) UNSIGNED NOT NULL," +
+				"`last_sync` BIGINT NOT NULL," + // Epoch seconds
+				"PRIMARY KEY (`channel_id`));");
+		} catch (DbOperationException e) {
+			throw new FatalErrorException("Cannot create support thread catalogue tables", e);
+		}
+	}
+
+	/**
+	 * Adds threads to the catalogue, replacing the stored data of those that were already on it
+	 * @param threads Threads to store
+	 */
+	public void put(Collection<CatalogueEntry> threads) throws DbOperationException {
+		if (threads.isEmpty()) {
+			return;
+		}
+		PreparedStatementBuilder builder = new PreparedStatementBuilder(db, "INSERT INTO " + CATALOGUE_TABLE_NAME +
+			" (thread_id, parent_id, owner_id, archived, archive_timestamp, last_message_id, message_count) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?) AS new_row ON DUPLICATE KEY UPDATE parent_id = new_row.parent_id, " +
+			"owner_id = new_row.owner_id, archived = new_row.archived, " +
+			"archive_timestamp = new_row.archive_timestamp, last_message_id = new_row.last_message_id, " +
+			"message_count = new_row.message_count");
+		for (CatalogueEntry thread : threads) {
+			builder.setLong(thread.threadId())
+				.setLong(thread.parentId())
+				.setLong(thread.ownerId())
+				.setInt(thread.archived() ? 1 : 0)
+				.setLong(thread.archiveTimestamp())
+				.setLong(thread.lastMessageId())
+				.setInt(thread.messageCount())
+				.addBatch();
+		}
+		builder.executeBatch();
+	}
+
+	/**
+	 * Removes a thread from the catalogue
+	 * @param threadId Thread ID
+	 */
+	public void remove(long threadId) throws DbOperationException {
+		new PreparedStatementBuilder(db, "DELETE FROM " + CATALOGUE_TABLE_NAME + " WHERE thread_id = ?")
+			.setLong(threadId)
+			.executeUpdate();
+	}
+
+	/**
+	 * Returns the threads on the given channel that might have messages between the two specified timestamps.
+	 * Threads whose last message is unknown are always included.
+	 * @param channelId ID of the channel the threads belong to
+	 * @param startTimestamp Start of the time range, in epoch seconds
+	 * @param endTimestamp End of the time range, in epoch seconds
+	 * @return Threads created before the end of the range whose last message was posted after its start
+	 */
+	public List<CatalogueEntry> getThreadsBetween(long channelId, long startTimestamp, long endTimestamp)
+		throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT thread_id, parent_id, owner_id, archived, " +
+			"archive_timestamp, last_message_id, message_count FROM " + CATALOGUE_TABLE_NAME + " WHERE " +
+			"parent_id = ? AND thread_id < ? AND (last_message_id >= ? OR last_message_id = 0) ORDER BY thread_id")
+			.setLong(channelId)
+			.setLong(DiscordUtils.timestampToSnowflake(endTimestamp))
+			.setLong(DiscordUtils.timestampToSnowflake(startTimestamp + 1))
+			.executeQuery((result) -> {
+				List<CatalogueEntry> ret = new ArrayList<>();
+				while (result.next()) {
+					ret.add(new CatalogueEntry(result.getLong(1), result.getLong(2), result.getLong(3),
+						result.getBoolean(4), result.getLong(5), result.getLong(6), result.getInt(7)));
+				}
+				return ret;
+			});
+	}
+
+	/**
+	 * @param channelId Channel ID
+	 * @return Time when the threads of the given channel were last synced with the API, in epoch seconds, or 0 if
+	 * they never were.
+	 */
+	public long getLastSync(long channelId) throws DbOperationException {
+		return new PreparedStatementBuilder(db, "SELECT IFNULL((SELECT last_sync FROM " + SYNC_TABLE_NAME +
+			" WHERE channel_id = ?), 0)")
+			.setLong(channelId)
+			.executeQuery((result) -> {
+				result.next();
+				return result.getLong(1);
+			});
+	}
+
+	/**
+	 * Sets the time when the threads of the given channel were last synced with the API
+	 * @param channelId Channel ID
+	 * @param timestamp Sync time, in epoch seconds
+	 */
+	public void setLastSync(long channelId, long timestamp) throws DbOperationException {
+		new PreparedStatementBuilder(db, "INSERT INTO " + SYNC_TABLE_NAME + " (channel_id, last_sync) VALUES " +
+			"(?, ?) AS new_row ON DUPLICATE KEY UPDATE last_sync = new_row.last_sync")
+			.setLong(channelId)
+			.setLong(timestamp)
+			.executeUpdate();
+	}
+
+	/**
+	 * Data stored about a thread
+	 * @param threadId Thread ID
+	 * @param parentId ID of the channel that contains the thread
+	 * @param ownerId ID of the user who created the thread
+	 * @param archived True if the thread was archived the last time it was seen
+	 * @param archiveTimestamp Last time the archived status of the thread changed, in epoch seconds
+	 * @param lastMessageId ID of the last message posted on the thread, or 0 if unknown
+	 * @param messageCount Amount of messages on the thread
+	 */
+	public record CatalogueEntry(long threadId, long parentId, long ownerId, boolean archived, long archiveTimestamp,
+		long lastMessageId, int messageCount) {}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -20,13 +20,13 @@ package org.skytemple.altaria.definitions.db;
 import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class SupportThreadsDB {
 	private static final String SUPPORT_THREADS_TABLE_NAME = "support_threads";
+	// Maximum amount of thread IDs to include in a single query
+	private static final int MAX_THREADS_PER_QUERY = 1024;
 
 	private final Database db;
 
@@ -40,7 +40,10 @@ public class SupportThreadsDB {
 				"`user_id` BIGINT(30) UNSIGNED NOT NULL," +
 				"`thread_id` BIGINT(30) UNSIGNED NOT NULL," +
 				"`should_get_gp` BOOLEAN NOT NULL," + // Internally stored as a 1-byte integer
-				"PRIMARY KEY (`user_id`, `thread_id`));");
+				"PRIMARY KEY (`user_id`, `thread_id`)," +
+				"INDEX `idx_thread_gp` (`thread_id`, `should_get_gp`));");
+			// Tables created by older versions don't have the index yet
+			db.ensureIndex(SUPPORT_THREADS_TABLE_NAME, "idx_thread_gp", "`thread_id`, `should_get_gp`");
 		} catch (DbOperationException e) {
 			throw new FatalErrorException("Cannot create support threads table", e);
 		}
@@ -54,23 +57,21 @@ public class SupportThreadsDB {
 	 * @return True if the user should get support GP on this thread
 	 */
 	public boolean shouldUserGetGP(long userId, long threadId, boolean op) throws DbOperationException {
-		try (ResultSet result = new PreparedStatementBuilder(db, "SELECT IFNULL((SELECT should_get_gp FROM " +
+		int resValue = new PreparedStatementBuilder(db, "SELECT IFNULL((SELECT should_get_gp FROM " +
 			SUPPORT_THREADS_TABLE_NAME + " WHERE user_id = ? AND thread_id = ?), 2)")
 			.setLong(userId)
 			.setLong(threadId)
-			.executeQuery()) {
-			result.next();
-			int resValue = result.getInt(1);
-
-			return switch (resValue) {
-				case 0 -> false;
-				case 1 -> true;
-				case 2 -> !op;
-				default -> throw new DbOperationException("Invalid should_get_gp result: " + resValue);
-			};
-		} catch (SQLException e) {
-			throw new DbOperationException(e);
-		}
+			.executeQuery((result) -> {
+				result.next();
+				return result.getInt(1);
+			});
+
+		return switch (resValue) {
+			case 0 -> false;
+			case 1 -> true;
+			case 2 -> !op;
+			default -> throw new DbOperationException("Invalid should_get_gp result: " + resValue);
+		};
 	}
 
 	/**
@@ -79,17 +80,15 @@ public class SupportThreadsDB {
 	 * @return True if users should get support GP on this thread
 	 */
 	public boolean supportGpEnabledInThread(long threadId) throws DbOperationException {
-		try (ResultSet result = new PreparedStatementBuilder(db, "SELECT IFNULL((SELECT should_get_gp FROM " +
+		int resValue = new PreparedStatementBuilder(db, "SELECT IFNULL((SELECT should_get_gp FROM " +
 			SUPPORT_THREADS_TABLE_NAME + " WHERE user_id = 0 AND thread_id = ?), 1)")
 			.setLong(threadId)
-			.executeQuery()) {
-			result.next();
-			int resValue = result.getInt(1);
+			.executeQuery((result) -> {
+				result.next();
+				return result.getInt(1);
+			});
 
-			return resValue == 1;
-		} catch (SQLException e) {
-			throw new DbOperationException(e);
-		}
+		return resValue == 1;
 	}
 
 	/**
@@ -110,6 +109,49 @@ public class SupportThreadsDB {
 		return getUsers(threadId, false);
 	}
 
+	/**
+	 * Returns all the "should get GP" overrides set on the specified threads. All the overrides are loaded with a
+	 * single query (or one query per {@link #MAX_THREADS_PER_QUERY} threads).
+	 * @param threadIds IDs of the threads to check
+	 * @return Map that contains the overrides of each thread. Contains an entry for every given thread, even if it
+	 * doesn't have any overrides.
+	 */
+	public Map<Long, ThreadOverrides> getOverrides(Collection<Long> threadIds) throws DbOperationException {
+		// Thread ID -> user ID -> should get GP
+		Map<Long, Map<Long, Boolean>> rows = new HashMap<>();
+		List<Long> idList = new ArrayList<>(new HashSet<>(threadIds));
+		for (int start = 0; start < idList.size(); start += MAX_THREADS_PER_QUERY) {
+			List<Long> chunk = idList.subList(start, Math.min(start + MAX_THREADS_PER_QUERY, idList.size()));
+			new PreparedStatementBuilder(db, "SELECT thread_id, user_id, should_get_gp FROM " +
+				SUPPORT_THREADS_TABLE_NAME + " WHERE thread_id IN (" +
+				PreparedStatementBuilder.inPlaceholders(chunk.size()) + ")")
+				.setLongsPadded(chunk)
+				.executeQuery((result) -> {
+					while (result.next()) {
+						rows.computeIfAbsent(result.getLong(1), (k) -> new HashMap<>())
+							.put(result.getLong(2), result.getBoolean(3));
+					}
+					return null;
+				});
+		}
+
+		Map<Long, ThreadOverrides> ret = new HashMap<>();
+		for (Long threadId : idList) {
+			Map<Long, Boolean> threadRows = rows.get(threadId);
+			ret.put(threadId, threadRows == null ? ThreadOverrides.NONE : ThreadOverrides.fromRows(threadRows));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns all the "should get GP" overrides set on the specified thread
+	 * @param threadId ID of the thread to check
+	 * @return Overrides set on the thread
+	 */
+	public ThreadOverrides getOverrides(long threadId) throws DbOperationException {
+		return getOverrides(Collections.singletonList(threadId)).get(threadId);
+	}
+
 	/**
 	 * Sets whether the specified user should get GP for their messages in the specified support thread
 	 * @param userId User ID
@@ -126,20 +168,13 @@ public class SupportThreadsDB {
 				.setLong(threadId)
 				.executeUpdate();
 		} else {
-			int result = new PreparedStatementBuilder(db, "UPDATE " + SUPPORT_THREADS_TABLE_NAME + " SET should_get_gp = " +
-				"? WHERE user_id = ? AND thread_id = ?")
-				.setInt(shouldGetGp ? 1 : 0)
+			new PreparedStatementBuilder(db, "INSERT INTO " + SUPPORT_THREADS_TABLE_NAME + "(user_id, thread_id, " +
+				"should_get_gp) VALUES(?, ?, ?) AS new_row ON DUPLICATE KEY UPDATE " +
+				"should_get_gp = new_row.should_get_gp")
 				.setLong(userId)
 				.setLong(threadId)
+				.setInt(shouldGetGp ? 1 : 0)
 				.executeUpdate();
-			if (result == 0) {
-				new PreparedStatementBuilder(db, "INSERT INTO " + SUPPORT_THREADS_TABLE_NAME + "(user_id, thread_id, " +
-					"should_get_gp) VALUES(?, ?, ?)")
-					.setLong(userId)
-					.setLong(threadId)
-					.setInt(shouldGetGp ? 1 : 0)
-					.executeUpdate();
-			}
 		}
 	}
 
@@ -157,7 +192,8 @@ public class SupportThreadsDB {
 				.executeUpdate();
 		} else {
 			new PreparedStatementBuilder(db, "INSERT INTO " + SUPPORT_THREADS_TABLE_NAME + "(user_id, thread_id, " +
-				"should_get_gp) VALUES(?, ?, ?)")
+				"should_get_gp) VALUES(?, ?, ?) AS new_row ON DUPLICATE KEY UPDATE " +
+				"should_get_gp = new_row.should_get_gp")
 				.setLong(0L)
 				.setLong(threadId)
 				.setInt(0)
@@ -165,6 +201,51 @@ public class SupportThreadsDB {
 		}
 	}
 
+	/**
+	 * Asynchronous version of {@link #shouldUserGetGP(long, long, boolean)}
+	 * @param userId ID of the user to check
+	 * @param threadId ID of the thread to check
+	 * @param op True if the user is the person who started the thread, false if it's not.
+	 * @return Future that completes with true if the user should get support GP on this thread
+	 */
+	public CompletableFuture<Boolean> shouldUserGetGPAsync(long userId, long threadId, boolean op) {
+		return db.supplyAsync(() -> shouldUserGetGP(userId, threadId, op),
+			"Check if user " + userId + " should get GP in thread " + threadId);
+	}
+
+	/**
+	 * Asynchronous version of {@link #supportGpEnabledInThread(long)}
+	 * @param threadId ID of the thread to check
+	 * @return Future that completes with true if users should get support GP on this thread
+	 */
+	public CompletableFuture<Boolean> supportGpEnabledInThreadAsync(long threadId) {
+		return db.supplyAsync(() -> supportGpEnabledInThread(threadId), "Check if GP are enabled in thread " +
+			threadId);
+	}
+
+	/**
+	 * Asynchronous version of {@link #setUserSupportGp(long, long, boolean, boolean)}
+	 * @param userId User ID
+	 * @param threadId Thread ID
+	 * @param shouldGetGp True if the user should get GP on the specified thread, false if they shouldn't
+	 * @param op True if the user is the person who started the thread, false if it's not.
+	 * @return Future that completes once the change has been saved
+	 */
+	public CompletableFuture<Void> setUserSupportGpAsync(long userId, long threadId, boolean shouldGetGp, boolean op) {
+		return db.runAsync(() -> setUserSupportGp(userId, threadId, shouldGetGp, op),
+			"Set support GP for user " + userId + " in thread " + threadId);
+	}
+
+	/**
+	 * Asynchronous version of {@link #setThreadSupportGp(long, boolean)}
+	 * @param threadId Thread ID
+	 * @param shouldGetGp True if users should get GP on the specified thread, false if they shouldn't
+	 * @return Future that completes once the change has been saved
+	 */
+	public CompletableFuture<Void> setThreadSupportGpAsync(long threadId, boolean shouldGetGp) {
+		return db.runAsync(() -> setThreadSupportGp(threadId, shouldGetGp), "Set support GP for thread " + threadId);
+	}
+
 	/**
 	 * Returns the ID of the users with "should get GP" overries in the specified thread
 	 * @param threadId Thread ID
@@ -173,19 +254,60 @@ public class SupportThreadsDB {
 	 * @return Users who with the specified GP override on this thread
 	 */
 	private List<Long> getUsers(long threadId, boolean shouldGetGp) throws DbOperationException {
-		List<Long> res = new ArrayList<>();
 		int shouldGetGpInt = shouldGetGp ? 1 : 0;
-		try (ResultSet result = new PreparedStatementBuilder(db, "SELECT user_id FROM " + SUPPORT_THREADS_TABLE_NAME +
+		return new PreparedStatementBuilder(db, "SELECT user_id FROM " + SUPPORT_THREADS_TABLE_NAME +
 			" WHERE thread_id = ? AND should_get_gp = ? AND user_id != 0")
 			.setLong(threadId)
 			.setInt(shouldGetGpInt)
-			.executeQuery()) {
-			while (result.next()) {
-				res.add(result.getLong(1));
+			.executeQuery((result) -> {
+				List<Long> res = new ArrayList<>();
+				while (result.next()) {
+					res.add(result.getLong(1));
+				}
+				return res;
+			});
+	}
+
+	/**
+	 * Holds all the "should get GP" overrides set on a thread. User IDs are stored in sorted primitive arrays to keep
+	 * instances small.
+	 * @param gpEnabled True if users should get GP for their messages in the thread
+	 * @param shouldGetGp Sorted IDs of the users who should always get GP in the thread
+	 * @param shouldNotGetGp Sorted IDs of the users who should never get GP in the thread
+	 */
+	public record ThreadOverrides(boolean gpEnabled, long[] shouldGetGp, long[] shouldNotGetGp) {
+		// Used for threads without overrides
+		public static final ThreadOverrides NONE = new ThreadOverrides(true, new long[0], new long[0]);
+
+		/**
+		 * Creates an instance from the rows stored for a thread on the database
+		 * @param rows Map that contains the value of should_get_gp for each user ID. User 0 refers to the whole thread.
+		 * @return New instance
+		 */
+		private static ThreadOverrides fromRows(Map<Long, Boolean> rows) {
+			boolean gpEnabled = rows.getOrDefault(0L, true);
+			long[] shouldGetGp = rows.entrySet().stream().filter((e) -> e.getKey() != 0 && e.getValue())
+				.mapToLong(Map.Entry::getKey).sorted().toArray();
+			long[] shouldNotGetGp = rows.entrySet().stream().filter((e) -> e.getKey() != 0 && !e.getValue())
+				.mapToLong(Map.Entry::getKey).sorted().toArray();
+			return new ThreadOverrides(gpEnabled, shouldGetGp, shouldNotGetGp);
+		}
+
+		/**
+		 * Determines if a user should get GP for their messages in the thread. Doesn't take into account whether GP
+		 * is enabled in the thread at all.
+		 * @param userId ID of the user to check
+		 * @param op True if the user is the person who started the thread, false if it's not.
+		 * @return True if the user should get support GP on the thread
+		 */
+		public boolean shouldUserGetGp(long userId, boolean op) {
+			if (Arrays.binarySearch(shouldGetGp, userId) >= 0) {
+				return true;
+			} else if (Arrays.binarySearch(shouldNotGetGp, userId) >= 0) {
+				return false;
+			} else {
+				return !op;
 			}
-		} catch (SQLException e) {
-			throw new DbOperationException(e);
 		}
-		return res;
 	}
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.exceptions;
+
+/**
+ * Thrown when an asynchronous database operation that already started running doesn't complete in time. The
+ * operation keeps running in the background, so it might still complete and apply its changes later. Callers must
+ * not assume that the changes were discarded.
+ */
+public class DbTimeoutException extends DbOperationException {
+	// Message meant to be shown to users
+	public static final String USER_MESSAGE = "The database took too long to respond. The changes might still be " +
+		"applied, please check the result before trying again.";
+
+	public DbTimeoutException(String message) {
+		super(message);
+	}
+}
@@ -76,6 +76,16 @@ public class DelayedInteractionMsgSender extends InteractionMsgSender {
 		return this;
 	}
 
+	/**
+	 * Removes the text, embeds and components set so far. Used to edit a response that was already sent with
+	 * different content.
+	 * @return This
+	 */
+	public DelayedInteractionMsgSender clear() {
+		response.join().setContent("").removeAllEmbeds().removeAllComponents();
+		return this;
+	}
+
 	/**
 	 * Since this class requires that the ephemeral status is set when instantiating it, this method doesn't actually
 	 * change the ephemeral status.
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.singletons;
+
+import org.apache.logging.log4j.Logger;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.server.Ban;
+import org.javacord.api.entity.server.Server;
+import org.skytemple.altaria.definitions.collections.LongHashSet;
+import org.skytemple.altaria.definitions.exceptions.IllegalOperationException;
+import org.skytemple.altaria.utils.Utils;
+
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory list of the users banned from the server, so it can be checked without sending any requests.
+ * The list is downloaded when the bot starts and kept up to date through ban and unban events. Since those might be
+ * missed (eg: during a gateway reconnection), it's also downloaded again every once in a while.
+ */
+public class BanList {
+	// Amount of seconds to wait before trying again if the list cannot be downloaded before it has been loaded
+	private static final long LOAD_RETRY_DELAY = 60;
+
+	private static BanList instance;
+
+	private final ScheduledExecutorService refresher;
+	private final Logger logger;
+
+	// All the fields below are guarded by the instance lock
+	// Null until the list is downloaded for the first time
+	private LongHashSet bannedUsers;
+	// Users banned and unbanned while the list is being downloaded, applied on top of the result. Null if the list
+	// isn't being downloaded.
+	private LongHashSet pendingBans;
+	private LongHashSet pendingUnbans;
+
+	/**
+	 * @param api Discord API
+	 * @param serverId ID of the server whose bans will be tracked
+	 */
+	protected BanList(DiscordApi api, long serverId) {
+		logger = Utils.getLogger(getClass());
+		refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ban-list-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		api.addServerMemberBanListener(event -> {
+			if (event.getServer().getId() == serverId) {
+				onBan(event.getUser().getId());
+			}
+		});
+		api.addServerMemberUnbanListener(event -> {
+			if (event.getServer().getId() == serverId) {
+				onUnban(event.getUser().getId());
+			}
+		});
+	}
+
+	/**
+	 * Initializes the object and starts downloading the ban list in the background. Must be called before any calls
+	 * to the {@link #get()} method happen. Calling this method multiple times has no effect.
+	 * @param api Discord API object, already initialized
+	 * @param server Server whose bans will be tracked
+	 * @param refreshInterval Amount of minutes between two downloads of the list, or 0 to only download it once
+	 */
+	public static synchronized void init(DiscordApi api, Server server, long refreshInterval) {
+		if (instance == null) {
+			instance = new BanList(api, server.getId());
+			instance.refresher.execute(() -> instance.refresh(server));
+			if (refreshInterval > 0) {
+				instance.refresher.scheduleWithFixedDelay(() -> instance.refresh(server),
+					refreshInterval, refreshInterval, TimeUnit.MINUTES);
+			}
+		}
+	}
+
+	/**
+	 * Gets the instance of this object. {@link #init} must be called at least once first.
+	 * @return The object's single instance
+	 */
+	public static BanList get() {
+		if (instance == null) {
+			throw new IllegalOperationException("BanList must be initialized before get() can be called");
+		} else {
+			return instance;
+		}
+	}
+
+	/**
+	 * @return True if the list has been downloaded at least once. If false, {@link #isBanned(long)} always returns
+	 * false.
+	 */
+	public synchronized boolean isLoaded() {
+		return bannedUsers != null;
+	}
+
+	/**
+	 * @param userId User ID
+	 * @return True if the user is currently banned from the server
+	 */
+	public synchronized boolean isBanned(long userId) {
+		return bannedUsers != null && bannedUsers.contains(userId);
+	}
+
+	/**
+	 * @return Amount of users currently banned from the server
+	 */
+	public synchronized int size() {
+		return bannedUsers == null ? 0 : bannedUsers.size();
+	}
+
+	/**
+	 * Downloads the ban list and replaces the current one. If the download fails before the list has been loaded
+	 * for the first time, it's tried again after {@link #LOAD_RETRY_DELAY} seconds.
+	 * @param server Server whose bans are tracked
+	 */
+	private void refresh(Server server) {
+		synchronized (this) {
+			pendingBans = new LongHashSet();
+			pendingUnbans = new LongHashSet();
+		}
+		Set<Ban> bans;
+		try {
+			bans = server.getBans().join();
+		} catch (CompletionException e) {
+			synchronized (this) {
+				pendingBans = null;
+				pendingUnbans = null;
+				if (bannedUsers != null) {
+					logger.warn("Could not refresh the ban list", e);
+					return;
+				}
+			}
+			logger.warn("Could not download the ban list. Retrying in " + LOAD_RETRY_DELAY + " seconds.", e);
+			refresher.schedule(() -> refresh(server), LOAD_RETRY_DELAY, TimeUnit.SECONDS);
+			return;
+		}
+
+		LongHashSet newBannedUsers = new LongHashSet(bans.size());
+		for (Ban ban : bans) {
+			newBannedUsers.add(ban.getUser().getId());
+		}
+		synchronized (this) {
+			// The download might not include changes that happened while it was in progress
+			pendingBans.forEach(newBannedUsers::add);
+			pendingUnbans.forEach(newBannedUsers::remove);
+			bannedUsers = newBannedUsers;
+			pendingBans = null;
+			pendingUnbans = null;
+		}
+		logger.debug("Ban list downloaded: " + newBannedUsers.size() + " banned users.");
+	}
+
+	private synchronized void onBan(long userId) {
+		if (bannedUsers != null) {
+			bannedUsers.add(userId);
+		}
+		if (pendingBans != null) {
+			pendingBans.add(userId);
+			pendingUnbans.remove(userId);
+		}
+	}
+
+	private synchronized void onUnban(long userId) {
+		if (bannedUsers != null) {
+			bannedUsers.remove(userId);
+		}
+		if (pendingUnbans != null) {
+			pendingUnbans.add(userId);
+			pendingBans.remove(userId);
+		}
+	}
+}
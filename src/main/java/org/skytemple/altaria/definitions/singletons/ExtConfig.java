@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -38,13 +38,24 @@ public class ExtConfig {
 	private static final String ENV_DB_USER = "DB_USER";
 	private static final String ENV_DB_PASSWORD = "DB_PASSWORD";
 	private static final String ENV_DB_DATABASE = "DB_DATABASE";
+	private static final String ENV_DB_POOL_SIZE = "DB_POOL_SIZE";
+	private static final String ENV_DB_POOL_IDLE_TIMEOUT = "DB_POOL_IDLE_TIMEOUT";
+	private static final String ENV_DB_FAILURE_THRESHOLD = "DB_FAILURE_THRESHOLD";
+	private static final String ENV_GP_CACHE_SIZE = "GP_CACHE_SIZE";
 	private static final String ENV_SPRITEBOT_GP_COMMANDS = "SPRITEBOT_GP_COMMANDS";
 	private static final String ENV_RULES_CHANNEL_ID = "RULES_CHANNEL_ID";
 	private static final String ENV_RULES_MESSAGE_ID = "RULES_MESSAGE_ID";
 	private static final String ENV_ENABLE_STRIKE_PUNISHMENTS = "ENABLE_STRIKE_PUNISHMENTS";
+	private static final String ENV_STRIKE_PUNISHMENT_FLOOR_MODE = "STRIKE_PUNISHMENT_FLOOR_MODE";
 	private static final String ENV_BAN_CMD_CHANNEL_ID = "BAN_CMD_CHANNEL_ID";
+	private static final String ENV_BAN_LIST_REFRESH_INTERVAL = "BAN_LIST_REFRESH_INTERVAL";
+	private static final String ENV_STRIKE_INDEX_BACKFILL_DAYS = "STRIKE_INDEX_BACKFILL_DAYS";
+	private static final String ENV_STRIKE_SCAN_CONCURRENCY = "STRIKE_SCAN_CONCURRENCY";
 	private static final String ENV_STRIKE_LOG_CHANNEL_ID = "STRIKE_LOG_CHANNEL_ID";
 	private static final String ENV_SUPPORT_CHANNEL_ID = "SUPPORT_CHANNEL_ID";
+	private static final String ENV_SUPPORT_GP_CALC_CONCURRENCY = "SUPPORT_GP_CALC_CONCURRENCY";
+	private static final String ENV_SUPPORT_GP_PRECOMPUTE_INTERVAL = "SUPPORT_GP_PRECOMPUTE_INTERVAL";
+	private static final String ENV_SUPPORT_GP_PRECOMPUTE_DAYS = "SUPPORT_GP_PRECOMPUTE_DAYS";
 	private static final String ENV_FUN_2025_CHANNEL_ID = "FUN_2025_CHANNEL_ID";
 	private static final String ENV_FUN_2025_ROLE_ID = "FUN_2025_ROLE_ID";
 	private static final String ENV_FUN_2025_COOLDOWN = "FUN_2025_COOLDOWN";
@@ -52,6 +63,15 @@ public class ExtConfig {
 	private static final String ENV_VERIFIED_USER_MESSAGE_THRESHOLD = "VERIFIED_USER_MESSAGE_THRESHOLD";
 
 	private static final Level DEFAULT_LOG_LEVEL = Level.INFO;
+	private static final int DEFAULT_DB_POOL_SIZE = 4;
+	private static final long DEFAULT_DB_POOL_IDLE_TIMEOUT = 300;
+	private static final int DEFAULT_DB_FAILURE_THRESHOLD = 3;
+	private static final long DEFAULT_BAN_LIST_REFRESH_INTERVAL = 360;
+	private static final int DEFAULT_STRIKE_SCAN_CONCURRENCY = 4;
+	private static final int DEFAULT_SUPPORT_GP_CALC_CONCURRENCY = 4;
+	private static final long DEFAULT_SUPPORT_GP_PRECOMPUTE_INTERVAL = 60;
+	private static final int DEFAULT_SUPPORT_GP_PRECOMPUTE_DAYS = 31;
+	private static final int DEFAULT_GP_CACHE_SIZE = 4096;
 
 	private static ExtConfig instance;
 
@@ -64,14 +84,25 @@ public class ExtConfig {
 	private String dbUser;
 	private String dbPassword;
 	private String dbDatabase;
+	private Integer dbPoolSize;
+	private Long dbPoolIdleTimeout;
+	private Integer dbFailureThreshold;
+	private Integer gpCacheSize;
+	private Long banListRefreshInterval;
 	private Boolean spritebotGpCommands;
 	private Boolean enableRulesCommand;
 	private Long rulesChannelId;
 	private Long rulesMessageId;
 	private Boolean enableStrikeTimeouts;
+	private Boolean strikePunishmentFloorMode;
 	private Long strikeLogChannelId;
 	private Long banCmdChannelId;
+	private Integer strikeIndexBackfillDays;
+	private Integer strikeScanConcurrency;
 	private Long supportChannelId;
+	private Integer supportGpCalcConcurrency;
+	private Long supportGpPrecomputeInterval;
+	private Integer supportGpPrecomputeDays;
 	private Boolean enableFun2025;
 	private Long fun2025ChannelId;
 	private Long fun2025RoleId;
@@ -89,13 +120,24 @@ public class ExtConfig {
 		dbUser = null;
 		dbPassword = null;
 		dbDatabase = null;
+		dbPoolSize = null;
+		dbPoolIdleTimeout = null;
+		dbFailureThreshold = null;
+		gpCacheSize = null;
+		banListRefreshInterval = null;
 		spritebotGpCommands = null;
 		enableRulesCommand = null;
 		rulesMessageId = null;
 		rulesChannelId = null;
 		enableStrikeTimeouts = null;
+		strikePunishmentFloorMode = null;
 		strikeLogChannelId = null;
+		strikeIndexBackfillDays = null;
+		strikeScanConcurrency = null;
 		supportChannelId = null;
+		supportGpCalcConcurrency = null;
+		supportGpPrecomputeInterval = null;
+		supportGpPrecomputeDays = null;
 		enableFun2025 = null;
 		fun2025ChannelId = null;
 		fun2025RoleId = null;
@@ -238,6 +280,85 @@ public class ExtConfig {
 		return dbDatabase;
 	}
 
+	/**
+	 * Returns the maximum amount of database connections that can be open at the same time. If no value has been
+	 * specified, returns {@link #DEFAULT_DB_POOL_SIZE}.
+	 * @return Size of the database connection pool
+	 */
+	public int getDbPoolSize() {
+		if (dbPoolSize == null) {
+			dbPoolSize = Env.getInt(ENV_DB_POOL_SIZE).orElse(DEFAULT_DB_POOL_SIZE);
+			if (dbPoolSize <= 0) {
+				throw new FatalErrorException("The value of the " + ENV_DB_POOL_SIZE + " environment variable must " +
+					"be greater than 0.");
+			}
+		}
+		return dbPoolSize;
+	}
+
+	/**
+	 * Returns the amount of seconds a database connection can stay unused before being closed. If no value has been
+	 * specified, returns {@link #DEFAULT_DB_POOL_IDLE_TIMEOUT}.
+	 * @return Idle timeout for pooled database connections, in seconds
+	 */
+	public long getDbPoolIdleTimeout() {
+		if (dbPoolIdleTimeout == null) {
+			dbPoolIdleTimeout = Env.getLong(ENV_DB_POOL_IDLE_TIMEOUT).orElse(DEFAULT_DB_POOL_IDLE_TIMEOUT);
+		}
+		return dbPoolIdleTimeout;
+	}
+
+	/**
+	 * Returns the amount of consecutive failed attempts to reach the database after which database operations will
+	 * be rejected until it's reachable again. If no value has been specified, returns
+	 * {@link #DEFAULT_DB_FAILURE_THRESHOLD}.
+	 * @return Database failure threshold
+	 */
+	public int getDbFailureThreshold() {
+		if (dbFailureThreshold == null) {
+			dbFailureThreshold = Env.getInt(ENV_DB_FAILURE_THRESHOLD).orElse(DEFAULT_DB_FAILURE_THRESHOLD);
+			if (dbFailureThreshold <= 0) {
+				throw new FatalErrorException("The value of the " + ENV_DB_FAILURE_THRESHOLD + " environment variable " +
+					"must be greater than 0.");
+			}
+		}
+		return dbFailureThreshold;
+	}
+
+	/**
+	 * Returns the maximum amount of user GP balances to keep in memory. If no value has been specified, returns
+	 * {@link #DEFAULT_GP_CACHE_SIZE}.
+	 * @return Size of the GP cache, or 0 if GP balances should not be cached.
+	 */
+	public int getGpCacheSize() {
+		if (gpCacheSize == null) {
+			gpCacheSize = Env.getInt(ENV_GP_CACHE_SIZE).orElse(DEFAULT_GP_CACHE_SIZE);
+			if (gpCacheSize < 0) {
+				throw new FatalErrorException("The value of the " + ENV_GP_CACHE_SIZE + " environment variable cannot " +
+					"be negative.");
+			}
+		}
+		return gpCacheSize;
+	}
+
+	/**
+	 * Returns the amount of minutes between two full refreshes of the in-memory list of banned users. 0 means the
+	 * list is only kept up to date through ban events. If no value has been specified, returns
+	 * {@link #DEFAULT_BAN_LIST_REFRESH_INTERVAL}.
+	 * @return Ban list refresh interval, in minutes
+	 */
+	public long getBanListRefreshInterval() {
+		if (banListRefreshInterval == null) {
+			banListRefreshInterval = Env.getLong(ENV_BAN_LIST_REFRESH_INTERVAL)
+				.orElse(DEFAULT_BAN_LIST_REFRESH_INTERVAL);
+			if (banListRefreshInterval < 0) {
+				throw new FatalErrorException("The value of the " + ENV_BAN_LIST_REFRESH_INTERVAL + " environment " +
+					"variable cannot be negative.");
+			}
+		}
+		return banListRefreshInterval;
+	}
+
 	/**
 	 * @return True if the bot should listen for SpriteBot reputation commands and respond to them
 	 */
@@ -283,6 +404,25 @@ public class ExtConfig {
 		return enableStrikeTimeouts;
 	}
 
+	/**
+	 * @return True if a user whose strike count skips over the amount of strikes required for a punishment should
+	 * still receive the highest punishment they reached. False if only the punishment set for their exact strike count
+	 * should be applied. Defaults to false.
+	 */
+	public boolean strikePunishmentFloorModeEnabled() {
+		if (strikePunishmentFloorMode == null) {
+			strikePunishmentFloorMode = Env.getBoolean(ENV_STRIKE_PUNISHMENT_FLOOR_MODE).orElse(false);
+		}
+		return strikePunishmentFloorMode;
+	}
+
+	/**
+	 * @return True if the ID of the channel where Vortex's strike messages are posted has been specified
+	 */
+	public boolean hasStrikeLogChannelId() {
+		return strikeLogChannelId != null || Env.getLong(ENV_STRIKE_LOG_CHANNEL_ID).isPresent();
+	}
+
 	/**
 	 * @return ID of the channel where strikes are posted
 	 */
@@ -305,6 +445,38 @@ public class ExtConfig {
 		return banCmdChannelId;
 	}
 
+	/**
+	 * Returns how far back the strike log channel is read the first time the strike index is built, in days.
+	 * If no value has been specified, returns 0.
+	 * @return Strike index backfill period, in days. 0 if the whole channel should be read.
+	 */
+	public int getStrikeIndexBackfillDays() {
+		if (strikeIndexBackfillDays == null) {
+			strikeIndexBackfillDays = Env.getInt(ENV_STRIKE_INDEX_BACKFILL_DAYS).orElse(0);
+			if (strikeIndexBackfillDays < 0) {
+				throw new FatalErrorException("The value of the " + ENV_STRIKE_INDEX_BACKFILL_DAYS + " environment " +
+					"variable cannot be negative.");
+			}
+		}
+		return strikeIndexBackfillDays;
+	}
+
+	/**
+	 * Returns the maximum amount of parts of the strike log channel that can be read at the same time when the whole
+	 * channel is read. If no value has been specified, returns {@link #DEFAULT_STRIKE_SCAN_CONCURRENCY}.
+	 * @return Strike log scan concurrency. 1 if the channel should be read sequentially.
+	 */
+	public int getStrikeScanConcurrency() {
+		if (strikeScanConcurrency == null) {
+			strikeScanConcurrency = Env.getInt(ENV_STRIKE_SCAN_CONCURRENCY).orElse(DEFAULT_STRIKE_SCAN_CONCURRENCY);
+			if (strikeScanConcurrency <= 0) {
+				throw new FatalErrorException("The value of the " + ENV_STRIKE_SCAN_CONCURRENCY + " environment " +
+					"variable must be greater than 0.");
+			}
+		}
+		return strikeScanConcurrency;
+	}
+
 	/**
 	 * @return ID of the channel where Guild Points are awarded for contributing
 	 */
@@ -316,6 +488,57 @@ public class ExtConfig {
 		return supportChannelId;
 	}
 
+	/**
+	 * Returns the maximum amount of support threads whose messages can be retrieved at the same time when calculating
+	 * support GP. If no value has been specified, returns {@link #DEFAULT_SUPPORT_GP_CALC_CONCURRENCY}.
+	 * @return Support GP calculation concurrency
+	 */
+	public int getSupportGpCalcConcurrency() {
+		if (supportGpCalcConcurrency == null) {
+			supportGpCalcConcurrency = Env.getInt(ENV_SUPPORT_GP_CALC_CONCURRENCY)
+				.orElse(DEFAULT_SUPPORT_GP_CALC_CONCURRENCY);
+			if (supportGpCalcConcurrency <= 0) {
+				throw new FatalErrorException("The value of the " + ENV_SUPPORT_GP_CALC_CONCURRENCY + " environment " +
+					"variable must be greater than 0.");
+			}
+		}
+		return supportGpCalcConcurrency;
+	}
+
+	/**
+	 * Returns the amount of minutes between two runs of the background task that precomputes support GP. 0 means
+	 * the task is disabled. If no value has been specified, returns {@link #DEFAULT_SUPPORT_GP_PRECOMPUTE_INTERVAL}.
+	 * @return Support GP precomputation interval, in minutes
+	 */
+	public long getSupportGpPrecomputeInterval() {
+		if (supportGpPrecomputeInterval == null) {
+			supportGpPrecomputeInterval = Env.getLong(ENV_SUPPORT_GP_PRECOMPUTE_INTERVAL)
+				.orElse(DEFAULT_SUPPORT_GP_PRECOMPUTE_INTERVAL);
+			if (supportGpPrecomputeInterval < 0) {
+				throw new FatalErrorException("The value of the " + ENV_SUPPORT_GP_PRECOMPUTE_INTERVAL + " " +
+					"environment variable cannot be negative.");
+			}
+		}
+		return supportGpPrecomputeInterval;
+	}
+
+	/**
+	 * Returns the length of the rolling period covered by the background task that precomputes support GP, in days.
+	 * If no value has been specified, returns {@link #DEFAULT_SUPPORT_GP_PRECOMPUTE_DAYS}.
+	 * @return Support GP precomputation period, in days
+	 */
+	public int getSupportGpPrecomputeDays() {
+		if (supportGpPrecomputeDays == null) {
+			supportGpPrecomputeDays = Env.getInt(ENV_SUPPORT_GP_PRECOMPUTE_DAYS)
+				.orElse(DEFAULT_SUPPORT_GP_PRECOMPUTE_DAYS);
+			if (supportGpPrecomputeDays <= 0) {
+				throw new FatalErrorException("The value of the " + ENV_SUPPORT_GP_PRECOMPUTE_DAYS + " environment " +
+					"variable must be greater than 0.");
+			}
+		}
+		return supportGpPrecomputeDays;
+	}
+
 	/**
 	 * @return ID of the channel used for the Fun 2025 event, or null if it's not set
 	 */
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.vortex;
+
+import java.util.Set;
+
+/**
+ * Parses Vortex moderation log messages that change the amount of strikes of a user. Example:
+ * <pre>
+ * `[12:34:56]` `[42]` :triangular_flag_on_post: **Moderator**#1234 gave `2` strikes `[1 → 3]` to **User** (ID:1234)
+ * `[ Reason ]` Spamming
+ * </pre>
+ * Punishments issued automatically when a user reaches a certain amount of strikes (kicks, mutes and bans) are also
+ * parsed. Their strike change is usually included in the reason, as "[3 → 4 strikes]".
+ * The message is read in a single pass, locating each part from the end of the previous one instead of matching
+ * separate patterns over the whole text. Messages that don't contain a user ID and a strike change are rejected
+ * right away. The user ID is the one that follows the username, even if the moderator's name also contains
+ * "(ID:".
+ */
+public class VortexMessageParser {
+	private static final String ID_PREFIX = "(ID:";
+	@SuppressWarnings("UnnecessaryUnicodeEscape") // Doesn't work otherwise
+	private static final char ARROW = '\u2192';
+	private static final String STRIKES_SUFFIX = "` strikes `[";
+	private static final String TO_USER = "]` to **";
+	private static final String FROM_USER = "]` from **";
+	private static final String REASON_PREFIX = "`[ Reason ]` ";
+	private static final String ACTION_GAVE = "gave";
+	private static final String ACTION_PARDONED = "pardoned";
+	private static final Set<String> OTHER_ACTIONS = Set.of("kicked", "tempmuted", "muted", "tempbanned", "banned");
+
+	/**
+	 * Given the content of a Vortex moderation log message, returns relevant information about it.
+	 * @param message Message to parse
+	 * @return Information contained in the message, or null if it's not a message that changes the amount of strikes
+	 * of a user.
+	 */
+	public static VortexMessage parse(String message) {
+		// Fast reject
+		int firstId = message.indexOf(ID_PREFIX);
+		if (firstId < 0 || message.indexOf(ARROW) < 0) {
+			return null;
+		}
+
+		// Header line: **Moderator**#1234 <action> [`n` strikes `[...]` to/from ]**User**#1234 (ID:1234)
+		int headerEnd = lineEnd(message, firstId);
+		int pos = message.indexOf("**", lineStart(message, firstId));
+		if (pos < 0 || pos > headerEnd) {
+			return null;
+		}
+		int moderatorStart = pos + 2;
+		int moderatorEnd = message.indexOf("**", moderatorStart);
+		if (moderatorEnd <= moderatorStart || moderatorEnd > headerEnd) {
+			return null;
+		}
+		pos = skipDiscriminator(message, moderatorEnd + 2);
+		if (pos >= headerEnd || message.charAt(pos) != ' ') {
+			return null;
+		}
+		int actionStart = pos + 1;
+		int actionEnd = message.indexOf(' ', actionStart);
+		if (actionEnd < 0 || actionEnd > headerEnd) {
+			return null;
+		}
+		String action = message.substring(actionStart, actionEnd);
+		pos = actionEnd + 1;
+
+		int amount = 0;
+		if (action.equals(ACTION_GAVE) || action.equals(ACTION_PARDONED)) {
+			if (pos >= headerEnd || message.charAt(pos) != '`') {
+				return null;
+			}
+			int amountEnd = skipDigits(message, pos + 1);
+			if (amountEnd == pos + 1 || !message.startsWith(STRIKES_SUFFIX, amountEnd)) {
+				return null;
+			}
+			try {
+				amount = Integer.parseInt(message, pos + 1, amountEnd, 10);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			int bracketStart = amountEnd + STRIKES_SUFFIX.length();
+			int toUser = indexBefore(message, TO_USER, bracketStart + 1, headerEnd);
+			int fromUser = indexBefore(message, FROM_USER, bracketStart + 1, headerEnd);
+			if (toUser >= 0 && (fromUser < 0 || toUser < fromUser)) {
+				pos = toUser + TO_USER.length();
+			} else if (fromUser >= 0) {
+				pos = fromUser + FROM_USER.length();
+			} else {
+				return null;
+			}
+		} else if (OTHER_ACTIONS.contains(action)) {
+			if (!message.startsWith("**", pos)) {
+				return null;
+			}
+			pos += 2;
+		} else {
+			return null;
+		}
+
+		// The username is followed by "**", an optional discriminator, a space and the user ID
+		int usernameStart = pos;
+		int usernameEnd = -1;
+		int idDigitsStart = -1;
+		int idEnd = -1;
+		for (int idStart = message.indexOf(ID_PREFIX, usernameStart); idStart >= 0 && idStart < headerEnd;
+			idStart = message.indexOf(ID_PREFIX, idStart + 1)) {
+			usernameEnd = findUsernameEnd(message, usernameStart, idStart);
+			idDigitsStart = idStart + ID_PREFIX.length();
+			idEnd = skipDigits(message, idDigitsStart);
+			if (usernameEnd >= 0 && idEnd > idDigitsStart && idEnd < message.length() && message.charAt(idEnd) == ')') {
+				break;
+			}
+			usernameEnd = -1;
+		}
+		if (usernameEnd < 0) {
+			return null;
+		}
+		long userId;
+		try {
+			userId = Long.parseLong(message, idDigitsStart, idEnd, 10);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+
+		StrikeChange strikeChange = findStrikeChange(message);
+		if (strikeChange == null) {
+			return null;
+		}
+
+		String reason = null;
+		int reasonStart = message.indexOf(REASON_PREFIX, idEnd);
+		if (reasonStart >= 0) {
+			reasonStart += REASON_PREFIX.length();
+			reason = message.substring(reasonStart, lineEnd(message, reasonStart));
+		}
+
+		return new VortexMessage(message.substring(moderatorStart, moderatorEnd), action,
+			message.substring(usernameStart, usernameEnd), userId, amount, strikeChange.oldNumStrikes,
+			strikeChange.newNumStrikes, strikeChange.alternativeFormat, reason);
+	}
+
+	/**
+	 * @param message A message
+	 * @param usernameStart Position where the username starts
+	 * @param idStart Position of the "(ID:" that follows the username
+	 * @return Position of the "**" that closes the username, or -1 if it's not followed by "**", an optional
+	 * discriminator and a space.
+	 */
+	private static int findUsernameEnd(String message, int usernameStart, int idStart) {
+		int end = idStart - 1;
+		if (end < usernameStart || message.charAt(end) != ' ') {
+			return -1;
+		}
+		int discriminatorStart = end;
+		while (discriminatorStart > usernameStart && isDigit(message.charAt(discriminatorStart - 1))) {
+			discriminatorStart--;
+		}
+		if (discriminatorStart < end && discriminatorStart > usernameStart &&
+			message.charAt(discriminatorStart - 1) == '#') {
+			end = discriminatorStart - 1;
+		}
+		end -= 2;
+		if (end <= usernameStart || !message.startsWith("**", end)) {
+			return -1;
+		}
+		return end;
+	}
+
+	/**
+	 * Finds the strike change in a message. The "`[1 → 2]`" format takes priority over the "[1 → 2 strikes]" one,
+	 * even if it appears later.
+	 * @param message Message to search
+	 * @return First strike change found, or null if there's none
+	 */
+	private static StrikeChange findStrikeChange(String message) {
+		StrikeChange alternative = null;
+		for (int arrow = message.indexOf(ARROW); arrow >= 0; arrow = message.indexOf(ARROW, arrow + 1)) {
+			// "[<old> → <new>"
+			if (arrow < 1 || message.charAt(arrow - 1) != ' ' || arrow + 1 >= message.length() ||
+				message.charAt(arrow + 1) != ' ') {
+				continue;
+			}
+			int oldEnd = arrow - 1;
+			int oldStart = oldEnd;
+			while (oldStart > 0 && isDigit(message.charAt(oldStart - 1))) {
+				oldStart--;
+			}
+			if (oldStart == oldEnd || oldStart == 0 || message.charAt(oldStart - 1) != '[') {
+				continue;
+			}
+			int newStart = arrow + 2;
+			int newEnd = skipDigits(message, newStart);
+			if (newEnd == newStart) {
+				continue;
+			}
+
+			boolean backticks = oldStart >= 2 && message.charAt(oldStart - 2) == '`' &&
+				message.startsWith("]`", newEnd);
+			if (!backticks && (alternative != null || !message.startsWith(" strikes]", newEnd))) {
+				continue;
+			}
+			StrikeChange strikeChange;
+			try {
+				strikeChange = new StrikeChange(Integer.parseInt(message, oldStart, oldEnd, 10),
+					Integer.parseInt(message, newStart, newEnd, 10), !backticks);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			if (backticks) {
+				return strikeChange;
+			}
+			alternative = strikeChange;
+		}
+		return alternative;
+	}
+
+	/**
+	 * @param message A message
+	 * @param pos Position within the message
+	 * @return Position after the "#1234" discriminator that starts at the given position, or the position itself if
+	 * there's none.
+	 */
+	private static int skipDiscriminator(String message, int pos) {
+		if (pos < message.length() && message.charAt(pos) == '#') {
+			int end = skipDigits(message, pos + 1);
+			if (end > pos + 1) {
+				return end;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * @param message A message
+	 * @param pos Position within the message
+	 * @return Position of the first character at or after the given position that is not an ASCII digit
+	 */
+	private static int skipDigits(String message, int pos) {
+		while (pos < message.length() && isDigit(message.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * @return Position of the first occurrence of a string that starts at or after {@code from} and ends before
+	 * {@code to}, or -1 if there's none.
+	 */
+	private static int indexBefore(String message, String str, int from, int to) {
+		int index = message.indexOf(str, from);
+		return index >= 0 && index + str.length() <= to ? index : -1;
+	}
+
+	/**
+	 * @return Position where the line that contains the given position starts
+	 */
+	private static int lineStart(String message, int pos) {
+		while (pos > 0 && !isLineTerminator(message.charAt(pos - 1))) {
+			pos--;
+		}
+		return pos;
+	}
+
+	/**
+	 * @return Position where the line that contains the given position ends
+	 */
+	private static int lineEnd(String message, int pos) {
+		while (pos < message.length() && !isLineTerminator(message.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private record StrikeChange(int oldNumStrikes, int newNumStrikes, boolean alternativeFormat) {}
+
+	/**
+	 * Information contained in a Vortex message that changes the amount of strikes of a user
+	 * @param moderator Name of the moderator who issued the punishment
+	 * @param action Action performed ("gave", "pardoned", "kicked", "tempmuted", "muted", "tempbanned" or "banned")
+	 * @param username Name of the punished user
+	 * @param userId ID of the punished user
+	 * @param amount Amount of strikes given or pardoned. 0 for other actions.
+	 * @param oldNumStrikes Amount of strikes the user had before the punishment
+	 * @param newNumStrikes Amount of strikes the user has after the punishment
+	 * @param alternativeStrikeChange True if the strike change was read from the "[1 → 2 strikes]" format instead of
+	 * the "`[1 → 2]`" one
+	 * @param reason Reason of the punishment, or null if the message doesn't include one
+	 */
+	public record VortexMessage(String moderator, String action, String username, long userId, int amount,
+		int oldNumStrikes, int newNumStrikes, boolean alternativeStrikeChange, String reason) {}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -32,7 +32,6 @@ import org.skytemple.altaria.definitions.db.AutoPunishmentDB;
 import org.skytemple.altaria.definitions.db.Database;
 import org.skytemple.altaria.definitions.enums.PunishmentAction;
 import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.ChannelMsgSender;
 import org.skytemple.altaria.definitions.senders.ImmediateInteractionMsgSender;
 import org.skytemple.altaria.definitions.singletons.ApiGetter;
@@ -145,13 +144,8 @@ public class AutoPunishment {
 			event.getChannel().getId() == extConfig.getStrikeLogChannelId()) {
 			VortexStrikeParser.Strike strike = VortexStrikeParser.parse(messageStr);
 			if (strike != null) {
-				Punishment punishment;
-				try {
-					punishment = db.get(strike.newNumStrikes());
-				} catch (DbOperationException e) {
-					new ErrorHandler(e).printToErrorChannel().run();
-					return;
-				}
+				Punishment punishment = db.getForStrikeChange(strike.oldNumStrikes(), strike.newNumStrikes(),
+					extConfig.strikePunishmentFloorModeEnabled());
 				@SuppressWarnings("UnnecessaryUnicodeEscape") // Doesn't get displayed properly otherwise
 				String reasonMsg = "[" + strike.oldNumStrikes() + " \u2192 " + strike.newNumStrikes() + " strikes]: " +
 					strike.reason();
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -22,7 +22,6 @@ import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.Punishment;
 import org.skytemple.altaria.definitions.db.AutoPunishmentDB;
 import org.skytemple.altaria.definitions.enums.PunishmentAction;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 
 import java.time.Duration;
@@ -47,16 +46,18 @@ public class PunishmentCommand implements Command {
 
 	@Override
 	public void run() {
-		try {
-			db.set(strikes, new Punishment(action, duration));
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-			return;
-		}
-		if (action == PunishmentAction.NONE) {
-			resultSender.send("No action will be taken on " + strikes + " strikes.");
-		} else {
-			resultSender.send("Members will now be " + action.getPastTense() + " upon reaching " + strikes + " strikes.");
-		}
+		db.setAsync(strikes, new Punishment(action, duration))
+			.thenRun(() -> {
+				if (action == PunishmentAction.NONE) {
+					resultSender.send("No action will be taken on " + strikes + " strikes.");
+				} else {
+					resultSender.send("Members will now be " + action.getPastTense() + " upon reaching " + strikes +
+						" strikes.");
+				}
+			})
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -19,9 +19,7 @@ package org.skytemple.altaria.features.auto_punishment;
 
 import org.javacord.api.entity.message.embed.EmbedBuilder;
 import org.skytemple.altaria.definitions.Command;
-import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.db.AutoPunishmentDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 
 import java.util.List;
@@ -39,24 +37,20 @@ public class PunishmentsCommand implements Command {
 
 	@Override
 	public void run() {
-		try {
-			List<AutoPunishmentDB.StrikesAndPunishment> punishments = db.getAll();
-			StringBuilder descriptionBuilder = new StringBuilder();
-			for (int i = 0; i < punishments.size(); i++) {
-				AutoPunishmentDB.StrikesAndPunishment entry = punishments.get(i);
-				// \uD83D\uDEA9 = 🚩
-				descriptionBuilder.append("`").append(entry.strikes()).append(" \uD83D\uDEA9`: ")
-					.append(entry.punishment().toString());
-				if (i < punishments.size() - 1) {
-					descriptionBuilder.append("\n");
-				}
+		List<AutoPunishmentDB.StrikesAndPunishment> punishments = db.getAll();
+		StringBuilder descriptionBuilder = new StringBuilder();
+		for (int i = 0; i < punishments.size(); i++) {
+			AutoPunishmentDB.StrikesAndPunishment entry = punishments.get(i);
+			// \uD83D\uDEA9 = 🚩
+			descriptionBuilder.append("`").append(entry.strikes()).append(" \uD83D\uDEA9`: ")
+				.append(entry.punishment().toString());
+			if (i < punishments.size() - 1) {
+				descriptionBuilder.append("\n");
 			}
-			EmbedBuilder embed = new EmbedBuilder()
-				.setTitle("Strike punishments")
-				.setDescription(descriptionBuilder.toString());
-			resultSender.addEmbed(embed).send();
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
 		}
+		EmbedBuilder embed = new EmbedBuilder()
+			.setTitle("Strike punishments")
+			.setDescription(descriptionBuilder.toString());
+		resultSender.addEmbed(embed).send();
 	}
 }
@@ -28,9 +28,7 @@ import org.javacord.api.event.interaction.MessageComponentCreateEvent;
 import org.javacord.api.event.interaction.SlashCommandCreateEvent;
 import org.javacord.api.interaction.*;
 import org.skytemple.altaria.definitions.*;
-import org.skytemple.altaria.definitions.db.Database;
 import org.skytemple.altaria.definitions.db.ReputationDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.role_matcher.RoleMatch;
 import org.skytemple.altaria.definitions.role_matcher.RoleMatcher;
 import org.skytemple.altaria.definitions.senders.DelayedInteractionMsgSender;
@@ -44,8 +42,7 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Random;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -70,9 +67,9 @@ public class Fun2026 {
 	private final CommandCooldown commandCooldown;
 	private final Random random;
 
-	public Fun2026(Database db, CommandCreator commandCreator) {
+	public Fun2026(ReputationDB rdb, CommandCreator commandCreator) {
 		api = ApiGetter.get();
-		rdb = new ReputationDB(db);
+		this.rdb = rdb;
 		selfUser = api.getYourself();
 
 		recolorCosts = new RoleRecolorCosts(DEFAULT_COST_HALF_LIFE_MINUTES);
@@ -271,65 +268,71 @@ public class Fun2026 {
 			Role roleToUpdate = recolorAction.roleToUpdate;
 			int cost = recolorCosts.getCost(roleToUpdate.getId());
 
-			int userGP;
-			try {
-				userGP = rdb.getPointsInt(cmdUserId);
-			} catch (DbOperationException e) {
-				new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
-				return;
-			}
-
-			// Cost might have changed since the command was run, check again
-			if (userGP < cost) {
-				sender.setEphemeral()
-					.send("Recoloring the **" + roleToUpdate.getName() + "** role currently requires " + cost +
-						" GP, but you only have " + userGP + ".\n" +
-						"Cost will decrease over time if no one recolors the role, so try again later!");
-				return;
-			}
-
-			// Recolor role
-			try {
-				roleToUpdate.updateColor(recolorAction.color).join();
-			} catch (CancellationException | CompletionException e) {
-				new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
-				return;
-			}
-
-			// Update cost
-			recolorCosts.setCost(roleToUpdate.getId(), cost + 1);
-			// Update cooldown
-			commandCooldown.setCooldown(cmdUserId, COMMAND_COOLDOWN_SECONDS);
-
-			// Update user GP
-			try {
-				rdb.addPoints(cmdUserId, cost * -1);
-			} catch (DbOperationException e) {
-				new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
-				// The role still got recolored, but whatever
-				return;
-			}
+			rdb.getPointsIntAsync(cmdUserId)
+				.thenCompose(userGP -> {
+					// Cost might have changed since the command was run, check again
+					if (userGP < cost) {
+						sender.setEphemeral()
+							.send("Recoloring the **" + roleToUpdate.getName() + "** role currently requires " + cost +
+								" GP, but you only have " + userGP + ".\n" +
+								"Cost will decrease over time if no one recolors the role, so try again later!");
+						return CompletableFuture.completedFuture(false);
+					}
+					// Recolor role
+					return roleToUpdate.updateColor(recolorAction.color).thenApply(v -> true);
+				})
+				.thenCompose(recolored -> {
+					if (!recolored) {
+						return CompletableFuture.completedFuture(false);
+					}
+					// Update cost
+					recolorCosts.setCost(roleToUpdate.getId(), cost + 1);
+					// Update cooldown
+					commandCooldown.setCooldown(cmdUserId, COMMAND_COOLDOWN_SECONDS);
+					// Update user GP. If this fails, the role still got recolored, but whatever.
+					return rdb.addPointsAsync(cmdUserId, cost * -1).thenApply(newPoints -> true);
+				})
+				.thenAccept(recolored -> {
+					if (recolored) {
+						sendRecolorMessage(sender, cmdUserId, recolorAction, cost);
+					}
+				})
+				.exceptionally(e -> {
+					new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
+					return null;
+				});
+		}
+	}
 
-			EmbedBuilder embed = new EmbedBuilder();
-			if (recolorAction.color.equals(new Color(0, 0, 0))) {
-				embed.setDescription("<@" + cmdUserId + "> cleared the color of the <@&" + roleToUpdate.getId() + "> " +
-					"role!");
-			} else if (recolorAction.roleCopiedFrom == null) {
-				String colorHex = String.format("#%06X", recolorAction.color.getRGB() & 0xFFFFFF);
-				embed.setDescription("<@" + cmdUserId + "> changed the color of the <@&" + roleToUpdate.getId() + "> " +
-					"role to " + colorHex + "!");
-				embed.setColor(recolorAction.color);
-			} else {
-				embed.setDescription("<@" + cmdUserId + "> changed the color of the <@&" + roleToUpdate.getId() + "> " +
-					"role to match the <@&" + recolorAction.roleCopiedFrom.getId() + "> role!");
-				embed.setColor(recolorAction.color);
-			}
+	/**
+	 * Publicly announces that a role has been recolored
+	 * @param sender Used to send the message
+	 * @param cmdUserId User who recolored the role
+	 * @param recolorAction Recolor action that was performed
+	 * @param cost Amount of GP spent on the recolor
+	 */
+	private void sendRecolorMessage(ImmediateInteractionMsgSender sender, long cmdUserId,
+		RecolorButtonAction recolorAction, int cost) {
+		Role roleToUpdate = recolorAction.roleToUpdate;
+		EmbedBuilder embed = new EmbedBuilder();
+		if (recolorAction.color.equals(new Color(0, 0, 0))) {
+			embed.setDescription("<@" + cmdUserId + "> cleared the color of the <@&" + roleToUpdate.getId() + "> " +
+				"role!");
+		} else if (recolorAction.roleCopiedFrom == null) {
+			String colorHex = String.format("#%06X", recolorAction.color.getRGB() & 0xFFFFFF);
+			embed.setDescription("<@" + cmdUserId + "> changed the color of the <@&" + roleToUpdate.getId() + "> " +
+				"role to " + colorHex + "!");
+			embed.setColor(recolorAction.color);
+		} else {
+			embed.setDescription("<@" + cmdUserId + "> changed the color of the <@&" + roleToUpdate.getId() + "> " +
+				"role to match the <@&" + recolorAction.roleCopiedFrom.getId() + "> role!");
+			embed.setColor(recolorAction.color);
+		}
 
-			if (cost > 0) {
-				embed.setFooter("Cost: " + cost + " GP");
-			}
-			sender.addEmbed(embed).send();
+		if (cost > 0) {
+			embed.setFooter("Cost: " + cost + " GP");
 		}
+		sender.addEmbed(embed).send();
 	}
 
 	private boolean isColorAllowed(Color color) {
@@ -25,7 +25,6 @@ import org.skytemple.altaria.definitions.ButtonActionList;
 import org.skytemple.altaria.definitions.Command;
 import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.db.ReputationDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.InteractionMsgSender;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 
@@ -81,14 +80,19 @@ public class RoleColorCommand implements Command {
 
 	@Override
 	public void run() {
-		int userGP;
-		try {
-			userGP = rdb.getPointsInt(user.getId());
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-			return;
-		}
+		rdb.getPointsIntAsync(user.getId())
+			.thenAccept(this::showRecolorMenu)
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
+	}
 
+	/**
+	 * Shows the button used to confirm the recolor, unless the user can't afford it or the role can't be recolored
+	 * @param userGP Amount of GP the user has
+	 */
+	private void showRecolorMenu(int userGP) {
 		if (userGP < displayCost) {
 			resultSender.setEphemeral()
 				.send("Recoloring the **" + roleToUpdate.getName() + "** role currently requires " + displayCost +
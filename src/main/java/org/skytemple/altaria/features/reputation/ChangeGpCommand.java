@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -21,7 +21,6 @@ import org.javacord.api.entity.user.User;
 import org.skytemple.altaria.definitions.Command;
 import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.db.ReputationDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 import org.skytemple.altaria.utils.Utils;
 
@@ -54,25 +53,26 @@ public class ChangeGpCommand implements Command {
 
 	@Override
 	public void run() {
-		try {
-			rdb.addPoints(user.getId(), amount);
-			sendResultMessage(resultSender);
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-		}
+		rdb.addPointsAsync(user.getId(), amount)
+			.thenAccept(newPoints -> sendResultMessage(resultSender, newPoints))
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
 	}
 
 	/**
 	 * Sends a public result message showing how many points the user got or lost.
 	 * @param sender Used to send the result message
+	 * @param newPoints Amount of points the user has after the change
 	 */
-	protected void sendResultMessage(MessageSender sender) throws DbOperationException {
+	protected void sendResultMessage(MessageSender sender, double newPoints) {
 		String msg;
 		if (amount >= 0) {
 			msg = "Gave " + Utils.gpAmountToString(amount, RESULT_MSG_ROUND_DECIMALS) + " Guild Point(s) to ";
 		} else {
 			msg = "Took " + Utils.gpAmountToString(amount * -1, RESULT_MSG_ROUND_DECIMALS) + " Guild Point(s) from ";
 		}
-		sender.send(msg + "**" + user.getName() + "** (current: " + rdb.getPointsInt(user.getId()) + ").");
+		sender.send(msg + "**" + user.getName() + "** (current: " + Utils.doubleToInt(newPoints) + ").");
 	}
 }
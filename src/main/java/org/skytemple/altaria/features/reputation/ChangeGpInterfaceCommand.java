@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -20,7 +20,7 @@ package org.skytemple.altaria.features.reputation;
 import org.javacord.api.entity.user.User;
 import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.db.ReputationDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbTimeoutException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 import org.skytemple.altaria.utils.DiscordUtils;
 
@@ -46,13 +46,19 @@ public class ChangeGpInterfaceCommand extends ChangeGpCommand {
 
 	@Override
 	public void run() {
-		try {
-			rdb.addPoints(user.getId(), amount);
-			sendResultMessage(publicResultSender);
-			DiscordUtils.sendJsonResult(privateResultSender, true, "See channel");
-		} catch (DbOperationException e) {
-			DiscordUtils.sendJsonResult(privateResultSender, false, "Error trying to run the command");
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-		}
+		rdb.addPointsAsync(user.getId(), amount)
+			.thenAccept(newPoints -> {
+				sendResultMessage(publicResultSender, newPoints);
+				DiscordUtils.sendJsonResult(privateResultSender, true, "See channel");
+			})
+			.exceptionally(e -> {
+				if (e.getCause() instanceof DbTimeoutException) {
+					DiscordUtils.sendJsonResult(privateResultSender, false, "Timed out, the GP might still be changed");
+				} else {
+					DiscordUtils.sendJsonResult(privateResultSender, false, "Error trying to run the command");
+				}
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
 	}
 }
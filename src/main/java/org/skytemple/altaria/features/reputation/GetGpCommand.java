@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -21,8 +21,8 @@ import org.javacord.api.entity.user.User;
 import org.skytemple.altaria.definitions.Command;
 import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.db.ReputationDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
+import org.skytemple.altaria.utils.Utils;
 
 public class GetGpCommand implements Command {
 	protected ReputationDB rdb;
@@ -46,11 +46,18 @@ public class GetGpCommand implements Command {
 
 	@Override
 	public void run() {
-		try {
-			int amount = rdb.getPointsInt(user.getId());
-			resultSender.send("**" + user.getName() + "** has " + amount + " Guild Point(s).");
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-		}
+		rdb.getPointsAndRankAsync(user.getId())
+			.thenAccept(rankEntry -> {
+				if (rankEntry == null) {
+					resultSender.send("**" + user.getName() + "** has 0 Guild Point(s).");
+				} else {
+					resultSender.send("**" + user.getName() + "** has " + Utils.doubleToInt(rankEntry.points()) +
+						" Guild Point(s) (rank #" + rankEntry.rank() + ").");
+				}
+			})
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
 	}
 }
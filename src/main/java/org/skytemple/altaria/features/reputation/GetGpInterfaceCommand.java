@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -20,7 +20,6 @@ package org.skytemple.altaria.features.reputation;
 import org.javacord.api.entity.user.User;
 import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.db.ReputationDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 import org.skytemple.altaria.utils.DiscordUtils;
 
@@ -38,12 +37,12 @@ public class GetGpInterfaceCommand extends GetGpCommand {
 
 	@Override
 	public void run() {
-		try {
-			int amount = rdb.getPointsInt(user.getId());
-			DiscordUtils.sendJsonResult(resultSender, true, amount);
-		} catch (DbOperationException e) {
-			DiscordUtils.sendJsonResult(resultSender, false, "Error trying to run the command");
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-		}
+		rdb.getPointsIntAsync(user.getId())
+			.thenAccept(amount -> DiscordUtils.sendJsonResult(resultSender, true, amount))
+			.exceptionally(e -> {
+				DiscordUtils.sendJsonResult(resultSender, false, "Error trying to run the command");
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -19,27 +19,32 @@ package org.skytemple.altaria.features.reputation;
 
 import org.skytemple.altaria.definitions.db.ReputationDB;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Stores the full GP leaderboard
+ * Used to display the GP leaderboard one page at a time. Only the total amount of entries is retrieved when the
+ * leaderboard is loaded, the entries of each page are retrieved from the database when the page is requested.
+ * All database accesses are asynchronous.
  */
 public class Leaderboard {
 	// Number of entries to display on each leaderboard page
 	private static final int ENTRIES_PER_PAGE = 25;
 
-	private final List<NamedPointsEntry> data;
+	private final ReputationDB rdb;
+	private final int numEntries;
+
+	private Leaderboard(ReputationDB rdb, int numEntries) {
+		this.rdb = rdb;
+		this.numEntries = numEntries;
+	}
 
 	/**
-	 * Creates a leaderboard using from a list of point entries
-	 * @param pointEntries List of entries used to create the leaderboard
+	 * Loads a leaderboard backed by the reputation database
+	 * @param rdb Reputation database instance
+	 * @return Future that completes with the leaderboard once the amount of entries has been retrieved
 	 */
-	public Leaderboard(List<ReputationDB.PointsEntryInt> pointEntries) {
-		data = new ArrayList<>();
-		for (ReputationDB.PointsEntryInt entry : pointEntries) {
-			data.add(new NamedPointsEntry("<@" + entry.userId() + ">", entry.points()));
-		}
+	public static CompletableFuture<Leaderboard> load(ReputationDB rdb) {
+		return rdb.getNumUsersAsync().thenApply(numEntries -> new Leaderboard(rdb, numEntries));
 	}
 
 	/**
@@ -47,7 +52,7 @@ public class Leaderboard {
 	 * @return Number of pages on the leaderboard
 	 */
 	public int getNumPages() {
-		return (int) Math.ceil(data.size() / (float) ENTRIES_PER_PAGE);
+		return (int) Math.ceil(numEntries / (float) ENTRIES_PER_PAGE);
 	}
 
 	/**
@@ -67,38 +72,31 @@ public class Leaderboard {
 	/**
 	 * Gets part of the leaderboard and formats it as a string.
 	 * The users will be listed as mentions.
-	 * If the requested page is out of bounds, throws {@link IllegalArgumentException}.
+	 * If the requested page is out of bounds, throws {@link IllegalArgumentException} right away.
 	 * @param pageNumber Page number to get (0-indexed). Can be negative to get a page from the bottom of the
 	 *                   leaderboard.
-	 * @return String that lists all the entries in the specified page
+	 * @return Future that completes with a string that lists all the entries in the specified page
 	 */
-	public String getPage(int pageNumber) {
+	public CompletableFuture<String> getPage(int pageNumber) {
 		if (pageNumber < 0) {
 			pageNumber = convertNegativePage(pageNumber);
 		}
 		if (pageNumber < getNumPages() && pageNumber >= 0) {
-			List<NamedPointsEntry> page = data.subList(pageNumber * ENTRIES_PER_PAGE,
-				Math.min(((pageNumber + 1) * ENTRIES_PER_PAGE), data.size()));
-			StringBuilder sb = new StringBuilder();
-			boolean first = true;
-			for (NamedPointsEntry element : page) {
-				if (first) {
-					first = false;
-				} else {
-					sb.append("\n");
+			return rdb.getPointsPageIntAsync(pageNumber * ENTRIES_PER_PAGE, ENTRIES_PER_PAGE).thenApply(page -> {
+				StringBuilder sb = new StringBuilder();
+				boolean first = true;
+				for (ReputationDB.PointsEntryInt element : page) {
+					if (first) {
+						first = false;
+					} else {
+						sb.append("\n");
+					}
+					sb.append("<@").append(element.userId()).append(">: ").append(element.points());
 				}
-				sb.append(element.username).append(": ").append(element.points);
-			}
-			return sb.toString();
+				return sb.toString();
+			});
 		} else {
 			throw new IllegalArgumentException("Page number out of bounds");
 		}
 	}
-
-	/**
-	 * Used to store a leaderboard entry in a readable format
-	 * @param username Username or mention
-	 * @param points Amount of points
-	 */
-	private record NamedPointsEntry (String username, int points) {}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -25,9 +25,8 @@ import org.javacord.api.event.interaction.SlashCommandCreateEvent;
 import org.javacord.api.event.message.MessageCreateEvent;
 import org.javacord.api.interaction.*;
 import org.skytemple.altaria.definitions.*;
-import org.skytemple.altaria.definitions.db.Database;
 import org.skytemple.altaria.definitions.db.ReputationDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbTimeoutException;
 import org.skytemple.altaria.definitions.exceptions.GpAmountParseException;
 import org.skytemple.altaria.definitions.senders.ChannelMsgSender;
 import org.skytemple.altaria.definitions.senders.ImmediateInteractionMsgSender;
@@ -54,17 +53,14 @@ public class Reputation {
 	private final ReputationDB rdb;
 	private final ExtConfig extConfig;
 
-	// Used to prevent duplicated queries to the database. Gets invalidated when a GP-changing command is run.
-	private Leaderboard cachedLeaderboard;
 	// Holds the multi-GP lists for the /multigp commands. The collection contains one list for each user that
 	// used the command. Each multi-GP list maps a user to the amount of GP they will receive.
 	private final MultiGpCollection multiGpCollection;
 
-	public Reputation(Database db, CommandCreator commandCreator) {
+	public Reputation(ReputationDB rdb, CommandCreator commandCreator) {
 		api = ApiGetter.get();
-		rdb = new ReputationDB(db);
+		this.rdb = rdb;
 		extConfig = ExtConfig.get();
-		cachedLeaderboard = null;
 		multiGpCollection = new MultiGpCollection();
 
 		// Register commands
@@ -165,7 +161,6 @@ public class Reputation {
 					} else {
 						new TakeGpCommand(rdb, user, amount, sender, sender).run();
 					}
-					cachedLeaderboard = null;
 				}
 			} else {
 				sender.send("Error: Unrecognized GP subcommand.");
@@ -184,13 +179,7 @@ public class Reputation {
 				if (arguments.success()) {
 					// Convert page to a 0-indexed value if positive
 					page = page < 0 ? page : page - 1;
-					if (cachedLeaderboard == null) {
-						ListGpCommand listGp = new ListGpCommand(rdb, page, sender, sender);
-						listGp.run();
-						cachedLeaderboard = listGp.getLeaderboard();
-					} else {
-						new ListGpCommand(cachedLeaderboard, page, sender, sender).run();
-					}
+					new ListGpCommand(rdb, page, sender, sender).run();
 				}
 			} else {
 				sender.send("Error: Unrecognized GP subcommand.");
@@ -231,20 +220,32 @@ public class Reputation {
 
 		switch (componentId) {
 			case COMPONENT_LIST_GP_CONFIRM:
-				MultiGpList gpList = multiGpCollection.get(cmdUserId);
+				// Removed right away so clicking the button again while the list is being applied does nothing
+				MultiGpList gpList = multiGpCollection.remove(cmdUserId);
 				if (gpList == null) {
 					sender.setEphemeral().setText("The multi-GP list is empty!").send();
 				} else {
-					try {
-						EmbedBuilder gpListEmbed = gpList.toEmbed(true);
-						gpList.apply(rdb);
-						multiGpCollection.remove(cmdUserId);
-						// Not ephemeral so the full list is posted somewhere
-						sender.setText("The following Guild Points have been awarded by **" +
-							interaction.getUser().getName() + "**:").addEmbed(gpListEmbed).send();
-					} catch (DbOperationException e) {
-						new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
-					}
+					EmbedBuilder gpListEmbed = gpList.toEmbed(true);
+					gpList.applyAsync(rdb)
+						.thenRun(() -> {
+							// Not ephemeral so the full list is posted somewhere
+							sender.setText("The following Guild Points have been awarded by **" +
+								interaction.getUser().getName() + "**:").addEmbed(gpListEmbed).send();
+						})
+						.exceptionally(e -> {
+							if (e.getCause() instanceof DbTimeoutException) {
+								// The batch might still be committed, so the list must not be confirmed again
+								sender.setText(DbTimeoutException.USER_MESSAGE + " Guild Points that might have " +
+									"been awarded:").addEmbed(gpListEmbed).send();
+								new ErrorHandler(e).printToErrorChannel().run();
+							} else {
+								// The batch runs in a transaction that was rolled back, so the list can be confirmed
+								// again
+								multiGpCollection.put(cmdUserId, gpList);
+								new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
+							}
+							return null;
+						});
 				}
 				break;
 			case COMPONENT_LIST_GP_CLEAR:
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.strikes_list;
+
+import org.apache.logging.log4j.Logger;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.Message;
+import org.skytemple.altaria.definitions.db.StrikeStateDB;
+import org.skytemple.altaria.definitions.db.StrikeStateDB.StrikeState;
+import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.singletons.ApiGetter;
+import org.skytemple.altaria.definitions.singletons.ExtConfig;
+import org.skytemple.altaria.utils.Utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the current amount of strikes of each user, stored in {@link StrikeStateDB}, so the strike log
+ * channel doesn't need to be read every time they are needed.
+ * The index is updated as Vortex posts new messages on the strike log channel. Since those messages are missed while
+ * the bot is offline, the messages posted after the last one indexed are read when the bot starts. The first time,
+ * the whole channel is read once, or only its recent messages if a backfill period has been configured.
+ * All changes are performed in order on a dedicated thread, so the listener that reports new messages never waits for
+ * the database.
+ */
+public class StrikeIndex {
+	// Amount of minutes to wait before retrying if the channel cannot be read when the bot starts
+	private static final long CATCH_UP_RETRY_DELAY = 5;
+
+	private final StrikeStateDB sdb;
+	private final long channelId;
+	private final ScheduledExecutorService updater;
+	private final Logger logger;
+
+	// True once all the messages posted on the channel while the bot was offline have been indexed. Only changed
+	// from the updater thread.
+	private volatile boolean ready;
+
+	/**
+	 * @param sdb Strike state database
+	 * @param channelId ID of the strike log channel
+	 */
+	public StrikeIndex(StrikeStateDB sdb, long channelId) {
+		this.sdb = sdb;
+		this.channelId = channelId;
+		logger = Utils.getLogger(getClass());
+		updater = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "strike-index");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts indexing the messages posted on the strike log channel since the last time the bot was running.
+	 * Returns immediately, the messages are read in the background.
+	 */
+	public void start() {
+		updater.execute(this::catchUp);
+	}
+
+	/**
+	 * Must be called when a message is posted. Messages that aren't Vortex strike messages posted on the strike log
+	 * channel are ignored. Returns immediately, the index is updated in the background.
+	 * @param message Message that was posted
+	 */
+	public void onMessage(Message message) {
+		if (message.getChannel().getId() != channelId) {
+			return;
+		}
+		StrikeState state = StrikeLogScan.parse(message);
+		if (state != null) {
+			updater.execute(() -> {
+				try {
+					sdb.put(Collections.singletonList(state));
+					// If the bot hasn't caught up yet, the messages before this one still need to be read
+					if (ready) {
+						sdb.setLastMessageId(channelId, state.lastMessageId());
+					}
+				} catch (DbOperationException e) {
+					// Read the message again later, along with any others posted in the meantime
+					if (ready) {
+						ready = false;
+						logger.warn("Could not add strike message " + state.lastMessageId() + " to the index. " +
+							"Retrying in " + CATCH_UP_RETRY_DELAY + " minutes.", e);
+						updater.schedule(this::catchUp, CATCH_UP_RETRY_DELAY, TimeUnit.MINUTES);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return True if the index is up-to-date and can be used
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @return Future that completes with the strike state of all the users who currently have at least one strike,
+	 * sorted by user ID
+	 */
+	public CompletableFuture<List<StrikeState>> getUsersWithStrikesAsync() {
+		return sdb.getUsersWithStrikesAsync();
+	}
+
+	/**
+	 * @param userId User ID
+	 * @return Future that completes with the strike state of the user, or with an empty optional if they have never
+	 * received strikes
+	 */
+	public CompletableFuture<Optional<StrikeState>> getAsync(long userId) {
+		return sdb.getAsync(userId);
+	}
+
+	/**
+	 * Reads the whole channel again and updates the index with the result. Can be used if the index is suspected to
+	 * be out of date, or to include messages older than the backfill period.
+	 * The recount runs on the updater thread, so it's applied in order with the changes from new messages, which are
+	 * indexed once it ends. Recounts requested while another one is running are queued.
+	 * @return Future that completes with the result of the scan, or that fails with an
+	 * {@link AsyncOperationException} if the channel cannot be found or its messages cannot be retrieved, or with a
+	 * {@link DbOperationException} if the index cannot be updated.
+	 */
+	public CompletableFuture<StrikeLogScan> recountAsync() {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				ServerTextChannel channel = ApiGetter.get().getServerTextChannelById(channelId).orElseThrow(() ->
+					new AsyncOperationException("Cannot find strike log channel"));
+				StrikeLogScan scan = StrikeLogScan.fromNewest(channel, 0, ExtConfig.get().getStrikeScanConcurrency());
+				sdb.put(scan.getStates());
+				sdb.setLastMessageId(channelId, scan.getNewestMessageId());
+				ready = true;
+				return scan;
+			} catch (AsyncOperationException | DbOperationException e) {
+				throw new CompletionException(e);
+			}
+		}, updater);
+	}
+
+	/**
+	 * Indexes the messages posted on the channel after the last one indexed, or all of them if the channel has never
+	 * been indexed. Retries later if that's not possible. Must run on the updater thread.
+	 */
+	private void catchUp() {
+		ServerTextChannel channel = ApiGetter.get().getServerTextChannelById(channelId).orElse(null);
+		if (channel == null) {
+			logger.error("Cannot find strike log channel. Strike index will not be available.");
+			return;
+		}
+
+		long startTime = System.currentTimeMillis();
+		StrikeLogScan scan;
+		try {
+			Optional<Long> lastIndexed = sdb.getLastMessageId(channelId);
+			if (lastIndexed.isPresent()) {
+				scan = StrikeLogScan.after(channel, lastIndexed.get());
+			} else {
+				scan = StrikeLogScan.fromNewest(channel, getBackfillCutoff(),
+					ExtConfig.get().getStrikeScanConcurrency());
+			}
+			sdb.put(scan.getStates());
+			sdb.setLastMessageId(channelId, scan.getNewestMessageId());
+		} catch (DbOperationException | AsyncOperationException | RuntimeException e) {
+			logger.warn("Could not update strike index. Retrying in " + CATCH_UP_RETRY_DELAY + " minutes.", e);
+			updater.schedule(this::catchUp, CATCH_UP_RETRY_DELAY, TimeUnit.MINUTES);
+			return;
+		}
+		ready = true;
+		logger.info("Strike index updated: " + scan.getNumScanned() + " messages scanned, " + scan.getNumParsed() +
+			" strike messages parsed, " + scan.getStates().size() + " users updated in " +
+			(System.currentTimeMillis() - startTime) + " ms.");
+	}
+
+	/**
+	 * @return Time before which messages are not read when the index is first built, in epoch seconds. 0 if the
+	 * whole channel should be read.
+	 */
+	private static long getBackfillCutoff() {
+		int days = ExtConfig.get().getStrikeIndexBackfillDays();
+		if (days == 0) {
+			return 0;
+		}
+		return System.currentTimeMillis() / 1000 - TimeUnit.DAYS.toSeconds(days);
+	}
+}
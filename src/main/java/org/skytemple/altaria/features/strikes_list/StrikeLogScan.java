@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.strikes_list;
+
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.Message;
+import org.skytemple.altaria.definitions.collections.LongIntMap;
+import org.skytemple.altaria.definitions.db.StrikeStateDB.StrikeState;
+import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
+import org.skytemple.altaria.definitions.singletons.ApiGetter;
+import org.skytemple.altaria.definitions.vortex.VortexPunishmentStrikeParser;
+import org.skytemple.altaria.utils.DiscordUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.skytemple.altaria.definitions.Constants.VORTEX_ID;
+
+/**
+ * Reads the messages on the strike log channel and reduces them to the newest strike state of each user.
+ * Messages are processed as each page is received, without holding the channel history in memory, and the scan stops
+ * requesting pages as soon as it reaches its cutoff. Scans of the whole channel can be split into time ranges that
+ * are scanned in parallel.
+ */
+class StrikeLogScan {
+	// Amount of time ranges the channel is split into for each range that can be scanned at the same time
+	private static final int RANGES_PER_WORKER = 4;
+
+	// Position + 1 of the state of each user in the state list, by user ID
+	private final LongIntMap positions;
+	private final List<StrikeState> states;
+	private long newestMessageId;
+	private int numScanned;
+	private int numParsed;
+
+	private StrikeLogScan() {
+		positions = new LongIntMap();
+		states = new ArrayList<>();
+	}
+
+	/**
+	 * Scans the channel from the newest message to the oldest one
+	 * @param channel Strike log channel
+	 * @param cutoffTimestamp The scan stops when it reaches a message posted before this time, in epoch seconds. 0 to
+	 *                        scan the whole channel.
+	 * @return Scan result
+	 */
+	static StrikeLogScan fromNewest(ServerTextChannel channel, long cutoffTimestamp) {
+		return scanRange(channel, DiscordUtils.timestampToSnowflake(cutoffTimestamp), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Scans the channel from the newest message to the oldest one. The history of the channel is split into time
+	 * ranges that are scanned in parallel, and the results are merged so the newest state of each user is kept.
+	 * @param channel Strike log channel
+	 * @param cutoffTimestamp Messages posted before this time are not scanned, in epoch seconds. 0 to scan the
+	 *                        whole channel.
+	 * @param concurrency Maximum amount of ranges that can be scanned at the same time. If 1, the channel is scanned
+	 *                    sequentially.
+	 * @return Scan result
+	 * @throws AsyncOperationException If the messages of any of the ranges cannot be retrieved
+	 */
+	static StrikeLogScan fromNewest(ServerTextChannel channel, long cutoffTimestamp, int concurrency)
+		throws AsyncOperationException {
+		if (concurrency <= 1) {
+			return fromNewest(channel, cutoffTimestamp);
+		}
+
+		// Messages can't be older than the channel itself
+		long startTimestamp = Math.max(cutoffTimestamp, DiscordUtils.snowflakeToTimestamp(channel.getId()));
+		long endTimestamp = System.currentTimeMillis() / 1000;
+		// Messages aren't evenly distributed over time, so there are more ranges than workers to balance the load
+		int numRanges = (int) Math.max(1, Math.min((long) concurrency * RANGES_PER_WORKER,
+			endTimestamp - startTimestamp));
+		// Range boundaries, from the newest to the oldest. The newest range has no upper bound.
+		long[] bounds = new long[numRanges + 1];
+		bounds[0] = Long.MAX_VALUE;
+		for (int i = 1; i < numRanges; i++) {
+			bounds[i] = DiscordUtils.timestampToSnowflake(endTimestamp - (endTimestamp - startTimestamp) * i /
+				numRanges);
+		}
+		bounds[numRanges] = DiscordUtils.timestampToSnowflake(cutoffTimestamp);
+
+		Executor fetcher = ApiGetter.get().getThreadPool().getExecutorService();
+		Semaphore permits = new Semaphore(concurrency);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		List<CompletableFuture<StrikeLogScan>> results = new ArrayList<>(numRanges);
+		try {
+			for (int i = 0; i < numRanges; i++) {
+				permits.acquire();
+				if (failed.get()) {
+					// The scan is going to fail, stop sending requests
+					break;
+				}
+				long fromId = bounds[i + 1];
+				long toId = bounds[i];
+				CompletableFuture<StrikeLogScan> result = CompletableFuture.supplyAsync(() ->
+					scanRange(channel, fromId, toId), fetcher);
+				result.whenComplete((v, e) -> {
+					if (e != null) {
+						failed.set(true);
+					}
+					permits.release();
+				});
+				results.add(result);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AsyncOperationException(e);
+		}
+
+		// Merged from the newest range to the oldest one, so the first state found for each user is the newest one
+		StrikeLogScan scan = new StrikeLogScan();
+		for (CompletableFuture<StrikeLogScan> result : results) {
+			try {
+				scan.merge(result.join());
+			} catch (CompletionException e) {
+				throw new AsyncOperationException(e);
+			}
+		}
+		return scan;
+	}
+
+	/**
+	 * Scans the messages posted on the channel after the specified one, from the oldest to the newest
+	 * @param channel Strike log channel
+	 * @param messageId ID of the message to start after
+	 * @return Scan result
+	 */
+	static StrikeLogScan after(ServerTextChannel channel, long messageId) {
+		StrikeLogScan scan = new StrikeLogScan();
+		scan.newestMessageId = messageId;
+		try (Stream<Message> messages = channel.getMessagesAfterAsStream(messageId)) {
+			for (Message message : (Iterable<Message>) messages::iterator) {
+				// Later states replace earlier ones
+				scan.process(message, true);
+			}
+		}
+		return scan;
+	}
+
+	/**
+	 * @param message Message posted on the strike log channel
+	 * @return Strike state of the user mentioned by the message, or null if it's not a Vortex strike message
+	 */
+	static StrikeState parse(Message message) {
+		if (message.getAuthor().getId() != VORTEX_ID) {
+			return null;
+		}
+		VortexPunishmentStrikeParser.StrikePunishment strikePunishment =
+			VortexPunishmentStrikeParser.parse(message.getContent());
+		if (strikePunishment == null) {
+			return null;
+		}
+		if (strikePunishment.moderator().equals("Altaria")) {
+			// Altaria's punishments always mirror a Vortex one, ignore them
+			return null;
+		}
+		return new StrikeState(strikePunishment.userId(), strikePunishment.username(),
+			strikePunishment.newNumStrikes(), message.getId());
+	}
+
+	/**
+	 * @return Newest strike state found for each user, in no particular order
+	 */
+	List<StrikeState> getStates() {
+		return Collections.unmodifiableList(states);
+	}
+
+	/**
+	 * @return ID of the newest message scanned, or the ID the scan started after if no messages were scanned. 0 if
+	 * the channel is empty.
+	 */
+	long getNewestMessageId() {
+		return newestMessageId;
+	}
+
+	/**
+	 * @return Amount of messages read from the channel
+	 */
+	int getNumScanned() {
+		return numScanned;
+	}
+
+	/**
+	 * @return Amount of messages that were strike messages
+	 */
+	int getNumParsed() {
+		return numParsed;
+	}
+
+	/**
+	 * Scans the messages on the channel whose IDs are within a range, from the newest to the oldest one
+	 * @param channel Strike log channel
+	 * @param fromId Lower bound of the range, inclusive
+	 * @param toId Upper bound of the range, exclusive. {@link Long#MAX_VALUE} to start at the newest message.
+	 * @return Scan result
+	 */
+	private static StrikeLogScan scanRange(ServerTextChannel channel, long fromId, long toId) {
+		StrikeLogScan scan = new StrikeLogScan();
+		try (Stream<Message> messages = toId == Long.MAX_VALUE ? channel.getMessagesAsStream() :
+			channel.getMessagesBeforeAsStream(toId)) {
+			for (Message message : (Iterable<Message>) messages::iterator) {
+				if (message.getId() < fromId) {
+					break;
+				}
+				// Only the first state found for each user is kept, since it's the newest one
+				scan.process(message, false);
+			}
+		}
+		return scan;
+	}
+
+	/**
+	 * Adds the result of another scan to this one. States found by this scan take priority over the ones found by the
+	 * other scan.
+	 * @param other Scan of messages older than the ones scanned by this one
+	 */
+	private void merge(StrikeLogScan other) {
+		numScanned += other.numScanned;
+		numParsed += other.numParsed;
+		newestMessageId = Math.max(newestMessageId, other.newestMessageId);
+		for (StrikeState state : other.states) {
+			if (positions.putIfAbsent(state.userId(), states.size() + 1) == 0) {
+				states.add(state);
+			}
+		}
+	}
+
+	/**
+	 * Adds the state found in a message to the result, if any
+	 * @param message Message to process
+	 * @param replace True to replace the state previously found for the same user, false to keep it
+	 */
+	private void process(Message message, boolean replace) {
+		numScanned++;
+		newestMessageId = Math.max(newestMessageId, message.getId());
+		StrikeState state = parse(message);
+		if (state == null) {
+			return;
+		}
+		numParsed++;
+		int position = positions.putIfAbsent(state.userId(), states.size() + 1);
+		if (position == 0) {
+			states.add(state);
+		} else if (replace) {
+			states.set(position - 1, state);
+		}
+	}
+}
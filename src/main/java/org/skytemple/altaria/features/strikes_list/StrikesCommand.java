@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.strikes_list;
+
+import org.javacord.api.entity.user.User;
+import org.skytemple.altaria.definitions.Command;
+import org.skytemple.altaria.definitions.ErrorHandler;
+import org.skytemple.altaria.definitions.db.StrikeStateDB.StrikeState;
+import org.skytemple.altaria.definitions.senders.MessageSender;
+
+public class StrikesCommand implements Command {
+	protected StrikeIndex strikeIndex;
+	protected User user;
+	protected MessageSender resultSender;
+	protected MessageSender errorSender;
+
+	/**
+	 * Gets the amount of strikes a user currently has
+	 * @param strikeIndex Strike index
+	 * @param user User whose strikes will be checked
+	 * @param resultSender Used to send result messages to the user
+	 * @param errorSender Used to send error messages to the user
+	 */
+	public StrikesCommand(StrikeIndex strikeIndex, User user, MessageSender resultSender, MessageSender errorSender) {
+		this.strikeIndex = strikeIndex;
+		this.user = user;
+		this.resultSender = resultSender;
+		this.errorSender = errorSender;
+	}
+
+	@Override
+	public void run() {
+		if (!strikeIndex.isReady()) {
+			errorSender.send("Error: The strike log is still being read. Try again later.");
+			return;
+		}
+
+		strikeIndex.getAsync(user.getId())
+			.thenAccept(state -> {
+				int numStrikes = state.map(StrikeState::numStrikes).orElse(0);
+				resultSender.send("**" + user.getName() + "** (ID: " + user.getId() + ") has " + numStrikes +
+					" strike(s).");
+			})
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
+	}
+}
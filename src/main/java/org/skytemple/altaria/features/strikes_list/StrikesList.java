@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024. Frostbyte and other contributors.
+ * Copyright (c) 2024-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -17,28 +17,65 @@
 
 package org.skytemple.altaria.features.strikes_list;
 
+import org.apache.logging.log4j.Logger;
 import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.user.User;
 import org.javacord.api.event.interaction.SlashCommandCreateEvent;
 import org.javacord.api.interaction.SlashCommand;
 import org.javacord.api.interaction.SlashCommandInteraction;
+import org.javacord.api.interaction.SlashCommandOption;
+import org.javacord.api.interaction.SlashCommandOptionType;
+import org.skytemple.altaria.definitions.CommandArgumentList;
 import org.skytemple.altaria.definitions.CommandCreator;
+import org.skytemple.altaria.definitions.db.Database;
+import org.skytemple.altaria.definitions.db.StrikeStateDB;
 import org.skytemple.altaria.definitions.senders.DelayedInteractionMsgSender;
 import org.skytemple.altaria.definitions.singletons.ApiGetter;
+import org.skytemple.altaria.definitions.singletons.BanList;
+import org.skytemple.altaria.definitions.singletons.ExtConfig;
+import org.skytemple.altaria.utils.Utils;
+
+import java.util.Collections;
 
 /**
  * Class used to find out how many strikes each SkyTemple user has and build a list
  */
 public class StrikesList {
 	private final DiscordApi api;
+	private final Logger logger;
+	private StrikeIndex strikeIndex;
 
-	public StrikesList(CommandCreator commandCreator) {
+	public StrikesList(Database db, CommandCreator commandCreator) {
 		api = ApiGetter.get();
+		logger = Utils.getLogger(getClass());
+		ExtConfig extConfig = ExtConfig.get();
+
+		if (extConfig.hasStrikeLogChannelId()) {
+			// Only needed to build the strike list, so it's not downloaded if the commands are disabled
+			BanList.init(api, extConfig.getServer(), extConfig.getBanListRefreshInterval());
+			strikeIndex = new StrikeIndex(new StrikeStateDB(db), extConfig.getStrikeLogChannelId());
 
-		commandCreator.registerCommand(
-			SlashCommand.with("strikeslist", "Get how many strikes each user has").setDefaultDisabled()
-		);
+			commandCreator.registerCommand(
+				SlashCommand.with("strikeslist", "Get how many strikes each user has", Collections.singletonList(
+					SlashCommandOption.create(SlashCommandOptionType.BOOLEAN, "recount", "Read the whole strike log " +
+						"again before building the list. Slow.", false)
+				))
+				.setDefaultDisabled()
+			);
+			commandCreator.registerCommand(
+				SlashCommand.with("strikes", "Get how many strikes a user has", Collections.singletonList(
+					SlashCommandOption.create(SlashCommandOptionType.USER, "user", "User to check", true)
+				))
+				.setDefaultDisabled()
+			);
 
-		api.addSlashCommandCreateListener(this::handleCommand);
+			// The listener must be registered before the index starts catching up, so no messages are missed
+			api.addMessageCreateListener(event -> strikeIndex.onMessage(event.getMessage()));
+			api.addSlashCommandCreateListener(this::handleCommand);
+			strikeIndex.start();
+		} else {
+			logger.info("Strike log channel not set, strike list commands will be disabled.");
+		}
 	}
 
 	private void handleCommand(SlashCommandCreateEvent event) {
@@ -47,7 +84,18 @@ public class StrikesList {
 
 		if (command[0].equals("strikeslist")) {
 			DelayedInteractionMsgSender sender = new DelayedInteractionMsgSender(interaction, false);
-			new StrikeslistCommand(sender, sender).run();
+			CommandArgumentList arguments = new CommandArgumentList(interaction, sender);
+			Boolean recount = arguments.getBoolean("recount", false);
+			if (arguments.success()) {
+				new StrikeslistCommand(strikeIndex, recount != null && recount, sender, sender).run();
+			}
+		} else if (command[0].equals("strikes")) {
+			DelayedInteractionMsgSender sender = new DelayedInteractionMsgSender(interaction, false);
+			CommandArgumentList arguments = new CommandArgumentList(interaction, sender);
+			User user = arguments.getCachedUser("user", true);
+			if (arguments.success()) {
+				new StrikesCommand(strikeIndex, user, sender, sender).run();
+			}
 		}
 	}
 }
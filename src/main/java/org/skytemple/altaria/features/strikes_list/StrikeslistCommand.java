@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024. Frostbyte and other contributors.
+ * Copyright (c) 2024-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -17,119 +17,88 @@
 
 package org.skytemple.altaria.features.strikes_list;
 
-import org.javacord.api.DiscordApi;
-import org.javacord.api.entity.channel.ServerTextChannel;
-import org.javacord.api.entity.message.Message;
 import org.skytemple.altaria.definitions.Command;
 import org.skytemple.altaria.definitions.ErrorHandler;
+import org.skytemple.altaria.definitions.db.StrikeStateDB.StrikeState;
+import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
-import org.skytemple.altaria.definitions.singletons.ApiGetter;
-import org.skytemple.altaria.definitions.singletons.ExtConfig;
-import org.skytemple.altaria.definitions.vortex.VortexPunishmentStrikeParser;
-import org.skytemple.altaria.utils.JavacordUtils;
+import org.skytemple.altaria.definitions.singletons.BanList;
 
 import java.nio.charset.StandardCharsets;
-import java.util.*;
-import java.util.concurrent.ExecutionException;
-
-import static org.skytemple.altaria.definitions.Constants.VORTEX_ID;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class StrikeslistCommand implements Command {
+	protected StrikeIndex strikeIndex;
+	protected boolean recount;
 	protected MessageSender resultSender;
 	protected MessageSender errorSender;
-	private final DiscordApi api;
-	private final ExtConfig extConfig;
 
 	/**
 	 * Creates a list that shows how many strikes each user has and prints it.
+	 * @param strikeIndex Strike index
+	 * @param recount True to read the whole strike log channel again and update the index before building the list
 	 * @param resultSender Used to send result messages to the user
 	 * @param errorSender Used to send error messages to the user
 	 */
-	public StrikeslistCommand(MessageSender resultSender, MessageSender errorSender) {
+	public StrikeslistCommand(StrikeIndex strikeIndex, boolean recount, MessageSender resultSender,
+		MessageSender errorSender) {
+		this.strikeIndex = strikeIndex;
+		this.recount = recount;
 		this.resultSender = resultSender;
 		this.errorSender = errorSender;
-
-		api = ApiGetter.get();
-		extConfig = ExtConfig.get();
 	}
 
 	@Override
 	public void run() {
-		// Maps user ID to strike details
-		Map<Long, VortexPunishmentStrikeParser.StrikePunishment> result = new TreeMap<>();
-		// Set containing the IDs of all banned users
-		Set<Long> bannedUsers;
-		try {
-			bannedUsers = JavacordUtils.getBannedUsersIDs();
-		} catch (ExecutionException | InterruptedException e) {
-			new ErrorHandler(e).sendMessage("Error retrieving ban list.", errorSender).printToErrorChannel().run();
+		CompletableFuture<Void> indexReady;
+		if (recount) {
+			long startTime = System.currentTimeMillis();
+			indexReady = strikeIndex.recountAsync().thenAccept(scan -> resultSender.setText("Strike log read " +
+				"again: " + scan.getNumScanned() + " messages scanned, " + scan.getNumParsed() + " strike messages " +
+				"parsed in " + (System.currentTimeMillis() - startTime) / 1000 + " s."));
+		} else if (!strikeIndex.isReady()) {
+			errorSender.send("Error: The strike log is still being read. Try again later.");
 			return;
+		} else {
+			indexReady = CompletableFuture.completedFuture(null);
 		}
 
-		ServerTextChannel strikeLogChannel = api.getServerTextChannelById(extConfig.getStrikeLogChannelId()).orElse(null);
-		if (strikeLogChannel == null) {
-			errorSender.send("Error: Cannot find strike log channel.");
-			return;
-		}
-
-		// Retrieve the current amount of strikes for each user
-		for (Object o : strikeLogChannel.getMessagesAsStream().toArray()) {
-			Message message = (Message) o;
-			if (message.getAuthor().getId() != VORTEX_ID) {
-				// Not a Vortex message, skip
-				continue;
-			}
-			String text = message.getContent();
-
-			VortexPunishmentStrikeParser.StrikePunishment strikePunishment = VortexPunishmentStrikeParser.parse(text);
-			if (strikePunishment == null) {
-				// Not a strike message, skip
-				continue;
-			}
-
-			if (result.containsKey(strikePunishment.userId())) {
-				// If we already have an entry for the user, skip it, since the most recent one will always have
-				// the most up-to-date strike count.
-				continue;
-			}
-
-			if (strikePunishment.moderator().equals("Altaria")) {
-				// Altaria's punishments always mirror a Vortex one, ignore them
-				continue;
-			}
-
-			result.put(strikePunishment.userId(), strikePunishment);
-		}
-
-		// Filter the list
-		for (Iterator<Map.Entry<Long, VortexPunishmentStrikeParser.StrikePunishment>> it = result.entrySet().iterator();
-			 it.hasNext();) {
-			Map.Entry<Long, VortexPunishmentStrikeParser.StrikePunishment> entry = it.next();
-			VortexPunishmentStrikeParser.StrikePunishment strikePunishment = entry.getValue();
-			if (strikePunishment.newNumStrikes() == 0) {
-				it.remove();
-			} else if (bannedUsers.contains(strikePunishment.userId())) {
-				// User was already banned, no point in counting their strikes
-				it.remove();
-			}
-		}
-
-		printResult(result);
+		indexReady
+			.thenCompose(unused -> strikeIndex.getUsersWithStrikesAsync())
+			.thenAccept(result -> {
+				BanList bannedUsers = BanList.get();
+				if (!bannedUsers.isLoaded()) {
+					errorSender.send("Error: The ban list hasn't been retrieved yet. Try again later.");
+					return;
+				}
+				// Users who were already banned are filtered out, there's no point in counting their strikes
+				printResult(result.stream().filter(state -> !bannedUsers.isBanned(state.userId())).toList());
+			})
+			.exceptionally(e -> {
+				if (e.getCause() instanceof AsyncOperationException) {
+					new ErrorHandler(e).sendMessage("Error reading the strike log channel.", errorSender)
+						.printToErrorChannel().run();
+				} else {
+					new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				}
+				return null;
+			});
 	}
 
-	private void printResult(Map<Long, VortexPunishmentStrikeParser.StrikePunishment> result) {
+	private void printResult(List<StrikeState> result) {
 		StringBuilder textBuilder = new StringBuilder();
 		StringBuilder csvBuilder = new StringBuilder();
-		for (VortexPunishmentStrikeParser.StrikePunishment strikePunishment : result.values()) {
-			textBuilder.append(strikePunishment.username())
+		for (StrikeState state : result) {
+			textBuilder.append(state.username())
 				.append(" (ID: ")
-				.append(strikePunishment.userId())
+				.append(state.userId())
 				.append("): ")
-				.append(strikePunishment.newNumStrikes())
+				.append(state.numStrikes())
 				.append("\n");
-			csvBuilder.append(strikePunishment.userId())
+			csvBuilder.append(state.userId())
 				.append(",")
-				.append(strikePunishment.newNumStrikes())
+				.append(state.numStrikes())
 				.append("\n");
 		}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -22,68 +22,253 @@ import org.javacord.api.entity.message.component.ActionRow;
 import org.javacord.api.entity.message.component.Button;
 import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.MultiGpList;
+import org.skytemple.altaria.definitions.db.SupportMessageCountsDB;
+import org.skytemple.altaria.definitions.db.SupportThreadCatalogueDB.CatalogueEntry;
 import org.skytemple.altaria.definitions.db.SupportThreadsDB;
 import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
 import org.skytemple.altaria.definitions.exceptions.DbOperationException;
-import org.skytemple.altaria.definitions.senders.InteractionMsgSender;
+import org.skytemple.altaria.definitions.senders.DelayedInteractionMsgSender;
 import org.skytemple.altaria.definitions.senders.MessageSender;
-import org.skytemple.altaria.utils.JavacordUtils;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
-public class SupportGpCalcCommand extends SupportGpCommand {
-	private final long channelId;
+/**
+ * Support GP calculation, meant to be run in the background since it can take a while if lots of threads need to
+ * be indexed. The progress of the calculation is shown by editing the interaction response, along with a button to
+ * cancel it.
+ * The message index saves each thread as soon as it's indexed, and the thread catalogue remembers the last time it
+ * was synced, so failed attempts are retried from where they stopped instead of starting over. The same applies if
+ * the calculation is cancelled or the bot is restarted and the command is run again.
+ */
+public class SupportGpCalcCommand extends SupportGpCommand implements SupportMessageIndex.IndexingMonitor {
+	// Amount of times the calculation is attempted before giving up
+	private static final int MAX_ATTEMPTS = 3;
+	// Seconds to wait before retrying after a failed attempt. Multiplied by the amount of failed attempts.
+	private static final long RETRY_DELAY = 15;
+	// Minimum amount of milliseconds between two progress updates, to stay clear of the rate limit of message edits
+	private static final long PROGRESS_UPDATE_INTERVAL = 3000;
+
+	private final SupportThreadCatalogue catalogue;
 	private final long startTimestamp;
 	private final long endTimestamp;
-	private final InteractionMsgSender resultSender;
+	private final int concurrency;
+	private final DelayedInteractionMsgSender resultSender;
 	private final MessageSender errorSender;
 	private final MultiGpListConsumer gpListConsumer;
+	private final CountDownLatch cancelled;
+
+	// All the fields below are guarded by the instance lock
+	// Time when the first thread started being indexed, in epoch milliseconds
+	private long indexingStartTime;
+	private long lastProgressUpdate;
+	// True once the final response has been sent. No more progress updates are shown after that.
+	private boolean finished;
 
 	/**
-	 * Given a channel and a time range, determines how many points the users who posted on threads in that channel
+	 * Given a time range, determines how many points the users who posted on threads in the support channel
 	 * should receive. Only messages within the specified time range will be counted.
 	 * After the command is run, the generated multi-GP list will be printed as an embed. It will also be passed to the
 	 * specified GP list consumer.
 	 * @param sdb Support threads DB
-	 * @param channelId Id of the channel where messages will be counted to calculate the GP amounts
+	 * @param messageIndex Support message index
+	 * @param messageCounts Total message count of each support thread
+	 * @param catalogue Catalogue of the threads on the channel where messages will be counted to calculate the GP
+	 *                  amounts
 	 * @param startTimestamp Start of the time range to check, in epoch seconds
 	 * @param endTimestamp End of the time range to check, in epoch seconds
-	 * @param resultSender Used to send result messages to the user. Must be an interaction since the result message
-	 *                     is ephemeral.
+	 * @param concurrency Maximum amount of threads that can be indexed at the same time
+	 * @param resultSender Used to show the progress of the calculation and its result to the user. Must be a delayed
+	 *                     interaction since the response is edited multiple times. Only valid for 15 minutes, updates
+	 *                     sent after that are lost.
 	 * @param errorSender Used to send error messages to the user
 	 * @param gpListConsumer Code that will consume the generated multi-GP list
 	 */
-	public SupportGpCalcCommand(SupportThreadsDB sdb, long channelId, long startTimestamp, long endTimestamp,
-		InteractionMsgSender resultSender, MessageSender errorSender, MultiGpListConsumer gpListConsumer) {
-		super(sdb);
-		this.channelId = channelId;
+	public SupportGpCalcCommand(SupportThreadsDB sdb, SupportMessageIndex messageIndex,
+		ThreadMessageCounts messageCounts, SupportThreadCatalogue catalogue, long startTimestamp, long endTimestamp,
+		int concurrency, DelayedInteractionMsgSender resultSender, MessageSender errorSender,
+		MultiGpListConsumer gpListConsumer) {
+		super(sdb, messageIndex, messageCounts);
+		this.catalogue = catalogue;
 		this.startTimestamp = startTimestamp;
 		this.endTimestamp = endTimestamp;
+		this.concurrency = concurrency;
 		this.resultSender = resultSender;
 		this.errorSender = errorSender;
 		this.gpListConsumer = gpListConsumer;
+		cancelled = new CountDownLatch(1);
 	}
 
 	@Override
 	public void run() {
-		try {
-			List<ServerThreadChannel> threads =
-				JavacordUtils.getPublicThreadsBetween(channelId, startTimestamp, endTimestamp);
-
-			// Calculate GP for each thread
-			MultiGpList gpList = new MultiGpList("Support Guild Points");
-			for (ServerThreadChannel thread : threads) {
-				gpList.addAll(calcGp(thread, startTimestamp, endTimestamp));
+		for (int attempt = 1; ; attempt++) {
+			try {
+				MultiGpList gpList = calculate();
+				if (gpList == null) {
+					showCancelled();
+					return;
+				}
+				synchronized (this) {
+					finished = true;
+					resultSender.clear().setText("These are the points that will be awarded for support " +
+						"contributions " + getCountedPeriod() + ". Please confirm if you're okay with them.")
+						.addEmbed(gpList.toEmbed(true))
+						.addComponent(ActionRow.of(
+							Button.success(SupportPoints.COMPONENT_SUPPORT_GP_CONFIRM, "Confirm")
+						)).setEphemeral().send();
+				}
+				gpListConsumer.consume(gpList);
+				return;
+			} catch (AsyncOperationException | DbOperationException e) {
+				if (attempt >= MAX_ATTEMPTS) {
+					showError(e);
+					return;
+				}
+				long delay = RETRY_DELAY * attempt;
+				logger.warn("Support GP calc attempt " + attempt + " failed. Retrying in " + delay + " seconds.", e);
+				showStatus("Attempt " + attempt + " of " + MAX_ATTEMPTS + " failed. The calculation will be " +
+					"resumed <t:" + (System.currentTimeMillis() / 1000 + delay) + ":R>.");
+				try {
+					if (cancelled.await(delay, TimeUnit.SECONDS)) {
+						showCancelled();
+						return;
+					}
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					showCancelled();
+					return;
+				}
+			} catch (RuntimeException e) {
+				// Not retried, since an unexpected error would most likely happen again
+				showError(e);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Cancels the calculation. Threads that are currently being indexed will still be indexed, but no more requests
+	 * will be sent after that.
+	 */
+	public void cancel() {
+		cancelled.countDown();
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled.getCount() == 0;
+	}
+
+	@Override
+	public void onProgress(int numIndexed, int numThreads) {
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			if (numIndexed == 0) {
+				indexingStartTime = now;
+			}
+			if (numThreads == 0 || (numIndexed > 0 && numIndexed < numThreads &&
+				now - lastProgressUpdate < PROGRESS_UPDATE_INTERVAL)) {
+				return;
+			}
+			lastProgressUpdate = now;
+		}
+
+		String text = "Retrieving messages from support threads: " + numIndexed + "/" + numThreads + " threads done.";
+		if (numIndexed > 0 && numIndexed < numThreads) {
+			long eta = (now + (now - indexingStartTime) * (numThreads - numIndexed) / numIndexed) / 1000;
+			text += " Estimated completion: <t:" + eta + ":R>.";
+		}
+		showStatus(text);
+	}
+
+	/**
+	 * Performs a single attempt at calculating the points
+	 * @return List with the points each user should get, or null if the calculation was cancelled
+	 * @throws AsyncOperationException If the threads or their messages cannot be retrieved
+	 * @throws DbOperationException If the database cannot be read or updated
+	 */
+	private MultiGpList calculate() throws AsyncOperationException, DbOperationException {
+		showStatus("Listing support threads...");
+		PreparedThreads prepared = prepareThreads(catalogue, startTimestamp, endTimestamp, concurrency, this);
+		if (isCancelled()) {
+			return null;
+		}
+		List<CatalogueEntry> threads = prepared.threads();
+		Map<Long, ServerThreadChannel> channels = prepared.channels();
+		List<Long> threadIds = threads.stream().map(CatalogueEntry::threadId).toList();
+		logger.info("Support GP calc: found " + threads.size() + " threads with " + prepared.numListRequests() +
+			" API requests, retrieved the missing messages of " + prepared.numIndexed() + " of them with " +
+			prepared.numIndexRequests() + " API requests");
+
+		// Load the overrides and message counts of all the threads at once
+		showStatus("Calculating points...");
+		Map<Long, SupportThreadsDB.ThreadOverrides> overrides = sdb.getOverrides(threadIds);
+		Map<Long, Map<Long, Integer>> userMessages =
+			messageIndex.getCounts(threadIds, startTimestamp, endTimestamp);
+
+		MultiGpList gpList = new MultiGpList("Support Guild Points");
+		for (CatalogueEntry thread : threads) {
+			// Prefer the data of the channel if it was retrieved, since it's the most recent
+			ServerThreadChannel channel = channels.get(thread.threadId());
+			long ownerId = channel != null ? channel.getOwnerId() : thread.ownerId();
+			int threadMessages = channel != null ? messageCounts.get(channel) : thread.messageCount();
+			gpList.addAll(calcGp(ownerId, threadMessages, userMessages.getOrDefault(thread.threadId(),
+				Collections.emptyMap()), overrides.get(thread.threadId())));
+		}
+		return gpList;
+	}
+
+	/**
+	 * @return Text that describes the time period in which messages were counted. Messages are counted in hourly
+	 * buckets, so the period is rounded to the hour if the specified one isn't. The text mentions it in that case.
+	 */
+	private String getCountedPeriod() {
+		long countedStart = SupportMessageCountsDB.roundToBucket(startTimestamp);
+		long countedEnd = SupportMessageCountsDB.roundToBucket(endTimestamp);
+		String text = "between <t:" + countedStart + ":f> and <t:" + countedEnd + ":f>";
+		if (countedStart != startTimestamp || countedEnd != endTimestamp) {
+			text += " (the specified time period was rounded up to the hour, since messages are counted in " +
+				"hourly blocks)";
+		}
+		return text;
+	}
+
+	/**
+	 * Shows the current status of the calculation on the response, along with the button to cancel it
+	 * @param text Status message
+	 */
+	private synchronized void showStatus(String text) {
+		if (!finished) {
+			resultSender.clear().setText(text).addComponent(ActionRow.of(
+				Button.danger(SupportPoints.COMPONENT_SUPPORT_GP_CANCEL, "Cancel")
+			)).send();
+		}
+	}
+
+	/**
+	 * Reports an error that ended the calculation. The progress of the calculation and its cancel button are removed
+	 * from the response.
+	 * @param e Error that ended the calculation
+	 */
+	private void showError(Exception e) {
+		synchronized (this) {
+			finished = true;
+			resultSender.clear();
+			if (errorSender != resultSender) {
+				resultSender.setText("Support GP calculation failed.").send();
 			}
-			resultSender.setText("These are the points that will be awarded for support contributions on the specified " +
-				"time period. Please confirm if you're okay with them.").addEmbed(gpList.toEmbed(true))
-				.addComponent(ActionRow.of(
-					Button.success(SupportPoints.COMPONENT_SUPPORT_GP_CONFIRM, "Confirm")
-				)).setEphemeral().send();
-			gpListConsumer.consume(gpList);
-		} catch (AsyncOperationException | DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
 		}
+		new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+	}
+
+	/**
+	 * Tells the user that the calculation was cancelled
+	 */
+	private synchronized void showCancelled() {
+		finished = true;
+		resultSender.clear().setText("Support GP calculation cancelled. Threads that were already processed won't " +
+			"need to be processed again the next time.").send();
 	}
 
 	@FunctionalInterface
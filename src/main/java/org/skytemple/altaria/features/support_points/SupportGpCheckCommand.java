@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -25,6 +25,9 @@ import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
 import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.MessageSender;
 
+import java.util.Collections;
+import java.util.Map;
+
 public class SupportGpCheckCommand extends SupportGpCommand {
 	private final ServerThreadChannel thread;
 	private final MessageSender resultSender;
@@ -34,13 +37,16 @@ public class SupportGpCheckCommand extends SupportGpCommand {
 	 * Given a thread, determines how many points the users on it should receive. All messages in the thread will
 	 * be counted.
 	 * @param sdb Support threads DB
+	 * @param messageIndex Support message index
+	 * @param messageCounts Total message count of each support thread
 	 * @param thread Thread to check
 	 * @param resultSender Used to send result messages to the user
 	 * @param errorSender Used to send error messages to the user
 	 */
-	public SupportGpCheckCommand(SupportThreadsDB sdb, ServerThreadChannel thread, MessageSender resultSender,
+	public SupportGpCheckCommand(SupportThreadsDB sdb, SupportMessageIndex messageIndex,
+		ThreadMessageCounts messageCounts, ServerThreadChannel thread, MessageSender resultSender,
 		MessageSender errorSender) {
-		super(sdb);
+		super(sdb, messageIndex, messageCounts);
 		this.thread = thread;
 		this.resultSender = resultSender;
 		this.errorSender = errorSender;
@@ -50,7 +56,11 @@ public class SupportGpCheckCommand extends SupportGpCommand {
 	public void run() {
 		MultiGpList list;
 		try {
-			list = calcGp(thread, 0L, System.currentTimeMillis() / 1000);
+			messageIndex.ensureIndexed(Collections.singletonList(thread), 1);
+			Map<Long, Integer> userMessages = messageIndex.getCounts(Collections.singletonList(thread.getId()), 0L,
+				System.currentTimeMillis() / 1000).getOrDefault(thread.getId(), Collections.emptyMap());
+			list = calcGp(thread.getOwnerId(), messageCounts.get(thread), userMessages,
+				sdb.getOverrides(thread.getId()));
 		} catch (AsyncOperationException | DbOperationException e) {
 			new ErrorHandler(e).printToErrorChannel().sendDefaultMessage(errorSender).run();
 			return;
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -17,84 +17,110 @@
 
 package org.skytemple.altaria.features.support_points;
 
-import org.javacord.api.entity.DiscordEntity;
+import org.apache.logging.log4j.Logger;
 import org.javacord.api.entity.channel.ServerThreadChannel;
-import org.javacord.api.entity.message.Message;
 import org.skytemple.altaria.definitions.Command;
 import org.skytemple.altaria.definitions.MultiGpList;
+import org.skytemple.altaria.definitions.db.SupportThreadCatalogueDB.CatalogueEntry;
 import org.skytemple.altaria.definitions.db.SupportThreadsDB;
 import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
 import org.skytemple.altaria.definitions.exceptions.DbOperationException;
-import org.skytemple.altaria.utils.DiscordUtils;
 import org.skytemple.altaria.utils.Utils;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.concurrent.CompletionException;
+import java.util.*;
 
 public abstract class SupportGpCommand implements Command {
 	protected final SupportThreadsDB sdb;
+	protected final SupportMessageIndex messageIndex;
+	protected final ThreadMessageCounts messageCounts;
+	protected final Logger logger;
 
-	protected SupportGpCommand(SupportThreadsDB sdb) {
+	protected SupportGpCommand(SupportThreadsDB sdb, SupportMessageIndex messageIndex,
+		ThreadMessageCounts messageCounts) {
 		this.sdb = sdb;
+		this.messageIndex = messageIndex;
+		this.messageCounts = messageCounts;
+		logger = Utils.getLogger(getClass());
 	}
 
 	/**
-	 * Given a thread, calculates how many GP would be awarded to each user who participated on it. Only messages
-	 * between the two specified timestamps will be counted.
-	 * @param thread Thread to check
-	 * @param startTimestamp Start of the time range to check, in epoch seconds
-	 * @param endTimestamp End of the time range to check, in epoch seconds
-	 * @return List with the amount of GP each user would get
-	 * @throws AsyncOperationException If messages cannot be retrieved for whatever reason
-	 * @throws DbOperationException If "should get GP" overrides cannot be retrieved from the database
+	 * Lists the support threads that might have messages in the given time range and makes sure their message counts
+	 * are up to date.
+	 * @param catalogue Catalogue of the threads on the support channel
+	 * @param startTimestamp Start of the time range, in epoch seconds
+	 * @param endTimestamp End of the time range, in epoch seconds
+	 * @param concurrency Maximum amount of threads that can be indexed at the same time
+	 * @param monitor Notified as threads are indexed. Can be used to stop the operation early.
+	 * @return Threads found, along with the channels retrieved and the amount of work performed
+	 * @throws AsyncOperationException If the threads or their messages cannot be retrieved
+	 * @throws DbOperationException If the database cannot be read or updated
 	 */
-	protected MultiGpList calcGp(ServerThreadChannel thread, long startTimestamp, long endTimestamp)
-		throws AsyncOperationException, DbOperationException {
-		MultiGpList ret = new MultiGpList("Support thread Guild Points");
-		// Number of messages for each user
-		Map<Long, Integer> userMessages = new TreeMap<>();
-
-		long threadId = thread.getId();
+	protected PreparedThreads prepareThreads(SupportThreadCatalogue catalogue, long startTimestamp, long endTimestamp,
+		int concurrency, SupportMessageIndex.IndexingMonitor monitor) throws AsyncOperationException,
+		DbOperationException {
+		SupportThreadCatalogue.Listing listing = catalogue.getThreadsBetween(startTimestamp, endTimestamp);
+		Map<Long, ServerThreadChannel> channels = new HashMap<>(listing.channels());
+		int numListRequests = listing.numRequests();
 
-		if (!sdb.supportGpEnabledInThread(threadId)) {
-			// No one gets GP here
-			return ret;
+		// Archived threads that weren't listed while syncing the catalogue haven't changed since the last sync, so
+		// their channels are only needed if the index is missing some of their messages.
+		Map<Long, Long> unlisted = new HashMap<>();
+		for (CatalogueEntry entry : listing.threads()) {
+			if (!channels.containsKey(entry.threadId())) {
+				unlisted.put(entry.threadId(), entry.lastMessageId());
+			}
 		}
-
-		Set<Message> messages;
-		try {
-			messages = thread.getMessagesBetween(DiscordUtils.timestampToSnowflake(startTimestamp),
-				DiscordUtils.timestampToSnowflake(endTimestamp)).join();
-		} catch (CompletionException e) {
-			throw new AsyncOperationException(e);
+		Set<Long> toFind = messageIndex.getThreadsMissingMessages(unlisted);
+		if (!toFind.isEmpty()) {
+			numListRequests += catalogue.findArchivedThreads(toFind, startTimestamp, channels);
 		}
 
-		// Consecutive messages from the same user are counted as one
-		long lastUserId = -1;
-		for (Message message : messages) {
-			Long authorId = message.getUserAuthor().map(DiscordEntity::getId).orElse(null);
-			if (authorId != null && authorId != lastUserId) {
-				userMessages.merge(authorId, 1, Integer::sum);
-				lastUserId = authorId;
+		List<CatalogueEntry> threads = new ArrayList<>(listing.threads().size());
+		List<ServerThreadChannel> toIndex = new ArrayList<>();
+		for (CatalogueEntry entry : listing.threads()) {
+			ServerThreadChannel channel = channels.get(entry.threadId());
+			if (channel != null) {
+				toIndex.add(channel);
+			} else if (toFind.contains(entry.threadId())) {
+				// Probably deleted while the bot was offline
+				logger.warn("Support thread " + entry.threadId() + " is on the catalogue but could not be " +
+					"found. Skipping it.");
+				continue;
 			}
+			threads.add(entry);
 		}
 
-		// Get the list of users who shouldn't get GP here
-		List<Long> shouldNotGetGp = sdb.getShouldNotGetGpUsers(threadId);
-		// Add OP
-		shouldNotGetGp.add(thread.getOwnerId());
-		// Remove users who should get GP
-		shouldNotGetGp.removeAll(sdb.getShouldGetGpUsers(threadId));
+		// Threads that haven't been indexed yet (or were modified while the bot was offline) have their messages
+		// retrieved here. The rest are already up to date.
+		int numIndexRequests = messageIndex.ensureIndexed(toIndex, concurrency, monitor);
+		return new PreparedThreads(threads, channels, numListRequests, toIndex.size(), numIndexRequests);
+	}
 
-		// Anyone still on the exclusion list gets no GP
-		Utils.removeAll(userMessages, shouldNotGetGp);
+	/**
+	 * Given a thread and the amount of messages each user posted on it, calculates how many GP would be awarded to
+	 * each of them.
+	 * @param ownerId ID of the user who created the thread
+	 * @param threadMessages Total number of messages on the thread
+	 * @param userMessages Amount of messages posted by each user, as returned by
+	 *                     {@link SupportMessageIndex#getCounts(Collection, long, long)}
+	 * @param overrides "Should get GP" overrides set on the thread, as returned by
+	 *                  {@link SupportThreadsDB#getOverrides(long)}.
+	 * @return List with the amount of GP each user would get
+	 */
+	protected MultiGpList calcGp(long ownerId, int threadMessages, Map<Long, Integer> userMessages,
+		SupportThreadsDB.ThreadOverrides overrides) {
+		MultiGpList ret = new MultiGpList("Support thread Guild Points");
+		if (!overrides.gpEnabled()) {
+			// No one gets GP here
+			return ret;
+		}
 
-		int threadMessages = thread.getMessageCount();
-		for (Map.Entry<Long, Integer> entry : userMessages.entrySet()) {
-			ret.add(entry.getKey(), calcGp(entry.getValue(), threadMessages));
+		// OP doesn't get GP by default, other users do. Overrides take priority over that.
+		for (Map.Entry<Long, Integer> entry : new TreeMap<>(userMessages).entrySet()) {
+			long userId = entry.getKey();
+			if (overrides.shouldUserGetGp(userId, userId == ownerId)) {
+				ret.add(userId, calcGp(entry.getValue(), threadMessages));
+			}
 		}
 		return ret;
 	}
@@ -119,4 +145,16 @@ public abstract class SupportGpCommand implements Command {
 		// Now we apply the GP formula again, but accounting for penalty
 		return Utils.log(3, userMessages * 0.4 / penaltyFactor + 1);
 	}
+
+	/**
+	 * Result of {@link #prepareThreads(SupportThreadCatalogue, long, long, int, SupportMessageIndex.IndexingMonitor)}
+	 * @param threads Catalogue entries of the threads found, sorted by ID
+	 * @param channels Channels retrieved, by thread ID. Doesn't contain the channels of threads that haven't
+	 *                 changed recently, use the data on their catalogue entry instead.
+	 * @param numListRequests Amount of API requests performed to list the threads
+	 * @param numIndexed Amount of threads whose messages were checked
+	 * @param numIndexRequests Amount of API requests performed to retrieve messages
+	 */
+	protected record PreparedThreads(List<CatalogueEntry> threads, Map<Long, ServerThreadChannel> channels,
+		int numListRequests, int numIndexed, int numIndexRequests) {}
 }
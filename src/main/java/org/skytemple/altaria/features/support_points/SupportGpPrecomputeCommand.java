@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.support_points;
+
+import org.skytemple.altaria.definitions.ErrorHandler;
+import org.skytemple.altaria.definitions.db.SupportThreadsDB;
+import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+
+/**
+ * Brings the message counts of the support threads active during a recent period up to date, so a later
+ * support GP calculation over that period can be answered from the message index without waiting for the API.
+ * Meant to be run periodically in the background.
+ * Support GP are not additive across time ranges (the amount awarded depends on the total amount of messages posted
+ * on each thread), so the result that is precomputed and stored is the per-user message counts the calculation is
+ * based on. A calculation over a covered range only needs to retrieve messages posted after the last run.
+ */
+public class SupportGpPrecomputeCommand extends SupportGpCommand {
+	private final SupportThreadCatalogue catalogue;
+	private final long periodLength;
+	private final int concurrency;
+
+	/**
+	 * @param sdb Support threads DB
+	 * @param messageIndex Support message index
+	 * @param messageCounts Total message count of each support thread
+	 * @param catalogue Catalogue of the threads on the support channel
+	 * @param periodLength Length of the period to precompute, in seconds. The period ends when the command is run.
+	 * @param concurrency Maximum amount of threads that can be indexed at the same time
+	 */
+	public SupportGpPrecomputeCommand(SupportThreadsDB sdb, SupportMessageIndex messageIndex,
+		ThreadMessageCounts messageCounts, SupportThreadCatalogue catalogue, long periodLength, int concurrency) {
+		super(sdb, messageIndex, messageCounts);
+		this.catalogue = catalogue;
+		this.periodLength = periodLength;
+		this.concurrency = concurrency;
+	}
+
+	@Override
+	public void run() {
+		long endTimestamp = System.currentTimeMillis() / 1000;
+		try {
+			PreparedThreads prepared = prepareThreads(catalogue, endTimestamp - periodLength, endTimestamp,
+				concurrency, SupportMessageIndex.IndexingMonitor.NONE);
+			logger.info("Support GP precompute: found " + prepared.threads().size() + " threads with " +
+				prepared.numListRequests() + " API requests, retrieved the missing messages of " +
+				prepared.numIndexed() + " of them with " + prepared.numIndexRequests() + " API requests");
+		} catch (AsyncOperationException | DbOperationException e) {
+			// Not critical, the next calculation will retrieve whatever is missing
+			new ErrorHandler(e).printToErrorChannel().run();
+		}
+	}
+}
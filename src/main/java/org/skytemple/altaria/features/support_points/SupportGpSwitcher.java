@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024. Frostbyte and other contributors.
+ * Copyright (c) 2024-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -22,11 +22,11 @@ import org.javacord.api.entity.message.component.ActionRow;
 import org.javacord.api.entity.message.component.Button;
 import org.skytemple.altaria.definitions.ErrorHandler;
 import org.skytemple.altaria.definitions.db.SupportThreadsDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
 import org.skytemple.altaria.definitions.senders.InteractionMsgSender;
 
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class used to enable or disable support GP for a given user on a given thread
@@ -44,7 +44,7 @@ public class SupportGpSwitcher {
 
 	public SupportGpSwitcher(SupportThreadsDB sdb) {
 		this.sdb = sdb;
-		supportGpActions = new TreeMap<>();
+		supportGpActions = new ConcurrentHashMap<>();
 	}
 
 	/**
@@ -61,29 +61,31 @@ public class SupportGpSwitcher {
 	 */
 	public void showUserSupportGpSwitchMenu(ServerThreadChannel thread, long userId, String username,
 		long cmdUserId, InteractionMsgSender resultSender, InteractionMsgSender errorSender) {
-		try {
-			long threadId = thread.getId();
-			boolean isOp = thread.getOwnerId() == userId;
-			boolean currentValue = sdb.shouldUserGetGP(userId, threadId, isOp);
-			String currentValueStr = currentValue ? "**does receive**" : "**does not receive**";
-			Button button;
-			if (currentValue) {
-				button = Button.danger(COMPONENT_SUPPORT_GP_DISABLE, "Disable support GP for this thread");
-			} else {
-				button = Button.success(COMPONENT_SUPPORT_GP_ENABLE, "Enable support GP for this thread");
-			}
+		long threadId = thread.getId();
+		boolean isOp = thread.getOwnerId() == userId;
+		sdb.shouldUserGetGPAsync(userId, threadId, isOp)
+			.thenAccept(currentValue -> {
+				String currentValueStr = currentValue ? "**does receive**" : "**does not receive**";
+				Button button;
+				if (currentValue) {
+					button = Button.danger(COMPONENT_SUPPORT_GP_DISABLE, "Disable support GP for this thread");
+				} else {
+					button = Button.success(COMPONENT_SUPPORT_GP_ENABLE, "Enable support GP for this thread");
+				}
 
-			// Save the parameters for later
-			supportGpActions.put(cmdUserId, new SupportGpAction(userId, username, isOp, threadId, !currentValue));
+				// Save the parameters for later
+				supportGpActions.put(cmdUserId, new SupportGpAction(userId, username, isOp, threadId, !currentValue));
 
-			resultSender.setEphemeral()
-				.setText(username + " currently " + currentValueStr + " GP for their contributions to " +
-					"this thread. Click the button below to change it.")
-				.addComponent(ActionRow.of(button))
-				.send();
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-		}
+				resultSender.setEphemeral()
+					.setText(username + " currently " + currentValueStr + " GP for their contributions to " +
+						"this thread. Click the button below to change it.")
+					.addComponent(ActionRow.of(button))
+					.send();
+			})
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
 	}
 
 	/**
@@ -97,28 +99,30 @@ public class SupportGpSwitcher {
 	 */
 	public void showThreadSupportGpSwitchMenu(ServerThreadChannel thread, long cmdUserId,
 		InteractionMsgSender resultSender, InteractionMsgSender errorSender) {
-		try {
-			long threadId = thread.getId();
-			boolean currentValue = sdb.supportGpEnabledInThread(threadId);
-			String currentValueStr = currentValue ? "**enabled**" : "**disabled**";
-			Button button;
-			if (currentValue) {
-				button = Button.danger(COMPONENT_SUPPORT_GP_DISABLE, "Disable support GP for this thread");
-			} else {
-				button = Button.success(COMPONENT_SUPPORT_GP_ENABLE, "Enable support GP for this thread");
-			}
+		long threadId = thread.getId();
+		sdb.supportGpEnabledInThreadAsync(threadId)
+			.thenAccept(currentValue -> {
+				String currentValueStr = currentValue ? "**enabled**" : "**disabled**";
+				Button button;
+				if (currentValue) {
+					button = Button.danger(COMPONENT_SUPPORT_GP_DISABLE, "Disable support GP for this thread");
+				} else {
+					button = Button.success(COMPONENT_SUPPORT_GP_ENABLE, "Enable support GP for this thread");
+				}
 
-			// Save the parameters for later
-			supportGpActions.put(cmdUserId, new SupportGpAction(null, null, null, threadId, !currentValue));
+				// Save the parameters for later
+				supportGpActions.put(cmdUserId, new SupportGpAction(null, null, null, threadId, !currentValue));
 
-			resultSender.setEphemeral()
-				.setText("Support GP are currently " + currentValueStr + " for this thread. Click the button below " +
-					"to change it.")
-				.addComponent(ActionRow.of(button))
-				.send();
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-		}
+				resultSender.setEphemeral()
+					.setText("Support GP are currently " + currentValueStr + " for this thread. Click the button " +
+						"below to change it.")
+					.addComponent(ActionRow.of(button))
+					.send();
+			})
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+				return null;
+			});
 	}
 
 	/**
@@ -131,66 +135,60 @@ public class SupportGpSwitcher {
 	 * will be ephemeral.
 	 * @param errorSender Sender used to send error messages that happen while running the command. Must be an
 	 * {@link InteractionMsgSender}, since the message will be ephemeral.
-	 * @return True if any kind of response was sent, false otherwise.
+	 * @return Future that completes with true if any kind of response was sent, false otherwise.
 	 */
-	@SuppressWarnings("BooleanMethodIsAlwaysInverted")
-	public boolean confirmSupportGpSwitch(long cmdUserId, boolean expectedEnable, InteractionMsgSender resultSender,
-		InteractionMsgSender errorSender) {
-		try {
-			SupportGpAction action = supportGpActions.getOrDefault(cmdUserId, null);
-			if (action != null) {
-				boolean isUserAction = action.userId != null;
+	public CompletableFuture<Boolean> confirmSupportGpSwitch(long cmdUserId, boolean expectedEnable,
+		InteractionMsgSender resultSender, InteractionMsgSender errorSender) {
+		SupportGpAction action = supportGpActions.get(cmdUserId);
+		if (action == null) {
+			resultSender.setEphemeral()
+				.setText("Error: No action to confirm. Run the context menu action first.").send();
+			return CompletableFuture.completedFuture(true);
+		}
+		if (action.enableGp != expectedEnable) {
+			// The queued action is of the opposite type of the expected one, the user probably clicked an old
+			// button. Do nothing.
+			return CompletableFuture.completedFuture(false);
+		}
 
-				if (action.enableGp != expectedEnable) {
-					// The queued action is of the opposite type of the expected one, the user probably clicked an old
-					// button. Do nothing.
-					return false;
+		boolean isUserAction = action.userId != null;
+		// Get current value
+		CompletableFuture<Boolean> currentValueFuture;
+		if (isUserAction) {
+			currentValueFuture = sdb.shouldUserGetGPAsync(action.userId, action.threadId, action.isOp);
+		} else {
+			currentValueFuture = sdb.supportGpEnabledInThreadAsync(action.threadId);
+		}
+		return currentValueFuture
+			.thenCompose(currentValue -> {
+				if (action.enableGp == currentValue) {
+					// The correct state is already set. Maybe someone else ran the command at the same time.
+					// Do nothing.
+					return CompletableFuture.completedFuture(false);
+				}
+				String actionStr = action.enableGp ? "now" : "no longer";
+				if (isUserAction) {
+					return sdb.setUserSupportGpAsync(action.userId, action.threadId, action.enableGp, action.isOp)
+						.thenApply(v -> {
+							resultSender.setEphemeral().setText(action.username + " will " + actionStr + " receive " +
+								"GP for their messages in this thread.").send();
+							supportGpActions.remove(cmdUserId);
+							return true;
+						});
 				} else {
-					// Get current value
-					boolean currentValue;
-					if (isUserAction) {
-						currentValue = sdb.shouldUserGetGP(action.userId, action.threadId, action.isOp);
-					} else {
-						currentValue = sdb.supportGpEnabledInThread(action.threadId);
-					}
-					if (action.enableGp == currentValue) {
-						// The correct state is already set. Maybe someone else ran the command at the same time.
-						// Do nothing.
-						return false;
-					} else {
-						try {
-							if (isUserAction) {
-								sdb.setUserSupportGp(action.userId, action.threadId, action.enableGp, action.isOp);
-								String actionStr = action.enableGp ? "now" : "no longer";
-
-								resultSender.setEphemeral().setText(action.username + " will " + actionStr + " receive GP " +
-									"for their messages in this thread.").send();
-								supportGpActions.remove(cmdUserId);
-								return true;
-							} else {
-								sdb.setThreadSupportGp(action.threadId, action.enableGp);
-								String actionStr = action.enableGp ? "now" : "no longer";
-
-								resultSender.setEphemeral().setText("Users will " + actionStr + " receive GP " +
-									"for their messages in this thread.").send();
-								supportGpActions.remove(cmdUserId);
-								return true;
-							}
-						} catch (DbOperationException e) {
-							new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
+					return sdb.setThreadSupportGpAsync(action.threadId, action.enableGp)
+						.thenApply(v -> {
+							resultSender.setEphemeral().setText("Users will " + actionStr + " receive GP " +
+								"for their messages in this thread.").send();
+							supportGpActions.remove(cmdUserId);
 							return true;
-						}
-					}
+						});
 				}
-			} else {
-				resultSender.setEphemeral()
-					.setText("Error: No action to confirm. Run the context menu action first.").send();
+			})
+			.exceptionally(e -> {
+				new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
 				return true;
-			}
-		} catch (DbOperationException e) {
-			new ErrorHandler(e).sendDefaultMessage(errorSender).printToErrorChannel().run();
-			return true;
-		}
+			});
 	}
 
 	/**
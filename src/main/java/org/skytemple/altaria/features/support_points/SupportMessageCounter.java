@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.support_points;
+
+import org.skytemple.altaria.definitions.collections.LongIntMap;
+import org.skytemple.altaria.definitions.db.SupportMessageCountsDB;
+import org.skytemple.altaria.utils.DiscordUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the messages posted by each user on a support thread, applying the rule that consecutive messages posted by
+ * the same user count as one. Messages that were not posted by a user are ignored.
+ * Messages are reduced as they are added, so the counter only holds one entry per user and bucket no matter how many
+ * messages the thread has.
+ */
+class SupportMessageCounter {
+	// Bucket -> user ID -> amount of messages
+	private final Map<Integer, LongIntMap> counts;
+	// Value of lastMessageId when the counter was created
+	private final long initialMessageId;
+	private long lastMessageId;
+	private long lastAuthorId;
+
+	/**
+	 * Creates a counter that continues counting from a previous state
+	 * @param lastMessageId ID of the last message counted so far. Messages with a lower or equal ID are skipped.
+	 * @param lastAuthorId ID of the last user who posted a message counted so far, or 0 if there isn't any
+	 */
+	SupportMessageCounter(long lastMessageId, long lastAuthorId) {
+		counts = new HashMap<>();
+		initialMessageId = lastMessageId;
+		this.lastMessageId = lastMessageId;
+		this.lastAuthorId = lastAuthorId;
+	}
+
+	/**
+	 * Creates a counter for a thread without messages
+	 */
+	SupportMessageCounter() {
+		this(0, 0);
+	}
+
+	/**
+	 * Counts a message. Messages must be added in ID order.
+	 * @param messageId Message ID
+	 * @param authorId ID of the user who posted the message, or 0 if it wasn't posted by a user
+	 */
+	void add(long messageId, long authorId) {
+		if (messageId <= lastMessageId) {
+			return;
+		}
+		lastMessageId = messageId;
+		if (authorId != 0 && authorId != lastAuthorId) {
+			int bucket = SupportMessageCountsDB.getBucket(DiscordUtils.snowflakeToTimestamp(messageId));
+			counts.computeIfAbsent(bucket, (k) -> new LongIntMap()).add(authorId, 1);
+			lastAuthorId = authorId;
+		}
+	}
+
+	/**
+	 * @return True if at least one message was added since the counter was created, even if it wasn't counted
+	 */
+	boolean hasNewMessages() {
+		return lastMessageId != initialMessageId;
+	}
+
+	/**
+	 * @return Amount of messages counted so far, as a map of bucket -> user ID -> amount
+	 */
+	Map<Integer, LongIntMap> getCounts() {
+		return counts;
+	}
+
+	/**
+	 * @return ID of the last message counted so far
+	 */
+	long getLastMessageId() {
+		return lastMessageId;
+	}
+
+	/**
+	 * @return ID of the last user who posted a message counted so far, or 0 if there isn't any
+	 */
+	long getLastAuthorId() {
+		return lastAuthorId;
+	}
+
+	/**
+	 * @return Index entry that represents the state of the counter
+	 */
+	SupportMessageCountsDB.IndexEntry toEntry() {
+		return new SupportMessageCountsDB.IndexEntry(lastMessageId, lastAuthorId, false);
+	}
+}
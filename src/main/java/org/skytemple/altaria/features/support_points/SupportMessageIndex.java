@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.support_points;
+
+import org.apache.logging.log4j.Logger;
+import org.javacord.api.entity.channel.ServerThreadChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAuthor;
+import org.skytemple.altaria.definitions.db.SupportMessageCountsDB;
+import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.singletons.ApiGetter;
+import org.skytemple.altaria.utils.Utils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the message counts stored in {@link SupportMessageCountsDB} up to date, so support GP can be calculated
+ * without retrieving the full message history of every thread.
+ * Threads are indexed the first time their counts are needed by retrieving all their messages once. After that, new
+ * messages are counted as they are posted, and only the messages posted while the bot was offline need to be
+ * retrieved again. Messages are counted as they are retrieved instead of being collected first, so indexing long
+ * threads doesn't require holding their whole history in memory.
+ * Threads where a message gets deleted are indexed from scratch the next time they are needed, since the deleted
+ * message might have affected how the messages after it were counted.
+ * All changes to the index are performed in order on a dedicated thread, so the listeners that report new messages
+ * never wait for the database.
+ */
+public class SupportMessageIndex {
+	// Maximum amount of messages Javacord retrieves with each request when reading the history of a channel
+	private static final int MESSAGES_PER_REQUEST = 100;
+
+	private final SupportMessageCountsDB mdb;
+	// Used to get the last message posted on threads, which Javacord doesn't keep up to date
+	private final ThreadMessageCounts messageCounts;
+	private final ExecutorService updater;
+	// Used to read the message history of threads. Reading blocks while each batch of messages is retrieved.
+	private final Executor fetcher;
+	private final Logger logger;
+
+	// All the fields below are only accessed from the updater thread, except for indexing
+	// Known index entries, by thread ID. Contains null values for threads known to not be indexed.
+	private final Map<Long, SupportMessageCountsDB.IndexEntry> entries;
+	// Threads whose counts include all the messages posted on them. Only these threads are updated as new messages
+	// are posted, the rest need to retrieve the messages they are missing first.
+	private final Set<Long> upToDate;
+	// Messages posted on threads that are currently being indexed, by thread ID. They are counted once indexing ends.
+	private final Map<Long, List<MessageInfo>> pending;
+	// Threads that had a message deleted while being indexed
+	private final Set<Long> deletedWhileIndexing;
+	// Indexing operations in progress, by thread ID
+	private final Map<Long, CompletableFuture<Integer>> indexing;
+
+	/**
+	 * @param mdb Message counts database
+	 * @param messageCounts Total message count and last message ID of each thread
+	 */
+	public SupportMessageIndex(SupportMessageCountsDB mdb, ThreadMessageCounts messageCounts) {
+		this.mdb = mdb;
+		this.messageCounts = messageCounts;
+		logger = Utils.getLogger(getClass());
+		updater = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "support-message-index");
+			thread.setDaemon(true);
+			return thread;
+		});
+		fetcher = ApiGetter.get().getThreadPool().getExecutorService();
+		entries = new HashMap<>();
+		upToDate = new HashSet<>();
+		pending = new HashMap<>();
+		deletedWhileIndexing = new HashSet<>();
+		indexing = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Must be called when a message is posted on a support thread. Returns immediately, the message is counted
+	 * in the background.
+	 * @param threadId ID of the thread where the message was posted
+	 * @param message Message that was posted
+	 */
+	public void onMessageCreated(long threadId, Message message) {
+		MessageInfo messageInfo = new MessageInfo(message);
+		updater.execute(() -> addMessage(threadId, messageInfo));
+	}
+
+	/**
+	 * Must be called when a message is deleted on a support thread. Returns immediately, the index is updated
+	 * in the background.
+	 * @param threadId ID of the thread where the message was deleted
+	 */
+	public void onMessageDeleted(long threadId) {
+		updater.execute(() -> invalidate(threadId));
+	}
+
+	/**
+	 * Same as {@link #ensureIndexed(List, int, IndexingMonitor)}, without following the progress of the operation.
+	 */
+	public int ensureIndexed(List<ServerThreadChannel> threads, int concurrency) throws AsyncOperationException,
+		DbOperationException {
+		return ensureIndexed(threads, concurrency, IndexingMonitor.NONE);
+	}
+
+	/**
+	 * Makes sure the counts of the given threads are up to date, indexing them if needed. Multiple threads can be
+	 * indexed at the same time, up to the given limit. Javacord already queues requests that would exceed a rate
+	 * limit, the limit is there to avoid flooding that queue (and the API) when lots of threads need to be indexed.
+	 * Each thread is saved as soon as it's indexed, so if the operation fails or is cancelled, the threads that were
+	 * already indexed don't need to be indexed again the next time.
+	 * @param threads Threads to check
+	 * @param concurrency Maximum amount of threads that can be indexed at the same time
+	 * @param monitor Notified as threads are indexed. If it reports that the operation was cancelled, no more threads
+	 *                are indexed, and the method returns once the ones that were already being indexed are done.
+	 * @return Amount of API requests performed to retrieve messages. Calculated from the amount of messages
+	 * retrieved from each thread, since Javacord doesn't report the requests it performs.
+	 * @throws AsyncOperationException If the messages of any of the threads cannot be retrieved
+	 * @throws DbOperationException If the index cannot be read or updated
+	 */
+	public int ensureIndexed(List<ServerThreadChannel> threads, int concurrency, IndexingMonitor monitor)
+		throws AsyncOperationException, DbOperationException {
+		Map<ServerThreadChannel, SupportMessageCountsDB.IndexEntry> missing;
+		try {
+			missing = CompletableFuture.supplyAsync(() -> getMissingMessages(threads), updater).join();
+		} catch (CompletionException e) {
+			throw unwrap(e);
+		}
+
+		Semaphore permits = new Semaphore(concurrency);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		AtomicInteger numIndexed = new AtomicInteger();
+		monitor.onProgress(0, missing.size());
+		List<CompletableFuture<Integer>> results = new ArrayList<>(missing.size());
+		try {
+			for (Map.Entry<ServerThreadChannel, SupportMessageCountsDB.IndexEntry> entry : missing.entrySet()) {
+				permits.acquire();
+				if (failed.get() || monitor.isCancelled()) {
+					// The calling operation is going to fail or was cancelled, stop sending requests
+					break;
+				}
+				CompletableFuture<Integer> result = index(entry.getKey(), entry.getValue());
+				result.whenComplete((v, e) -> {
+					if (e != null) {
+						failed.set(true);
+					} else {
+						monitor.onProgress(numIndexed.incrementAndGet(), missing.size());
+					}
+					permits.release();
+				});
+				results.add(result);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AsyncOperationException(e);
+		}
+
+		int numRequests = 0;
+		for (CompletableFuture<Integer> result : results) {
+			try {
+				// The last request is the one that returns less messages than the maximum
+				numRequests += result.join() / MESSAGES_PER_REQUEST + 1;
+			} catch (CompletionException e) {
+				throw unwrap(e);
+			}
+		}
+		return numRequests;
+	}
+
+	/**
+	 * Given the ID of the last message posted on some threads, returns the ones whose counts are not up to date.
+	 * Used to avoid retrieving the channels of threads that don't need to be indexed.
+	 * @param lastMessageIds Map that contains the ID of the last message posted on each thread, or 0 if unknown
+	 * @return IDs of the threads that need to be indexed
+	 * @throws DbOperationException If the index cannot be read
+	 */
+	public Set<Long> getThreadsMissingMessages(Map<Long, Long> lastMessageIds) throws DbOperationException {
+		try {
+			return CompletableFuture.supplyAsync(() -> getMissingMessages(lastMessageIds), updater).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof DbOperationException dbException) {
+				throw dbException;
+			}
+			throw new DbOperationException(e);
+		}
+	}
+
+	/**
+	 * Returns the amount of messages each user posted on the specified threads during a time range. Threads should
+	 * be indexed first with {@link #ensureIndexed(List, int)}.
+	 * See {@link SupportMessageCountsDB#getCounts(Collection, long, long)}.
+	 * @param threadIds IDs of the threads to check
+	 * @param startTimestamp Start of the time range, in epoch seconds
+	 * @param endTimestamp End of the time range (exclusive), in epoch seconds
+	 * @return Map that contains the amount of messages each user posted on each thread
+	 */
+	public Map<Long, Map<Long, Integer>> getCounts(Collection<Long> threadIds, long startTimestamp,
+		long endTimestamp) throws DbOperationException {
+		return mdb.getCounts(threadIds, startTimestamp, endTimestamp);
+	}
+
+	/**
+	 * Counts a new message. If the thread is not up to date, the message is ignored, since it will be retrieved
+	 * the next time the thread is indexed.
+	 * Must be called from the updater thread.
+	 * @param threadId ID of the thread where the message was posted
+	 * @param message Message to count
+	 */
+	private void addMessage(long threadId, MessageInfo message) {
+		List<MessageInfo> threadPending = pending.get(threadId);
+		if (threadPending != null) {
+			threadPending.add(message);
+			return;
+		}
+		try {
+			if (upToDate.contains(threadId)) {
+				SupportMessageCountsDB.IndexEntry entry = entries.get(threadId);
+				SupportMessageCounter counter = new SupportMessageCounter(entry.lastMessageId(), entry.lastAuthorId());
+				counter.add(message.id, message.authorId);
+				save(threadId, counter, false);
+			} else if (message.id == threadId) {
+				// First message of a new forum thread, so there's nothing else to retrieve
+				SupportMessageCounter counter = new SupportMessageCounter();
+				counter.add(message.id, message.authorId);
+				save(threadId, counter, true);
+				upToDate.add(threadId);
+			}
+		} catch (DbOperationException e) {
+			logger.warn("Could not count support message " + message.id + " on thread " + threadId + ". The " +
+				"thread will be updated the next time it's needed.", e);
+			forget(threadId);
+		}
+	}
+
+	/**
+	 * Flags a thread as outdated, so it's indexed from scratch the next time it's needed.
+	 * Must be called from the updater thread.
+	 * @param threadId Thread ID
+	 */
+	private void invalidate(long threadId) {
+		if (pending.containsKey(threadId)) {
+			deletedWhileIndexing.add(threadId);
+		}
+		upToDate.remove(threadId);
+		try {
+			mdb.markOutdated(threadId);
+			// Reloaded the next time it's needed
+			entries.remove(threadId);
+		} catch (DbOperationException e) {
+			logger.warn("Could not flag support thread " + threadId + " as outdated", e);
+			entries.put(threadId, new SupportMessageCountsDB.IndexEntry(0, 0, true));
+		}
+	}
+
+	/**
+	 * Discards everything known about a thread after an update fails. Since the update was not applied, the thread
+	 * will retrieve any messages it's missing the next time it's needed.
+	 * Must be called from the updater thread.
+	 * @param threadId Thread ID
+	 */
+	private void forget(long threadId) {
+		upToDate.remove(threadId);
+		entries.remove(threadId);
+	}
+
+	/**
+	 * Given a list of threads, determines which ones are missing messages.
+	 * Must be called from the updater thread.
+	 * @param threads Threads to check
+	 * @return Map that contains the threads that need to be indexed, along with their current index entry. Only
+	 * messages newer than the last one counted on the entry need to be retrieved. If the entry is null, the thread
+	 * needs to be indexed from scratch.
+	 * @throws CompletionException If the index entries of the threads cannot be loaded
+	 */
+	private Map<ServerThreadChannel, SupportMessageCountsDB.IndexEntry> getMissingMessages(
+		List<ServerThreadChannel> threads) {
+		loadEntries(threads.stream().map(ServerThreadChannel::getId).toList());
+
+		Map<ServerThreadChannel, SupportMessageCountsDB.IndexEntry> ret = new LinkedHashMap<>();
+		for (ServerThreadChannel thread : threads) {
+			long threadId = thread.getId();
+			if (!upToDate.contains(threadId) && isMissingMessages(threadId, messageCounts.getLastMessageId(thread))) {
+				SupportMessageCountsDB.IndexEntry entry = entries.get(threadId);
+				ret.put(thread, entry == null || entry.outdated() ? null : entry);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Given the ID of the last message posted on some threads, determines which ones are missing messages.
+	 * Must be called from the updater thread.
+	 * @param lastMessageIds Map that contains the ID of the last message posted on each thread, or 0 if unknown
+	 * @return IDs of the threads that need to be indexed
+	 * @throws CompletionException If the index entries of the threads cannot be loaded
+	 */
+	private Set<Long> getMissingMessages(Map<Long, Long> lastMessageIds) {
+		loadEntries(lastMessageIds.keySet());
+
+		Set<Long> ret = new HashSet<>();
+		for (Map.Entry<Long, Long> thread : lastMessageIds.entrySet()) {
+			if (!upToDate.contains(thread.getKey()) && isMissingMessages(thread.getKey(), thread.getValue())) {
+				ret.add(thread.getKey());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks if a thread that is not up to date is missing messages. If it's not, flags it as up to date.
+	 * Must be called from the updater thread, after loading the entry of the thread.
+	 * @param threadId Thread ID
+	 * @param lastMessageId ID of the last message posted on the thread, or 0 if unknown
+	 * @return True if the thread needs to be indexed
+	 */
+	private boolean isMissingMessages(long threadId, long lastMessageId) {
+		SupportMessageCountsDB.IndexEntry entry = entries.get(threadId);
+		if (entry == null || entry.outdated()) {
+			return true;
+		} else if (lastMessageId != 0 && lastMessageId <= entry.lastMessageId()) {
+			// Nothing was posted since the last time the thread was updated
+			upToDate.add(threadId);
+			return false;
+		} else {
+			return true;
+		}
+	}
+
+	/**
+	 * Loads the index entries of the given threads, unless they are already loaded.
+	 * Must be called from the updater thread.
+	 * @param threadIds Thread IDs
+	 * @throws CompletionException If the entries cannot be loaded
+	 */
+	private void loadEntries(Collection<Long> threadIds) {
+		List<Long> toLoad = threadIds.stream()
+			.filter(id -> !upToDate.contains(id) && !entries.containsKey(id)).toList();
+		if (!toLoad.isEmpty()) {
+			Map<Long, SupportMessageCountsDB.IndexEntry> loaded;
+			try {
+				loaded = mdb.getIndexEntries(toLoad);
+			} catch (DbOperationException e) {
+				throw new CompletionException(e);
+			}
+			for (Long threadId : toLoad) {
+				entries.put(threadId, loaded.get(threadId));
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the messages a thread is missing and adds them to the index. If the same thread is already being
+	 * indexed, returns the operation in progress instead.
+	 * @param thread Thread to index
+	 * @param entry Current index entry of the thread, or null to index it from scratch
+	 * @return Future that completes with the amount of messages retrieved once the thread is up to date
+	 */
+	private CompletableFuture<Integer> index(ServerThreadChannel thread, SupportMessageCountsDB.IndexEntry entry) {
+		long threadId = thread.getId();
+		SupportMessageCounter counter = entry == null ? new SupportMessageCounter() :
+			new SupportMessageCounter(entry.lastMessageId(), entry.lastAuthorId());
+		return indexing.computeIfAbsent(threadId, (k) -> CompletableFuture
+			// Messages posted from now on will be buffered
+			.runAsync(() -> pending.put(threadId, new ArrayList<>()), updater)
+			.thenApplyAsync((v) -> {
+				logger.debug("Indexing support thread " + thread.getName() + " after message " +
+					counter.getLastMessageId());
+				int[] numMessages = {0};
+				// Sorted from oldest to newest. Messages are requested in batches as the stream is consumed, so
+				// only one batch is held in memory at a time.
+				try (Stream<Message> messages = thread.getMessagesAfterAsStream(counter.getLastMessageId())) {
+					messages.forEach((message) -> {
+						counter.add(message.getId(), getUserId(message.getAuthor()));
+						numMessages[0]++;
+					});
+				}
+				return numMessages[0];
+			}, fetcher)
+			.thenApplyAsync((numMessages) -> {
+				finishIndexing(threadId, counter, entry == null);
+				return numMessages;
+			}, updater)
+			.handleAsync((v, e) -> {
+				if (e != null) {
+					// Clean up in case finishIndexing() was never reached
+					pending.remove(threadId);
+					deletedWhileIndexing.remove(threadId);
+					throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+				}
+				return v;
+			}, updater)
+			.whenComplete((v, e) -> indexing.remove(threadId)));
+	}
+
+	/**
+	 * Counts the messages buffered while a thread was being indexed and saves the result.
+	 * Must be called from the updater thread.
+	 * @param threadId Thread ID
+	 * @param counter Counter that contains the messages retrieved from the thread
+	 * @param fromScratch True if the thread was indexed from scratch, false if only the messages it was missing were
+	 *                    retrieved.
+	 * @throws CompletionException If the index cannot be updated
+	 */
+	private void finishIndexing(long threadId, SupportMessageCounter counter, boolean fromScratch) {
+		// Messages that were also retrieved are skipped by the counter
+		List<MessageInfo> threadPending = pending.remove(threadId);
+		threadPending.sort(Comparator.comparingLong(MessageInfo::id));
+		for (MessageInfo message : threadPending) {
+			counter.add(message.id, message.authorId);
+		}
+
+		try {
+			save(threadId, counter, fromScratch);
+		} catch (DbOperationException e) {
+			deletedWhileIndexing.remove(threadId);
+			forget(threadId);
+			throw new CompletionException(e);
+		}
+		upToDate.add(threadId);
+
+		if (deletedWhileIndexing.remove(threadId)) {
+			invalidate(threadId);
+		}
+	}
+
+	/**
+	 * Saves the messages counted by a counter.
+	 * Must be called from the updater thread.
+	 * @param threadId Thread ID
+	 * @param counter Counter that contains the messages to save
+	 * @param replace True to replace the current counts of the thread, false to add the messages to them
+	 */
+	private void save(long threadId, SupportMessageCounter counter, boolean replace) throws DbOperationException {
+		if (replace) {
+			mdb.replaceCounts(threadId, counter.getCounts(), counter.getLastMessageId(), counter.getLastAuthorId());
+		} else if (counter.hasNewMessages()) {
+			mdb.addCounts(threadId, counter.getCounts(), counter.getLastMessageId(), counter.getLastAuthorId());
+		}
+		entries.put(threadId, counter.toEntry());
+	}
+
+	/**
+	 * Unwraps the exception thrown by a failed indexing operation
+	 * @param e Exception thrown when joining the operation
+	 * @return Exception to throw if the operation didn't fail because of a database error
+	 * @throws DbOperationException If the operation failed because of a database error
+	 */
+	private static AsyncOperationException unwrap(CompletionException e) throws DbOperationException {
+		if (e.getCause() instanceof DbOperationException dbException) {
+			throw dbException;
+		}
+		return new AsyncOperationException(e);
+	}
+
+	/**
+	 * @param author Author of a message
+	 * @return ID of the author if it's a user, 0 otherwise
+	 */
+	private static long getUserId(MessageAuthor author) {
+		return author.isUser() ? author.getId() : 0;
+	}
+
+	/**
+	 * Used to follow the progress of {@link #ensureIndexed(List, int, IndexingMonitor)} and to stop it early
+	 */
+	public interface IndexingMonitor {
+		/**
+		 * Monitor that ignores the progress of the operation and never cancels it
+		 */
+		IndexingMonitor NONE = new IndexingMonitor() {
+			@Override
+			public void onProgress(int numIndexed, int numThreads) {}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+
+		/**
+		 * Called once the threads that need to be indexed are known, and then every time one of them is indexed.
+		 * Might be called from multiple threads.
+		 * @param numIndexed Amount of threads indexed so far
+		 * @param numThreads Amount of threads that need to be indexed
+		 */
+		void onProgress(int numIndexed, int numThreads);
+
+		/**
+		 * @return True if no more threads should be indexed
+		 */
+		boolean isCancelled();
+	}
+
+	/**
+	 * Data of a message required to count it
+	 * @param id Message ID
+	 * @param authorId ID of the user who posted the message, or 0 if it wasn't posted by a user
+	 */
+	private record MessageInfo(long id, long authorId) {
+		MessageInfo(Message message) {
+			this(message.getId(), getUserId(message.getAuthor()));
+		}
+	}
+}
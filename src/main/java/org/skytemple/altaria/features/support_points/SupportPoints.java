@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -24,6 +24,9 @@ import org.javacord.api.entity.message.MessageAuthor;
 import org.javacord.api.entity.message.MessageFlag;
 import org.javacord.api.entity.message.embed.EmbedBuilder;
 import org.javacord.api.entity.user.User;
+import org.javacord.api.event.channel.thread.ThreadCreateEvent;
+import org.javacord.api.event.channel.thread.ThreadDeleteEvent;
+import org.javacord.api.event.channel.thread.ThreadUpdateEvent;
 import org.javacord.api.event.interaction.MessageComponentCreateEvent;
 import org.javacord.api.event.interaction.MessageContextMenuCommandEvent;
 import org.javacord.api.event.interaction.SlashCommandCreateEvent;
@@ -33,19 +36,25 @@ import org.javacord.api.interaction.*;
 import org.skytemple.altaria.definitions.*;
 import org.skytemple.altaria.definitions.db.Database;
 import org.skytemple.altaria.definitions.db.ReputationDB;
+import org.skytemple.altaria.definitions.db.SupportMessageCountsDB;
+import org.skytemple.altaria.definitions.db.SupportThreadCatalogueDB;
 import org.skytemple.altaria.definitions.db.SupportThreadsDB;
-import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbTimeoutException;
 import org.skytemple.altaria.definitions.senders.DelayedInteractionMsgSender;
 import org.skytemple.altaria.definitions.senders.ImmediateInteractionMsgSender;
 import org.skytemple.altaria.definitions.senders.InteractionMsgSender;
 import org.skytemple.altaria.definitions.singletons.ApiGetter;
 import org.skytemple.altaria.definitions.singletons.ExtConfig;
-import org.skytemple.altaria.utils.JavacordUtils;
 import org.skytemple.altaria.utils.Utils;
 
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.skytemple.altaria.features.support_points.SupportGpSwitcher.COMPONENT_SUPPORT_GP_DISABLE;
 import static org.skytemple.altaria.features.support_points.SupportGpSwitcher.COMPONENT_SUPPORT_GP_ENABLE;
@@ -56,13 +65,23 @@ import static org.skytemple.altaria.features.support_points.SupportGpSwitcher.CO
 public class SupportPoints {
 	// Component IDs
 	public static final String COMPONENT_SUPPORT_GP_CONFIRM = "supportGpConfirm";
+	public static final String COMPONENT_SUPPORT_GP_CANCEL = "supportGpCancel";
 
 	// Context action IDs
 	private static final String SWITCH_GP_CONTEXT_ACTION = "Support GP switch";
 
+	// Seconds to wait after startup before precomputing support GP for the first time
+	private static final long PRECOMPUTE_INITIAL_DELAY = 60;
+
 	private final DiscordApi api;
 	private final ReputationDB rdb;
 	private final SupportThreadsDB sdb;
+	// Keeps track of the amount of messages posted by each user on each support thread
+	private final SupportMessageIndex messageIndex;
+	// Keeps track of the threads on the support channel
+	private final SupportThreadCatalogue catalogue;
+	// Keeps track of the total amount of messages on each support thread
+	private final ThreadMessageCounts messageCounts;
 	private final ExtConfig extConfig;
 	private final Logger logger;
 
@@ -70,22 +89,42 @@ public class SupportPoints {
 	private final MultiGpCollection multiGpCollection;
 	// Used to store the dates specified when running the "calc" command. One entry for each user who run the command.
 	private final Map<Long, DateRange> userDates;
+	// "calc" commands currently running in the background. One entry for each user who run the command.
+	private final Map<Long, SupportGpCalcCommand> runningCalcs;
+	// Used to run "calc" commands, so they don't block the thread that dispatches events
+	private final ExecutorService calcExecutor;
+	// Used to periodically precompute support GP for the current period
+	private final ScheduledExecutorService precomputeScheduler;
 	// Class used to handle thread support GP switch actions
 	private final SupportGpSwitcher supportGpSwitcher;
 
 	// ID of the channel used to calculate the points
 	private final long supportChannelId;
 
-	public SupportPoints(Database db, CommandCreator commandCreator) {
+	public SupportPoints(Database db, ReputationDB rdb, CommandCreator commandCreator) {
 		api = ApiGetter.get();
-		rdb = new ReputationDB(db);
+		this.rdb = rdb;
 		sdb = new SupportThreadsDB(db);
+		messageCounts = new ThreadMessageCounts();
+		messageIndex = new SupportMessageIndex(new SupportMessageCountsDB(db), messageCounts);
 		extConfig = ExtConfig.get();
 		logger = Utils.getLogger(getClass());
 		multiGpCollection = new MultiGpCollection();
-		userDates = new TreeMap<>();
+		userDates = new ConcurrentHashMap<>();
+		runningCalcs = new ConcurrentHashMap<>();
+		calcExecutor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "support-gp-calc");
+			thread.setDaemon(true);
+			return thread;
+		});
+		precomputeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "support-gp-precompute");
+			thread.setDaemon(true);
+			return thread;
+		});
 		supportGpSwitcher = new SupportGpSwitcher(sdb);
 		supportChannelId = extConfig.getSupportChannelId();
+		catalogue = new SupportThreadCatalogue(new SupportThreadCatalogueDB(db), messageCounts, supportChannelId);
 
 		Channel _supportChannel = api.getChannelById(supportChannelId).orElse(null);
 		if (_supportChannel instanceof ServerTextChannel || _supportChannel instanceof ServerForumChannel) {
@@ -131,7 +170,26 @@ public class SupportPoints {
 			api.addMessageComponentCreateListener(this::handleMessageComponent);
 			api.addMessageCreateListener(this::handleThreadMessage);
 			api.addMessageDeleteListener(this::handleThreadMessageDeletion);
+			api.addServerThreadChannelCreateListener(this::handleThreadCreation);
+			api.addServerThreadChannelUpdateListener(this::handleThreadUpdate);
+			api.addServerThreadChannelDeleteListener(this::handleThreadDeletion);
 			api.addMessageContextMenuCommandListener(this::handleContextAction);
+
+			// Schedule support GP precomputation
+			long precomputeInterval = extConfig.getSupportGpPrecomputeInterval();
+			if (precomputeInterval > 0) {
+				SupportGpPrecomputeCommand precompute = new SupportGpPrecomputeCommand(sdb, messageIndex, messageCounts,
+					catalogue, extConfig.getSupportGpPrecomputeDays() * 24L * 60 * 60,
+					extConfig.getSupportGpCalcConcurrency());
+				precomputeScheduler.scheduleWithFixedDelay(() -> {
+					try {
+						precompute.run();
+					} catch (RuntimeException e) {
+						// Uncaught exceptions would cancel the next runs
+						new ErrorHandler(e).printToErrorChannel().run();
+					}
+				}, PRECOMPUTE_INITIAL_DELAY, precomputeInterval * 60, TimeUnit.SECONDS);
+			}
 		} else {
 			logger.error("Support channel with ID " + extConfig.getSupportChannelId() + " does not exist or is not a " +
 				"server text channel. SupportGP commands will be disabled.");
@@ -152,8 +210,8 @@ public class SupportPoints {
 				if (arguments.success()) {
 					ServerThreadChannel thread = channel.asServerThreadChannel().orElse(null);
 					if (thread != null) {
-						logger.debug("Number of messages: " + thread.getMessageCount());
-						new SupportGpCheckCommand(sdb, thread, sender, sender).run();
+						logger.debug("Number of messages: " + messageCounts.get(thread));
+						new SupportGpCheckCommand(sdb, messageIndex, messageCounts, thread, sender, sender).run();
 					} else {
 						sender.send("Error: Specified channel is not a thread");
 					}
@@ -174,10 +232,25 @@ public class SupportPoints {
 					} else {
 						endTimestamp = System.currentTimeMillis() / 1000;
 					}
-					new SupportGpCalcCommand(sdb, supportChannelId, startTimestamp, endTimestamp, sender, sender, gpList -> {
-						multiGpCollection.put(cmdUserId, gpList);
-						userDates.put(cmdUserId, new DateRange(startTimestamp, endTimestamp));
-					}).run();
+					SupportGpCalcCommand calc = new SupportGpCalcCommand(sdb, messageIndex, messageCounts, catalogue,
+						startTimestamp, endTimestamp, extConfig.getSupportGpCalcConcurrency(), sender, sender,
+						gpList -> {
+							// Dates first, so the list is never found without them
+							userDates.put(cmdUserId, new DateRange(startTimestamp, endTimestamp));
+							multiGpCollection.put(cmdUserId, gpList);
+						});
+					if (runningCalcs.putIfAbsent(cmdUserId, calc) == null) {
+						calcExecutor.execute(() -> {
+							try {
+								calc.run();
+							} finally {
+								runningCalcs.remove(cmdUserId, calc);
+							}
+						});
+					} else {
+						sender.send("Error: You already have a support GP calculation running. Wait for it to " +
+							"finish or cancel it first.");
+					}
 				}
 			} else if (command[1].equals("switch")) {
 				InteractionMsgSender sender = new ImmediateInteractionMsgSender(interaction);
@@ -225,66 +298,119 @@ public class SupportPoints {
 
 		switch (componentId) {
 			case COMPONENT_SUPPORT_GP_CONFIRM:
-				MultiGpList gpList = multiGpCollection.get(cmdUserId);
-				DateRange dateRange = userDates.get(cmdUserId);
+				// Removed right away so clicking the button again while the list is being applied does nothing
+				MultiGpList gpList = multiGpCollection.remove(cmdUserId);
+				DateRange dateRange = userDates.remove(cmdUserId);
 				if (gpList == null) {
 					sender.setEphemeral().setText("Error: No action to confirm. Run /supportgp calc first.").send();
 				} else {
-					try {
-						EmbedBuilder gpListEmbed = gpList.toEmbed(true);
-						gpList.apply(rdb);
-						multiGpCollection.remove(cmdUserId);
-						userDates.remove(cmdUserId);
-						// Not ephemeral so the full list is posted somewhere
-						sender.setText("The following Guild Points have been awarded by **" +
-								interaction.getUser().getName() + "** for support contributions from <t:" +
-								dateRange.startTimestamp + "> to <t:" + dateRange.endTimestamp + ">:")
-							.addEmbed(gpListEmbed).send();
-					} catch (DbOperationException e) {
-						new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
-					}
+					EmbedBuilder gpListEmbed = gpList.toEmbed(true);
+					gpList.applyAsync(rdb)
+						.thenRun(() -> {
+							// Not ephemeral so the full list is posted somewhere
+							sender.setText("The following Guild Points have been awarded by **" +
+									interaction.getUser().getName() + "** for support contributions from <t:" +
+									dateRange.startTimestamp + "> to <t:" + dateRange.endTimestamp + ">:")
+								.addEmbed(gpListEmbed).send();
+						})
+						.exceptionally(e -> {
+							if (e.getCause() instanceof DbTimeoutException) {
+								// The batch might still be committed, so the list must not be confirmed again
+								sender.setText(DbTimeoutException.USER_MESSAGE + " Guild Points that might have " +
+									"been awarded:").addEmbed(gpListEmbed).send();
+								new ErrorHandler(e).printToErrorChannel().run();
+							} else {
+								// The batch runs in a transaction that was rolled back, so the list can be confirmed
+								// again
+								userDates.put(cmdUserId, dateRange);
+								multiGpCollection.put(cmdUserId, gpList);
+								new ErrorHandler(e).sendDefaultMessage(sender).printToErrorChannel().run();
+							}
+							return null;
+						});
 				}
 				break;
-			case COMPONENT_SUPPORT_GP_ENABLE:
-				if (!supportGpSwitcher.confirmSupportGpSwitch(cmdUserId, true, sender, sender)) {
+			case COMPONENT_SUPPORT_GP_CANCEL:
+				SupportGpCalcCommand calc = runningCalcs.get(cmdUserId);
+				if (calc == null) {
+					sender.setEphemeral().setText("Error: No support GP calculation to cancel.").send();
+				} else {
+					calc.cancel();
 					interaction.acknowledge();
 				}
 				break;
+			case COMPONENT_SUPPORT_GP_ENABLE:
+				supportGpSwitcher.confirmSupportGpSwitch(cmdUserId, true, sender, sender).thenAccept(responded -> {
+					if (!responded) {
+						interaction.acknowledge();
+					}
+				});
+				break;
 			case COMPONENT_SUPPORT_GP_DISABLE:
-				if (!supportGpSwitcher.confirmSupportGpSwitch(cmdUserId, false, sender, sender)) {
-					interaction.acknowledge();
-				}
+				supportGpSwitcher.confirmSupportGpSwitch(cmdUserId, false, sender, sender).thenAccept(responded -> {
+					if (!responded) {
+						interaction.acknowledge();
+					}
+				});
 				break;
 		}
 	}
 
 	/**
-	 * Triggered when a new message is posted. If the message was posted on a support thread that's currently cached,
-	 * updates its total message count.
-	 * This is necessary because Javacord caches thread data, and it never updates the message count. It's also not
-	 * possible to manually request an up-to-date version of the channel.
+	 * Triggered when a new message is posted. If the message was posted on a support thread, counts it on the
+	 * message index and updates the total message count and the last message ID of the thread.
+	 * The latter is necessary because Javacord caches thread data, and it never updates those fields. It's also
+	 * not possible to manually request an up-to-date version of the channel.
 	 * @param event Message creation event
 	 */
 	private void handleThreadMessage(MessageCreateEvent event) {
 		ServerThreadChannel thread = event.getServerThreadChannel().orElse(null);
 		if (thread != null && thread.getParent().getId() == extConfig.getSupportChannelId() &&
 			!event.getMessage().getFlags().contains(MessageFlag.EPHEMERAL)) {
-			JavacordUtils.updateThreadMessageCount(thread, 1);
+			messageCounts.onMessagePosted(thread, event.getMessageId());
+			messageIndex.onMessageCreated(thread.getId(), event.getMessage());
 		}
 	}
 
 	/**
-	 * Triggered when a message is deleted. If the message was deleted on a support thread that's currently cached,
-	 * updates its total message count.
+	 * Triggered when a message is deleted. If the message was deleted on a support thread, flags the thread as
+	 * outdated on the message index and updates its total message count.
 	 * @param event Message deletion event
 	 */
 	private void handleThreadMessageDeletion(MessageDeleteEvent event) {
 		ServerThreadChannel thread = event.getServerThreadChannel().orElse(null);
 		if (thread != null && thread.getParent().getId() == extConfig.getSupportChannelId()) {
-			JavacordUtils.updateThreadMessageCount(thread, -1);
+			messageCounts.add(thread, -1);
+			messageIndex.onMessageDeleted(thread.getId());
 		}
 	}
 
+	/**
+	 * Triggered when a thread is created. Adds it to the thread catalogue if it belongs to the support channel.
+	 * @param event Thread creation event
+	 */
+	private void handleThreadCreation(ThreadCreateEvent event) {
+		event.getChannel().asServerThreadChannel().ifPresent(catalogue::onThreadChanged);
+	}
+
+	/**
+	 * Triggered when a thread is updated (including when it gets archived or unarchived). Updates it on the thread
+	 * catalogue if it belongs to the support channel.
+	 * @param event Thread update event
+	 */
+	private void handleThreadUpdate(ThreadUpdateEvent event) {
+		event.getChannel().asServerThreadChannel().ifPresent(catalogue::onThreadChanged);
+	}
+
+	/**
+	 * Triggered when a thread is deleted. Removes it from the thread catalogue.
+	 * @param event Thread deletion event
+	 */
+	private void handleThreadDeletion(ThreadDeleteEvent event) {
+		catalogue.onThreadDeleted(event.getChannel().getId());
+		messageCounts.remove(event.getChannel().getId());
+	}
+
 	private void handleContextAction(MessageContextMenuCommandEvent event) {
 		MessageContextMenuInteraction interaction = event.getMessageContextMenuInteraction();
 		ImmediateInteractionMsgSender sender = new ImmediateInteractionMsgSender(interaction);
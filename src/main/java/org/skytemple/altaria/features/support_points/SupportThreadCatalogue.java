@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.support_points;
+
+import org.apache.logging.log4j.Logger;
+import org.javacord.api.entity.channel.ServerThreadChannel;
+import org.skytemple.altaria.definitions.db.SupportThreadCatalogueDB;
+import org.skytemple.altaria.definitions.db.SupportThreadCatalogueDB.CatalogueEntry;
+import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.singletons.ExtConfig;
+import org.skytemple.altaria.utils.ArchivedThreadIterator;
+import org.skytemple.altaria.utils.Utils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local catalogue of the threads on the support channel, stored in {@link SupportThreadCatalogueDB}, so they don't
+ * need to be listed through the API every time support GP are calculated.
+ * The catalogue is updated as threads are created, updated and deleted. Since those events are missed while the bot
+ * is offline, the catalogue is also synced before being used: active threads are taken from the ones Javacord keeps
+ * cached (with their last message ID taken from {@link ThreadMessageCounts}, since Javacord doesn't update it), and
+ * archived threads are listed until reaching the ones that were archived before the previous sync, which can't have
+ * changed since then. The first sync lists all the archived threads once.
+ * All changes are performed in order on a dedicated thread, so the listeners that report changes never wait for the
+ * database.
+ */
+public class SupportThreadCatalogue {
+	// Archived threads are listed until reaching this amount of seconds before the previous sync, in case the clocks
+	// of the bot and Discord differ slightly
+	private static final long SYNC_MARGIN = 60;
+
+	private final SupportThreadCatalogueDB cdb;
+	private final ThreadMessageCounts messageCounts;
+	private final long channelId;
+	private final ExecutorService updater;
+	private final Logger logger;
+
+	/**
+	 * @param cdb Catalogue database
+	 * @param messageCounts Total message count and last message ID of each thread
+	 * @param channelId ID of the support channel
+	 */
+	public SupportThreadCatalogue(SupportThreadCatalogueDB cdb, ThreadMessageCounts messageCounts, long channelId) {
+		this.cdb = cdb;
+		this.messageCounts = messageCounts;
+		this.channelId = channelId;
+		logger = Utils.getLogger(getClass());
+		updater = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "support-thread-catalogue");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Must be called when a thread is created or updated. Threads that don't belong to the support channel are
+	 * ignored. Returns immediately, the catalogue is updated in the background.
+	 * @param thread Thread that was created or updated
+	 */
+	public void onThreadChanged(ServerThreadChannel thread) {
+		if (thread.getParent().getId() == channelId) {
+			CatalogueEntry entry = toEntry(thread);
+			updater.execute(() -> {
+				try {
+					cdb.put(Collections.singletonList(entry));
+				} catch (DbOperationException e) {
+					// The thread will be listed again on the next sync if it's archived after it
+					logger.warn("Could not update support thread " + entry.threadId() + " on the catalogue", e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Must be called when a thread is deleted. Returns immediately, the catalogue is updated in the background.
+	 * @param threadId ID of the deleted thread
+	 */
+	public void onThreadDeleted(long threadId) {
+		updater.execute(() -> {
+			try {
+				cdb.remove(threadId);
+			} catch (DbOperationException e) {
+				logger.warn("Could not remove support thread " + threadId + " from the catalogue", e);
+			}
+		});
+	}
+
+	/**
+	 * Syncs the catalogue and returns the threads on the support channel that might have messages between the two
+	 * specified timestamps.
+	 * @param startTimestamp Start of the time range, in epoch seconds
+	 * @param endTimestamp End of the time range, in epoch seconds
+	 * @return Threads found, along with the channels retrieved while syncing
+	 * @throws AsyncOperationException If the archived threads cannot be listed
+	 * @throws DbOperationException If the catalogue cannot be read or updated
+	 */
+	public synchronized Listing getThreadsBetween(long startTimestamp, long endTimestamp)
+		throws AsyncOperationException, DbOperationException {
+		long syncTime = System.currentTimeMillis() / 1000;
+		long lastSync = cdb.getLastSync(channelId);
+		Map<Long, ServerThreadChannel> channels = new HashMap<>();
+
+		for (ServerThreadChannel thread : ExtConfig.get().getServer().getThreadChannels()) {
+			if (thread.getParent().getId() == channelId) {
+				channels.put(thread.getId(), thread);
+			}
+		}
+		ArchivedThreadIterator archived = new ArchivedThreadIterator(channelId, lastSync - SYNC_MARGIN);
+		while (archived.hasNext()) {
+			ServerThreadChannel thread = archived.next();
+			channels.put(thread.getId(), thread);
+		}
+		int numRequests = archived.getNumRequests();
+
+		List<CatalogueEntry> entries = channels.values().stream().map(this::toEntry).toList();
+		try {
+			// Run on the updater so the changes are applied in order with the ones from events
+			CompletableFuture.runAsync(() -> {
+				try {
+					cdb.put(entries);
+					cdb.setLastSync(channelId, syncTime);
+				} catch (DbOperationException e) {
+					throw new CompletionException(e);
+				}
+			}, updater).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof DbOperationException dbException) {
+				throw dbException;
+			}
+			throw new AsyncOperationException(e);
+		}
+		logger.debug("Synced support thread catalogue: " + channels.size() + " threads updated with " + numRequests +
+			" API requests. Archived thread page latencies (ms): " + archived.getPageLatencies());
+
+		return new Listing(cdb.getThreadsBetween(channelId, startTimestamp, endTimestamp), channels, numRequests);
+	}
+
+	/**
+	 * Looks for specific threads among the archived threads of the support channel. Used to retrieve the channel of
+	 * threads that are on the catalogue.
+	 * @param threadIds IDs of the threads to find
+	 * @param startTimestamp Threads archived before this time, in epoch seconds, are not checked
+	 * @param found Map where the threads found will be added
+	 * @return Amount of API requests performed
+	 * @throws AsyncOperationException If the archived threads cannot be listed
+	 */
+	public int findArchivedThreads(Set<Long> threadIds, long startTimestamp, Map<Long, ServerThreadChannel> found)
+		throws AsyncOperationException {
+		Set<Long> remaining = new HashSet<>(threadIds);
+		ArchivedThreadIterator archived = new ArchivedThreadIterator(channelId, startTimestamp);
+		while (!remaining.isEmpty() && archived.hasNext()) {
+			ServerThreadChannel thread = archived.next();
+			if (remaining.remove(thread.getId())) {
+				found.put(thread.getId(), thread);
+			}
+		}
+		logger.debug("Searched " + threadIds.size() + " archived support threads, " + remaining.size() + " not " +
+			"found. Page latencies (ms): " + archived.getPageLatencies());
+		return archived.getNumRequests();
+	}
+
+	/**
+	 * @param thread Thread
+	 * @return Catalogue entry that contains the current data of the thread
+	 */
+	private CatalogueEntry toEntry(ServerThreadChannel thread) {
+		return new CatalogueEntry(thread.getId(), thread.getParent().getId(), thread.getOwnerId(),
+			thread.getMetadata().isArchived(), thread.getMetadata().getArchiveTimestamp().getEpochSecond(),
+			messageCounts.getLastMessageId(thread), messageCounts.get(thread));
+	}
+
+	/**
+	 * Threads found on the catalogue
+	 * @param threads Catalogue entries of the threads found, sorted by ID
+	 * @param channels Channels retrieved while syncing the catalogue, by thread ID. Doesn't contain the channels of
+	 *                 archived threads that haven't changed since the previous sync.
+	 * @param numRequests Amount of API requests performed
+	 */
+	public record Listing(List<CatalogueEntry> threads, Map<Long, ServerThreadChannel> channels, int numRequests) {}
+}
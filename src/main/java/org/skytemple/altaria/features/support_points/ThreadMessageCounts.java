@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.features.support_points;
+
+import org.javacord.api.entity.channel.ServerThreadChannel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the total amount of messages on threads and of the last message posted on them.
+ * Javacord caches thread data and never updates the message count or the last message ID of cached threads when
+ * messages are posted, so the count is seeded from the one reported by Javacord the first time a thread is seen, and
+ * then updated as messages are posted and deleted. The last message ID is the newest between the one reported by
+ * Javacord and the last one posted while the bot was running.
+ * This class is thread-safe. Updates to different threads never block each other.
+ */
+public class ThreadMessageCounts {
+	private final Map<Long, LongAdder> counts;
+	// ID of the last message posted on each thread since the bot started
+	private final Map<Long, Long> lastMessageIds;
+
+	public ThreadMessageCounts() {
+		counts = new ConcurrentHashMap<>();
+		lastMessageIds = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Must be called when a message is posted on a thread. Increases its message count and records the message as
+	 * the last one posted on it.
+	 * @param thread Thread where the message was posted
+	 * @param messageId ID of the message
+	 */
+	public void onMessagePosted(ServerThreadChannel thread, long messageId) {
+		getCounter(thread).increment();
+		lastMessageIds.merge(thread.getId(), messageId, Math::max);
+	}
+
+	/**
+	 * Updates the message count of a thread
+	 * @param thread Thread whose message count should be updated
+	 * @param delta Amount of messages to increase the count by. Supports negative numbers.
+	 */
+	public void add(ServerThreadChannel thread, int delta) {
+		getCounter(thread).add(delta);
+	}
+
+	/**
+	 * @param thread Thread to check
+	 * @return Total amount of messages on the thread
+	 */
+	public int get(ServerThreadChannel thread) {
+		return getCounter(thread).intValue();
+	}
+
+	/**
+	 * Returns the ID of the last message posted on a thread. Must be used instead of
+	 * {@link ServerThreadChannel#getLastMessageId()}, which is not updated when messages are posted.
+	 * @param thread Thread to check
+	 * @return ID of the last message posted on the thread, or 0 if unknown
+	 */
+	public long getLastMessageId(ServerThreadChannel thread) {
+		Long posted = lastMessageIds.get(thread.getId());
+		return posted == null ? thread.getLastMessageId() : Math.max(posted, thread.getLastMessageId());
+	}
+
+	/**
+	 * Stops keeping track of a thread
+	 * @param threadId Thread ID
+	 */
+	public void remove(long threadId) {
+		counts.remove(threadId);
+		lastMessageIds.remove(threadId);
+	}
+
+	/**
+	 * Returns the counter of a thread, creating it if it doesn't exist yet
+	 * @param thread Thread
+	 * @return Message counter of the thread
+	 */
+	private LongAdder getCounter(ServerThreadChannel thread) {
+		LongAdder counter = counts.get(thread.getId());
+		if (counter == null) {
+			// Only locks the bin of the map the thread belongs to
+			counter = counts.computeIfAbsent(thread.getId(), id -> {
+				LongAdder newCounter = new LongAdder();
+				newCounter.add(thread.getMessageCount());
+				return newCounter;
+			});
+		}
+		return counter;
+	}
+}
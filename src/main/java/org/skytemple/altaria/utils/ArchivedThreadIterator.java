@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.utils;
+
+import org.javacord.api.entity.channel.ServerThreadChannel;
+import org.javacord.api.entity.server.ArchivedThreads;
+import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
+import org.skytemple.altaria.definitions.singletons.ApiGetter;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Goes through the public archived threads of a channel, from the most recently archived to the oldest.
+ * Threads are retrieved in pages. As soon as a page is received, the next one is requested in the background, so
+ * the request runs while the threads on the current page are being processed.
+ * Since Javacord's request is blocking, each page is retrieved on Javacord's thread pool. If the caller stops early,
+ * the page being prefetched is discarded.
+ */
+public class ArchivedThreadIterator {
+	// Number of threads to get in a row when retrieving archived threads from a channel
+	private static final int PAGE_SIZE = 50;
+
+	private final long channelId;
+	private final long stopBefore;
+	private final Executor executor;
+	private final List<Long> pageLatencies;
+
+	private List<ServerThreadChannel> page;
+	private int pos;
+	// Page currently being retrieved, or null if there are no more pages to retrieve
+	private CompletableFuture<Page> nextPage;
+	private int numRequests;
+
+	/**
+	 * Creates a new iterator. The first page is requested right away.
+	 * @param channelId ID of the channel to check. Should correspond to a text channel or a forum channel
+	 * @param stopBefore Epoch timestamp, in seconds. The iteration stops once it reaches a thread archived before this
+	 *                   time, and no pages past that point are requested. 0 to go through the whole archive.
+	 */
+	public ArchivedThreadIterator(long channelId, long stopBefore) {
+		this.channelId = channelId;
+		this.stopBefore = stopBefore;
+		executor = ApiGetter.get().getThreadPool().getExecutorService();
+		pageLatencies = new ArrayList<>();
+		page = Collections.emptyList();
+		pos = 0;
+		nextPage = fetch(Instant.now());
+	}
+
+	/**
+	 * @return True if there are more threads to go through. Waits for the next page if needed.
+	 * @throws AsyncOperationException If the next page cannot be retrieved
+	 */
+	public boolean hasNext() throws AsyncOperationException {
+		while (pos >= page.size()) {
+			if (nextPage == null) {
+				return false;
+			}
+			Page fetched;
+			try {
+				fetched = nextPage.join();
+			} catch (CompletionException e) {
+				nextPage = null;
+				if (e.getCause() instanceof AsyncOperationException asyncException) {
+					throw asyncException;
+				}
+				throw new AsyncOperationException(e);
+			}
+			page = fetched.threads();
+			pos = 0;
+			pageLatencies.add(TimeUnit.NANOSECONDS.toMillis(fetched.latency()));
+
+			// Threads are sorted by archive time, so the next page starts where this one ends. The full archive time
+			// is used, since truncating it to seconds would skip threads archived earlier within the same second.
+			Instant lastArchiveTime = page.isEmpty() ? Instant.EPOCH :
+				page.get(page.size() - 1).getMetadata().getArchiveTimestamp();
+			if (fetched.hasMore() && !page.isEmpty() && lastArchiveTime.getEpochSecond() >= stopBefore) {
+				nextPage = fetch(lastArchiveTime);
+			} else {
+				nextPage = null;
+			}
+		}
+		if (getArchiveTimestamp(page.get(pos)) < stopBefore) {
+			page = Collections.emptyList();
+			nextPage = null;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return Next thread
+	 * @throws AsyncOperationException If the next page cannot be retrieved
+	 * @throws NoSuchElementException If there are no more threads
+	 */
+	public ServerThreadChannel next() throws AsyncOperationException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.get(pos++);
+	}
+
+	/**
+	 * @return Amount of API requests performed so far, including the one for the page being prefetched, if any
+	 */
+	public int getNumRequests() {
+		return numRequests;
+	}
+
+	/**
+	 * @return Time it took to retrieve each of the pages received so far, in milliseconds
+	 */
+	public List<Long> getPageLatencies() {
+		return Collections.unmodifiableList(pageLatencies);
+	}
+
+	/**
+	 * Requests a page in the background
+	 * @param before Return threads archived before this time
+	 * @return Future that completes with the page
+	 */
+	private CompletableFuture<Page> fetch(Instant before) {
+		numRequests++;
+		return CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+			ArchivedThreads result = JavacordUtils.getPublicArchivedThreads(channelId, before, PAGE_SIZE);
+			if (result == null) {
+				throw new CompletionException(new AsyncOperationException("Cannot retrieve archived threads from " +
+					"channel " + channelId));
+			}
+			return new Page(result.getServerThreadChannels(), result.hasMoreThreads(), System.nanoTime() - start);
+		}, executor);
+	}
+
+	private static long getArchiveTimestamp(ServerThreadChannel thread) {
+		return thread.getMetadata().getArchiveTimestamp().getEpochSecond();
+	}
+
+	/**
+	 * A page of archived threads
+	 * @param threads Threads on the page, from the most recently archived to the oldest
+	 * @param hasMore True if there are more threads after this page
+	 * @param latency Time it took to retrieve the page, in nanoseconds
+	 */
+	private record Page(List<ServerThreadChannel> threads, boolean hasMore, long latency) {}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024. Frostbyte and other contributors.
+ * Copyright (c) 2023-2026. Frostbyte and other contributors.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published
@@ -17,7 +17,6 @@
 
 package org.skytemple.altaria.utils;
 
-import org.apache.logging.log4j.Logger;
 import org.javacord.api.DiscordApi;
 import org.javacord.api.entity.DiscordEntity;
 import org.javacord.api.entity.channel.ServerThreadChannel;
@@ -29,45 +28,22 @@ import org.javacord.api.entity.server.ArchivedThreads;
 import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
 import org.skytemple.altaria.definitions.ErrorHandler;
-import org.skytemple.altaria.definitions.exceptions.AsyncOperationException;
+import org.skytemple.altaria.definitions.exceptions.FatalErrorException;
 import org.skytemple.altaria.definitions.singletons.ApiGetter;
 import org.skytemple.altaria.definitions.singletons.ExtConfig;
 
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 /**
  * Convenience methods and workarounds for Javacord operations
  */
 public class JavacordUtils {
-	// Number of threads to get in a row when retrieving archived threads from a channel
-	private static final int GET_THREADS_BATCH = 50;
-	private static final Object updateThreadMessagesLock = new Object();
-
-	/**
-	 * Given a thread and an amount of messages posted, increases the total message count on the thread by that amount.
-	 * This method is thread-safe.
-	 * @param thread Thread whose message count should be updated
-	 * @param messageCountDelta Amount of messages to increase the count by. Supports negative numbers.
-	 */
-	public static void updateThreadMessageCount(ServerThreadChannel thread, int messageCountDelta) {
-		//noinspection OverlyBroadCatchBlock
-		try {
-			synchronized (updateThreadMessagesLock) {
-				int newMessageCount = thread.getMessageCount() + messageCountDelta;
-				// Suggestions welcome
-				Object threadImpl = Class.forName("org.javacord.core.entity.channel.ServerThreadChannelImpl").cast(thread);
-				threadImpl.getClass().getMethod("setMessageCount", int.class).invoke(threadImpl, newMessageCount);
-			}
-		} catch (ReflectiveOperationException e) {
-			new ErrorHandler(e).printToErrorChannel().run();
-		}
-	}
 
 	/**
 	 * Given a thread, returns the ID of the last message posted on it.
@@ -87,86 +63,16 @@ public class JavacordUtils {
 	}
 
 	/**
-	 * Given a channel, gets all the public threads in it that have at least one message between the two
-	 * specified timestamps.
-	 * @param channelId Id of the channel whose threads should be checked
-	 * @param startTime Start time, in epoch seconds
-	 * @param endTime End time, in epoch seconds
-	 * @return List of public threads in that channel, archived or not.
-	 * @throws AsyncOperationException If any of the API requests performed in this method fails for whatever reason.
+	 * Resolves the handles used to access Javacord internals. Should be called on startup, so an incompatible Javacord
+	 * version is detected right away instead of the first time one of the workarounds in this class is used.
+	 * @throws FatalErrorException If any of the Javacord internals used by the bot cannot be accessed
 	 */
-	public static List<ServerThreadChannel> getPublicThreadsBetween(Long channelId, long startTime,
-		long endTime) throws AsyncOperationException {
-		Server server = ExtConfig.get().getServer();
-		List<ServerThreadChannel> ret = new ArrayList<>();
-		Logger logger = Utils.getLogger(DiscordUtils.class);
-
-		// Get public threads from the server (they can't be obtained from a channel directly)
-		List<ServerThreadChannel> serverThreads;
+	public static void init() {
 		try {
-			serverThreads = server.getActiveThreads().join().getServerThreadChannels();
-		} catch (CompletionException e) {
-			throw new AsyncOperationException(e);
-		}
-		for (ServerThreadChannel thread : serverThreads) {
-			// Keep only the ones in the channel we care about
-			if (thread.getParent().getId() == channelId) {
-				// Keep only the ones with messages between the specified time range
-				if (thread.getCreationTimestamp().getEpochSecond() < endTime) {
-					Long lastMessageId;
-					try {
-						lastMessageId = getLastMessageId(thread).get().orElse(null);
-					} catch (ExecutionException | InterruptedException e) {
-						throw new AsyncOperationException(e);
-					}
-					if (lastMessageId != null && DiscordUtils.snowflakeToTimestamp(lastMessageId) > startTime) {
-						ret.add(thread);
-						logger.trace("Get thread: " + thread.getName() + " (OPEN)");
-					}
-				}
-			}
+			Internals.init();
+		} catch (ExceptionInInitializerError e) {
+			throw (FatalErrorException) e.getCause();
 		}
-
-		// Get archived public threads from the channel
-		long getThreadsBefore = System.currentTimeMillis() / 1000;
-		boolean done = false;
-		while (!done) {
-			List<ServerThreadChannel> currentThreads;
-			try {
-				ArchivedThreads requestResult = getPublicArchivedThreads(channelId, getThreadsBefore, GET_THREADS_BATCH);
-				if (requestResult == null) {
-					throw new AsyncOperationException();
-				}
-				done = !requestResult.hasMoreThreads();
-				currentThreads = requestResult.getServerThreadChannels();
-			} catch (CompletionException e) {
-				throw new AsyncOperationException(e);
-			}
-			for (ServerThreadChannel thread : currentThreads) {
-				getThreadsBefore = DiscordUtils.snowflakeToTimestamp(thread.getId());
-
-				if (thread.getMetadata().getArchiveTimestamp().getEpochSecond() >= startTime) {
-					long threadCreationTime = DiscordUtils.snowflakeToTimestamp(thread.getId());
-					if (threadCreationTime < endTime) {
-						Long lastMessageId;
-						try {
-							lastMessageId = getLastMessageId(thread).get().orElse(null);
-						} catch (ExecutionException | InterruptedException e) {
-							throw new AsyncOperationException(e);
-						}
-						if (lastMessageId != null && DiscordUtils.snowflakeToTimestamp(lastMessageId) > startTime) {
-							ret.add(thread);
-							logger.trace("Get thread: " + thread.getName() + " (ARCHIVED)");
-						}
-					}
-				} else {
-					done = true;
-					break;
-				}
-			}
-		}
-
-		return ret;
 	}
 
 	/**
@@ -174,52 +80,48 @@ public class JavacordUtils {
 	 * {@link org.javacord.api.entity.channel.ServerTextChannel#getPublicArchivedThreads(Long, Integer)}.
 	 * Returns archived threads in the specified channel that are public. The operation is synchronous.
 	 * @param channelId ID of the channel to check. Should correspond to a text channel or a forum channel
-	 * @param before Return threads archived before this Unix timestamp (in seconds)
+	 * @param before Return threads archived before this time. Sent with full precision, so threads archived earlier
+	 *               within the same second are not skipped.
 	 * @param limit Maximum amount of threads to return
 	 * @return List of threads
 	 */
-	public static ArchivedThreads getPublicArchivedThreads(long channelId, long before, int limit) {
-		String channelIdStr = String.valueOf(channelId);
-		String beforeStr = Instant.ofEpochSecond(before).toString();
-		String limitStr = String.valueOf(limit);
+	public static ArchivedThreads getPublicArchivedThreads(long channelId, Instant before, int limit) {
 		DiscordApi api = ApiGetter.get();
 		Server server = ExtConfig.get().getServer();
 
-		//noinspection OverlyBroadCatchBlock
 		try {
 			// :realshaymin:
-			Class<?> restMethodClass = Class.forName("org.javacord.core.util.rest.RestMethod");
-			Object restMethodGet = restMethodClass.getDeclaredMethod("valueOf", String.class).invoke(restMethodClass, "GET");
-			Class<?> restEndpointClass = Class.forName("org.javacord.core.util.rest.RestEndpoint");
-			Class<?> restRequestClass = Class.forName("org.javacord.core.util.rest.RestRequest");
-			Class<?> restRequestResultClass = Class.forName("org.javacord.core.util.rest.RestRequestResult");
-			Class<?> archivedThreadsImplClass = Class.forName("org.javacord.core.entity.server.ArchivedThreadsImpl");
-			Class<?> discordApiImplClass = Class.forName("org.javacord.core.DiscordApiImpl");
-			Class<?> serverImplClass = Class.forName("org.javacord.core.entity.server.ServerImpl");
-			Class<?> jsonNodeClass = Class.forName("com.fasterxml.jackson.databind.JsonNode");
-
-			Object restEndpointPublicArchivedThreads = restEndpointClass.getDeclaredMethod("valueOf", String.class)
-				.invoke(restEndpointClass, "LIST_PUBLIC_ARCHIVED_THREADS");
-			@SuppressWarnings("JavaReflectionInvocation")
-			Object restRequest = restRequestClass.getDeclaredConstructor(DiscordApi.class, restMethodClass, restEndpointClass)
-				.newInstance(api, restMethodGet, restEndpointPublicArchivedThreads);
-			restRequestClass.getMethod("setUrlParameters", String[].class).invoke(restRequest, (Object) new String[]{channelIdStr});
-			restRequestClass.getMethod("addQueryParameter", String.class, String.class).invoke(restRequest, "before", beforeStr);
-			restRequestClass.getMethod("addQueryParameter", String.class, String.class).invoke(restRequest, "limit", limitStr);
-			Object result = restRequestClass.getMethod("executeBlocking").invoke(restRequest);
-			Object resultJson = restRequestResultClass.getMethod("getJsonBody").invoke(result);
-
-			@SuppressWarnings("JavaReflectionInvocation")
-			Object archivedThreadsImpl = archivedThreadsImplClass.getDeclaredConstructor(
-					discordApiImplClass, serverImplClass, jsonNodeClass)
-				.newInstance(discordApiImplClass.cast(api), serverImplClass.cast(server), resultJson);
-			return (ArchivedThreads) archivedThreadsImpl;
-		} catch (ReflectiveOperationException e) {
+			Object restRequest = createPublicArchivedThreadsRequest(api, channelId, before, limit);
+			Object result = (Object) Internals.EXECUTE_BLOCKING.invokeExact(restRequest);
+			Object resultJson = (Object) Internals.GET_JSON_BODY.invokeExact(result);
+			return (ArchivedThreads) Internals.NEW_ARCHIVED_THREADS.invokeExact(api, server, resultJson);
+		} catch (Throwable e) {
+			// Same errors that used to be reported wrapped in an InvocationTargetException
 			new ErrorHandler(e).printToErrorChannel().run();
 			return null;
 		}
 	}
 
+	/**
+	 * Creates the request sent by {@link #getPublicArchivedThreads(long, Instant, int)}, without sending it.
+	 * Package-private so it can be benchmarked.
+	 * @param api Discord API instance
+	 * @param channelId ID of the channel to check
+	 * @param before Return threads archived before this time
+	 * @param limit Maximum amount of threads to return
+	 * @return Javacord request object
+	 * @throws Throwable Any error thrown by Javacord while creating the request
+	 */
+	static Object createPublicArchivedThreadsRequest(DiscordApi api, long channelId, Instant before, int limit)
+		throws Throwable {
+		Object restRequest = (Object) Internals.NEW_REST_REQUEST.invokeExact(api, Internals.REST_METHOD_GET,
+			Internals.LIST_PUBLIC_ARCHIVED_THREADS);
+		Internals.SET_URL_PARAMETERS.invokeExact(restRequest, new String[]{String.valueOf(channelId)});
+		Internals.ADD_QUERY_PARAMETER.invokeExact(restRequest, "before", before.toString());
+		Internals.ADD_QUERY_PARAMETER.invokeExact(restRequest, "limit", String.valueOf(limit));
+		return restRequest;
+	}
+
 	/**
 	 * Working version of {@link ServerThreadChannel#updateName(String)}.
 	 * Renames a server thread
@@ -228,19 +130,11 @@ public class JavacordUtils {
 	 * @param auditLogReason Reason to log in the audit log, or null to skip logging a reason.
 	 * @return CompletableFuture to check if the update was successful
 	 */
-	public static CompletableFuture<Void> updateThreadName(ServerThreadChannel thread, String name, String auditLogReason) {
+	public static CompletableFuture<Void> updateThreadName(ServerThreadChannel thread, String name,
+		String auditLogReason) {
 		ServerThreadChannelUpdater updater = thread.createUpdater();
-		ServerThreadChannelUpdaterDelegate delegate;
-
-		//noinspection OverlyBroadCatchBlock
-		try {
-			Field delegateField = updater.getClass().getDeclaredField("delegate");
-			delegateField.setAccessible(true);
-			delegate = (ServerThreadChannelUpdaterDelegate) delegateField.get(updater);
-		} catch (ReflectiveOperationException e) {
-			new ErrorHandler(e).printToErrorChannel().run();
-			return CompletableFuture.failedFuture(e);
-		}
+		ServerThreadChannelUpdaterDelegate delegate =
+			(ServerThreadChannelUpdaterDelegate) Internals.UPDATER_DELEGATE.get(updater);
 
 		delegate.setName(name);
 		if (auditLogReason != null) {
@@ -249,16 +143,6 @@ public class JavacordUtils {
 		return delegate.update();
 	}
 
-	/**
-	 * @return Set containing the IDs of all banned users in the server
-	 * @throws ExecutionException If the ban retrieval operation failed
-	 * @throws InterruptedException If the ban retrieval operation failed
-	 */
-	public static Set<Long> getBannedUsersIDs() throws ExecutionException, InterruptedException {
-		Server server = ExtConfig.get().getServer();
-		return server.getBans().get().stream().map(ban -> ban.getUser().getId()).collect(Collectors.toSet());
-	}
-
 	/**
 	 * Checks if a user has at least one role that grants the specified permission.
 	 * @param user User to check permissions for
@@ -274,4 +158,75 @@ public class JavacordUtils {
 		}
 		return false;
 	}
+
+	/**
+	 * Handles used to access Javacord internals that are not part of its API. Resolved once when the class is
+	 * initialized, with their types erased to the public types used by the bot so they can be invoked exactly.
+	 */
+	private static final class Internals {
+		static final Object REST_METHOD_GET;
+		static final Object LIST_PUBLIC_ARCHIVED_THREADS;
+		// (DiscordApi, RestMethod, RestEndpoint) -> RestRequest
+		static final MethodHandle NEW_REST_REQUEST;
+		// (RestRequest, String[]) -> void
+		static final MethodHandle SET_URL_PARAMETERS;
+		// (RestRequest, String, String) -> void
+		static final MethodHandle ADD_QUERY_PARAMETER;
+		// (RestRequest) -> RestRequestResult
+		static final MethodHandle EXECUTE_BLOCKING;
+		// (RestRequestResult) -> JsonNode
+		static final MethodHandle GET_JSON_BODY;
+		// (DiscordApi, Server, JsonNode) -> ArchivedThreads
+		static final MethodHandle NEW_ARCHIVED_THREADS;
+		// ServerThreadChannelUpdater.delegate
+		static final VarHandle UPDATER_DELEGATE;
+
+		static {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				Class<?> restMethodClass = Class.forName("org.javacord.core.util.rest.RestMethod");
+				Class<?> restEndpointClass = Class.forName("org.javacord.core.util.rest.RestEndpoint");
+				Class<?> restRequestClass = Class.forName("org.javacord.core.util.rest.RestRequest");
+				Class<?> restRequestResultClass = Class.forName("org.javacord.core.util.rest.RestRequestResult");
+				Class<?> archivedThreadsImplClass =
+					Class.forName("org.javacord.core.entity.server.ArchivedThreadsImpl");
+				Class<?> discordApiImplClass = Class.forName("org.javacord.core.DiscordApiImpl");
+				Class<?> serverImplClass = Class.forName("org.javacord.core.entity.server.ServerImpl");
+				Class<?> jsonNodeClass = Class.forName("com.fasterxml.jackson.databind.JsonNode");
+
+				REST_METHOD_GET = restMethodClass.getField("GET").get(null);
+				LIST_PUBLIC_ARCHIVED_THREADS = restEndpointClass.getField("LIST_PUBLIC_ARCHIVED_THREADS").get(null);
+				NEW_REST_REQUEST = lookup.findConstructor(restRequestClass,
+						MethodType.methodType(void.class, DiscordApi.class, restMethodClass, restEndpointClass))
+					.asType(MethodType.methodType(Object.class, DiscordApi.class, Object.class, Object.class));
+				SET_URL_PARAMETERS = lookup.findVirtual(restRequestClass, "setUrlParameters",
+						MethodType.methodType(restRequestClass, String[].class))
+					.asFixedArity()
+					.asType(MethodType.methodType(void.class, Object.class, String[].class));
+				ADD_QUERY_PARAMETER = lookup.findVirtual(restRequestClass, "addQueryParameter",
+						MethodType.methodType(restRequestClass, String.class, String.class))
+					.asType(MethodType.methodType(void.class, Object.class, String.class, String.class));
+				EXECUTE_BLOCKING = lookup.findVirtual(restRequestClass, "executeBlocking",
+						MethodType.methodType(restRequestResultClass))
+					.asType(MethodType.methodType(Object.class, Object.class));
+				GET_JSON_BODY = lookup.findVirtual(restRequestResultClass, "getJsonBody",
+						MethodType.methodType(jsonNodeClass))
+					.asType(MethodType.methodType(Object.class, Object.class));
+				NEW_ARCHIVED_THREADS = lookup.findConstructor(archivedThreadsImplClass,
+						MethodType.methodType(void.class, discordApiImplClass, serverImplClass, jsonNodeClass))
+					.asType(MethodType.methodType(ArchivedThreads.class, DiscordApi.class, Server.class, Object.class));
+				UPDATER_DELEGATE = MethodHandles.privateLookupIn(ServerThreadChannelUpdater.class, lookup)
+					.findVarHandle(ServerThreadChannelUpdater.class, "delegate",
+						ServerThreadChannelUpdaterDelegate.class);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				throw new FatalErrorException("Cannot access the Javacord internals required by the bot. The " +
+					"current Javacord version is probably incompatible.", e);
+			}
+		}
+
+		/**
+		 * Does nothing, but calling it forces the class to be initialized
+		 */
+		static void init() {}
+	}
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongDoubleCacheTest {
+	private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+	@Test
+	void testGetMissing() {
+		LongDoubleCache cache = new LongDoubleCache(16, NO_EXPIRY);
+		assertTrue(Double.isNaN(cache.get(123)));
+		assertEquals(1, cache.getStats().misses());
+	}
+
+	@Test
+	void testPutAndGet() {
+		LongDoubleCache cache = new LongDoubleCache(16, NO_EXPIRY);
+		cache.put(123, 4.5);
+		cache.put(123, 7.25);
+		assertEquals(7.25, cache.get(123), 1.0e-6);
+		assertEquals(1, cache.getStats().hits());
+		assertEquals(1, cache.getStats().size());
+	}
+
+	@Test
+	void testAddIfPresent() {
+		LongDoubleCache cache = new LongDoubleCache(16, NO_EXPIRY);
+		cache.put(123, 1);
+		cache.addIfPresent(123, 2);
+		cache.addIfPresent(456, 2);
+		assertEquals(3, cache.get(123), 1.0e-6);
+		assertTrue(Double.isNaN(cache.get(456)));
+	}
+
+	@Test
+	void testRemove() {
+		LongDoubleCache cache = new LongDoubleCache(16, NO_EXPIRY);
+		cache.put(123, 1);
+		cache.remove(123);
+		assertTrue(Double.isNaN(cache.get(123)));
+	}
+
+	@Test
+	void testSizeBound() {
+		LongDoubleCache cache = new LongDoubleCache(16, NO_EXPIRY);
+		for (long key = 1; key <= 1000; key++) {
+			cache.put(key, key);
+		}
+		LongDoubleCache.Stats stats = cache.getStats();
+		assertTrue(stats.size() <= stats.capacity());
+		assertEquals(1000 - stats.size(), stats.evictions());
+		// The most recently inserted entry is never evicted
+		assertEquals(1000, cache.get(1000), 1.0e-6);
+	}
+
+	@Test
+	void testExpiry() {
+		// Negative TTL, so entries are already expired when they are written
+		LongDoubleCache cache = new LongDoubleCache(16, -1);
+		cache.put(123, 1);
+		assertTrue(Double.isNaN(cache.get(123)));
+	}
+
+	@Test
+	void testReservedKey() {
+		LongDoubleCache cache = new LongDoubleCache(16, NO_EXPIRY);
+		assertThrows(IllegalArgumentException.class, () -> cache.put(0, 1));
+	}
+}
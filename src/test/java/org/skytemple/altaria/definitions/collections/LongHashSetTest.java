@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashSetTest {
+	@Test
+	void testAddAndContains() {
+		LongHashSet set = new LongHashSet();
+		assertFalse(set.contains(123));
+		assertTrue(set.add(123));
+		assertFalse(set.add(123));
+		assertTrue(set.contains(123));
+		assertEquals(1, set.size());
+	}
+
+	@Test
+	void testReservedKey() {
+		LongHashSet set = new LongHashSet();
+		assertThrows(IllegalArgumentException.class, () -> set.add(0));
+		assertFalse(set.contains(0));
+		assertFalse(set.remove(0));
+	}
+
+	@Test
+	void testRemove() {
+		LongHashSet set = new LongHashSet();
+		set.add(123);
+		assertTrue(set.remove(123));
+		assertFalse(set.remove(123));
+		assertFalse(set.contains(123));
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	void testMatchesHashSet() {
+		LongHashSet set = new LongHashSet(4);
+		Set<Long> expected = new HashSet<>();
+		Random random = new Random(0);
+		// Snowflake-like keys that only differ on the upper bits, so removals have to shift colliding entries back
+		for (int i = 0; i < 20000; i++) {
+			long key = (random.nextInt(2000) + 1L) << 22;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), set.remove(key));
+			} else {
+				assertEquals(expected.add(key), set.add(key));
+			}
+		}
+		assertEquals(expected.size(), set.size());
+		for (long key = 1; key <= 2000; key++) {
+			assertEquals(expected.contains(key << 22), set.contains(key << 22));
+		}
+
+		Set<Long> actual = new HashSet<>();
+		set.forEach(actual::add);
+		assertEquals(expected, actual);
+	}
+}
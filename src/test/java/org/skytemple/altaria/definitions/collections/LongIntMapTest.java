@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntMapTest {
+	@Test
+	void testGetMissing() {
+		LongIntMap map = new LongIntMap();
+		assertEquals(0, map.get(123));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	void testAdd() {
+		LongIntMap map = new LongIntMap();
+		assertEquals(2, map.add(123, 2));
+		assertEquals(5, map.add(123, 3));
+		assertEquals(5, map.get(123));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void testPutIfAbsent() {
+		LongIntMap map = new LongIntMap();
+		assertEquals(0, map.putIfAbsent(123, 4));
+		assertEquals(4, map.putIfAbsent(123, 7));
+		assertEquals(4, map.get(123));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void testReservedKey() {
+		LongIntMap map = new LongIntMap();
+		assertThrows(IllegalArgumentException.class, () -> map.add(0, 1));
+	}
+
+	@Test
+	void testGrow() {
+		LongIntMap map = new LongIntMap(4);
+		Map<Long, Integer> expected = new HashMap<>();
+		// Snowflake-like keys that only differ on the upper bits
+		for (long i = 1; i <= 1000; i++) {
+			map.add(i << 22, (int) i);
+			map.add(i << 22, 1);
+			expected.put(i << 22, (int) i + 1);
+		}
+		assertEquals(1000, map.size());
+
+		Map<Long, Integer> actual = new HashMap<>();
+		map.forEach(actual::put);
+		assertEquals(expected, actual);
+	}
+}
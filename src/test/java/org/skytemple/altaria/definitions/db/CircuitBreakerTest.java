@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.junit.jupiter.api.Test;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+import org.skytemple.altaria.definitions.exceptions.DbUnavailableException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+	private static final CircuitBreaker.TransitionListener NO_LISTENER = new CircuitBreaker.TransitionListener() {
+		@Override
+		public void onOpen(int numFailures, Throwable cause) {}
+
+		@Override
+		public void onClose(long downtime) {}
+	};
+
+	@Test
+	void testOpensAfterThreshold() {
+		CircuitBreaker breaker = new CircuitBreaker(3, () -> {
+			throw new DbOperationException("Unreachable");
+		}, NO_LISTENER);
+		breaker.recordFailure(new Exception());
+		breaker.recordFailure(new Exception());
+		assertDoesNotThrow(breaker::checkAvailable);
+		breaker.recordFailure(new Exception());
+		assertThrows(DbUnavailableException.class, breaker::checkAvailable);
+
+		CircuitBreaker.Stats stats = breaker.getStats();
+		assertTrue(stats.open());
+		assertEquals(1, stats.timesOpened());
+		assertEquals(1, stats.rejected());
+	}
+
+	@Test
+	void testSuccessResetsFailures() {
+		CircuitBreaker breaker = new CircuitBreaker(2, () -> {}, NO_LISTENER);
+		breaker.recordFailure(new Exception());
+		breaker.recordSuccess();
+		breaker.recordFailure(new Exception());
+		assertDoesNotThrow(breaker::checkAvailable);
+	}
+
+	@Test
+	void testClosesAfterSuccessfulProbe() throws InterruptedException {
+		AtomicBoolean reachable = new AtomicBoolean(false);
+		CountDownLatch closed = new CountDownLatch(1);
+		CircuitBreaker breaker = new CircuitBreaker(1, () -> {
+			if (!reachable.get()) {
+				throw new DbOperationException("Unreachable");
+			}
+		}, new CircuitBreaker.TransitionListener() {
+			@Override
+			public void onOpen(int numFailures, Throwable cause) {}
+
+			@Override
+			public void onClose(long downtime) {
+				closed.countDown();
+			}
+		});
+		breaker.recordFailure(new Exception());
+		assertThrows(DbUnavailableException.class, breaker::checkAvailable);
+
+		reachable.set(true);
+		assertTrue(closed.await(10, TimeUnit.SECONDS));
+		assertDoesNotThrow(breaker::checkAvailable);
+		assertEquals(1, breaker.getStats().timesClosed());
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.db;
+
+import org.junit.jupiter.api.Test;
+import org.skytemple.altaria.definitions.db.ReputationDB.RankEntry;
+import org.skytemple.altaria.definitions.exceptions.DbOperationException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankCacheTest {
+	private static final long TTL = TimeUnit.MINUTES.toNanos(10);
+
+	@Test
+	void testCachedCheckDoesNotQuery() throws DbOperationException {
+		RankCache cache = new RankCache(16, TTL);
+		AtomicInteger queries = new AtomicInteger();
+		Database.DbSupplier<RankEntry> loader = () -> {
+			queries.incrementAndGet();
+			return new RankEntry(10, 3);
+		};
+
+		assertEquals(new RankEntry(10, 3), cache.get(1, loader));
+		assertEquals(new RankEntry(10, 3), cache.get(1, loader));
+		assertEquals(1, queries.get());
+	}
+
+	@Test
+	void testInvalidate() throws DbOperationException {
+		RankCache cache = new RankCache(16, TTL);
+		cache.get(1, () -> new RankEntry(10, 3));
+		cache.get(2, () -> new RankEntry(20, 1));
+		cache.invalidate();
+
+		// Changing the points of any user can change the position of everyone else
+		assertEquals(new RankEntry(10, 4), cache.get(1, () -> new RankEntry(10, 4)));
+		assertEquals(new RankEntry(20, 2), cache.get(2, () -> new RankEntry(20, 2)));
+	}
+
+	@Test
+	void testLoadDuringInvalidateIsNotCached() throws DbOperationException {
+		RankCache cache = new RankCache(16, TTL);
+		// Simulates points being added while the entry is being loaded
+		cache.get(1, () -> {
+			cache.invalidate();
+			return new RankEntry(10, 3);
+		});
+		assertEquals(new RankEntry(15, 2), cache.get(1, () -> new RankEntry(15, 2)));
+	}
+
+	@Test
+	void testEmptyResultNotCached() throws DbOperationException {
+		RankCache cache = new RankCache(16, TTL);
+		assertNull(cache.get(1, () -> null));
+		assertEquals(new RankEntry(5, 1), cache.get(1, () -> new RankEntry(5, 1)));
+	}
+
+	@Test
+	void testExpiredEntryReloaded() throws DbOperationException {
+		RankCache cache = new RankCache(16, 0);
+		cache.get(1, () -> new RankEntry(10, 3));
+		assertEquals(new RankEntry(10, 2), cache.get(1, () -> new RankEntry(10, 2)));
+	}
+
+	@Test
+	void testLoaderErrorNotCached() throws DbOperationException {
+		RankCache cache = new RankCache(16, TTL);
+		assertThrows(DbOperationException.class, () -> cache.get(1, () -> {
+			throw new DbOperationException("Unreachable");
+		}));
+		assertEquals(new RankEntry(10, 3), cache.get(1, () -> new RankEntry(10, 3)));
+	}
+}
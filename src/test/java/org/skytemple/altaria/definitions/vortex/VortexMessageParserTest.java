@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.definitions.vortex;
+
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.user.User;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.skytemple.altaria.definitions.singletons.ApiGetter;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link VortexMessageParser} returns the same results as the regex-based parsers it replaced, which are
+ * copied below.
+ */
+public class VortexMessageParserTest {
+	private static final Pattern STRIKE_MSG_STRIKE =
+		Pattern.compile("\\*\\*(?<moderator>.+)\\*\\*(#\\d+)? (gave|pardoned) `(\\d+)` strikes `\\[.+]` (to|from) " +
+			"\\*\\*(?<username>.+)\\*\\*(#\\d+)? \\(ID:(?<id>\\d+)\\)");
+	private static final Pattern STRIKE_MSG_OTHER_PUNISHMENT =
+		Pattern.compile("\\*\\*(?<moderator>.+)\\*\\*(#\\d+)? (kicked|tempmuted|muted|tempbanned|banned) " +
+			"\\*\\*(?<username>.+)\\*\\*(#\\d+)? \\(ID:(?<id>\\d+)\\)");
+	@SuppressWarnings("UnnecessaryUnicodeEscape")
+	private static final Pattern STRIKE_MSG_STRIKE_CHANGE_1 = Pattern.compile("`\\[(\\d+) \u2192 (\\d+)]`");
+	@SuppressWarnings("UnnecessaryUnicodeEscape")
+	private static final Pattern STRIKE_MSG_STRIKE_CHANGE_2 = Pattern.compile("\\[(\\d+) \u2192 (\\d+) strikes]");
+	private static final Pattern STRIKE_MSG_STRIKES = Pattern.compile("gave `(\\d+)` strikes");
+	private static final Pattern STRIKE_MSG_USER_ID = Pattern.compile("\\(ID:(\\d+)\\)");
+	private static final Pattern STRIKE_MSG_REASON = Pattern.compile("`\\[ Reason ]` (.*)");
+
+	@SuppressWarnings("UnnecessaryUnicodeEscape")
+	private static final String ARROW = "\u2192";
+	private static final String PREFIX = "`[18:04:51]` `[1542]` :triangular_flag_on_post: ";
+
+	// Formats posted by Vortex on the moderation log, along with messages that must be rejected
+	private static final List<String> CORPUS = List.of(
+		PREFIX + "**Moderator**#1234 gave `1` strikes `[0 " + ARROW + " 1]` to **User**#5678 (ID:123456789012345678)" +
+			"\n`[ Reason ]` Spamming in #general",
+		PREFIX + "**mod.name** gave `2` strikes `[1 " + ARROW + " 3]` to **user_name** (ID:987654321098765432)\n" +
+			"`[ Reason ]` Rule 3",
+		PREFIX + "**Some Mod** gave `3` strikes `[10 " + ARROW + " 13]` to **Some User 42** (ID:1)\n`[ Reason ]` ",
+		"`[02:11:09]` `[77]` :wastebasket: **Moderator** pardoned `1` strikes `[3 " + ARROW + " 2]` from **User** " +
+			"(ID:223456789012345678)\n`[ Reason ]` Appeal accepted",
+		"`[02:11:09]` `[78]` :hammer: **Vortex**#2501 banned **User**#0001 (ID:323456789012345678)\n`[ Reason ]` [4 " +
+			ARROW + " 5 strikes] Posting NSFW",
+		"`[02:11:09]` `[79]` :mute: **Vortex**#2501 tempmuted **User** (ID:423456789012345678) for 10 minutes\n" +
+			"`[ Reason ]` [2 " + ARROW + " 3 strikes] Spam",
+		"`[02:11:09]` `[80]` :mute: **Vortex** muted **User** (ID:523456789012345678)\n`[ Reason ]` [1 " + ARROW +
+			" 2 strikes]",
+		"`[02:11:09]` `[81]` :boot: **Altaria**#0 kicked **User** (ID:623456789012345678)\n`[ Reason ]` [3 " + ARROW +
+			" 4 strikes] Repeated spam",
+		"`[02:11:09]` `[82]` :hammer: **Vortex** tempbanned **User** (ID:723456789012345678) for 7 days\n" +
+			"`[ Reason ]` [5 " + ARROW + " 6 strikes] Harassment",
+		// Both strike change formats, the one with backticks takes priority
+		"**Vortex** banned **User** (ID:823456789012345678)\n`[ Reason ]` [4 " + ARROW + " 5 strikes] see `[1 " +
+			ARROW + " 2]`",
+		// Windows line endings
+		PREFIX + "**Moderator** gave `1` strikes `[0 " + ARROW + " 1]` to **User** (ID:923456789012345678)\r\n" +
+			"`[ Reason ]` Off-topic\r\n",
+		// No reason
+		PREFIX + "**Moderator** gave `1` strikes `[0 " + ARROW + " 1]` to **User** (ID:113456789012345678)",
+		// Usernames that contain characters used by the format
+		PREFIX + "**Mod#1** gave `1` strikes `[0 " + ARROW + " 1]` to **abc#12** (ID:213456789012345678)\n" +
+			"`[ Reason ]` Test",
+		// Punishments that don't change strikes
+		"`[02:11:09]` `[83]` :hammer: **Moderator** banned **User** (ID:413456789012345678)\n`[ Reason ]` Raiding",
+		"`[02:11:09]` `[84]` :warning: **Moderator** warned **User** (ID:513456789012345678)\n`[ Reason ]` Be nice",
+		"`[02:11:09]` `[85]` :wrench: **Moderator** unbanned **User** (ID:613456789012345678)",
+		"`[02:11:09]` `[86]` :wastebasket: **Moderator** purged 50 messages in #general",
+		// Malformed messages
+		PREFIX + "**Moderator** gave `1` strikes `[0 " + ARROW + " 1]` to User (ID:713456789012345678)",
+		PREFIX + "**Moderator** gave `x` strikes `[0 " + ARROW + " 1]` to **User** (ID:813456789012345678)",
+		PREFIX + "**Moderator** gave `1` strikes `[0 " + ARROW + " 1]` to **User** (ID:)",
+		PREFIX + "**Moderator** gave `1` strikes `[0 -> 1]` to **User** (ID:913456789012345678)",
+		PREFIX + "**Moderator** gave `1` strikes `[zero " + ARROW + " one]` to **User** (ID:124456789012345678)\n" +
+			"`[ Reason ]` Test",
+		"**Vortex** banned **User** (ID:224456789012345678)\n`[ Reason ]` [4 " + ARROW + " 5 strike]",
+		// Strikes given with the strike change format used by automatic punishments
+		PREFIX + "**Moderator** gave `1` strikes `[0 -> 1]` to **User** (ID:324456789012345678)\n`[ Reason ]` [0 " +
+			ARROW + " 1 strikes] Test",
+		"",
+		"Hello world",
+		"(ID:123) " + ARROW
+	);
+
+	@BeforeAll
+	static void initApi() {
+		// Only user lookups are needed by the strike parser
+		ApiGetter.init((DiscordApi) Proxy.newProxyInstance(DiscordApi.class.getClassLoader(),
+			new Class<?>[] {DiscordApi.class}, (proxy, method, args) -> {
+				if (method.getName().equals("getUserById") && args[0] instanceof Long userId) {
+					return CompletableFuture.completedFuture(mockUser(userId));
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}));
+	}
+
+	@Test
+	void testPunishmentMatchesRegexParser() {
+		for (String message : CORPUS) {
+			assertEquals(parsePunishmentWithRegex(message), VortexPunishmentStrikeParser.parse(message), message);
+		}
+	}
+
+	@Test
+	void testStrikeMatchesRegexParser() {
+		for (String message : CORPUS) {
+			VortexStrikeParser.Strike strike = VortexStrikeParser.parse(message);
+			StrikeFields actual = null;
+			if (strike != null) {
+				actual = new StrikeFields(strike.strikesGiven(), strike.user().getId(), strike.oldNumStrikes(),
+					strike.newNumStrikes(), strike.reason());
+			}
+			assertEquals(parseStrikeWithRegex(message), actual, message);
+		}
+	}
+
+	@Test
+	void testStrikeRejectsAlternativeStrikeChange() {
+		String message = PREFIX + "**Moderator** gave `1` strikes `[0 -> 1]` to **User** (ID:324456789012345678)\n" +
+			"`[ Reason ]` [0 " + ARROW + " 1 strikes] Test";
+		VortexMessageParser.VortexMessage vortexMessage = VortexMessageParser.parse(message);
+		assertNotNull(vortexMessage);
+		assertTrue(vortexMessage.alternativeStrikeChange());
+		assertNull(VortexStrikeParser.parse(message));
+		// Still counted as a strike change when looking for punishments
+		assertNotNull(VortexPunishmentStrikeParser.parse(message));
+	}
+
+	@Test
+	void testIdInModeratorName() {
+		// The former strike parser took the first ID in the message, which was wrong in this case
+		String message = PREFIX + "**Mod (ID:5)** gave `1` strikes `[0 " + ARROW + " 1]` to **User** " +
+			"(ID:313456789012345678)\n`[ Reason ]` Test";
+		assertEquals(parsePunishmentWithRegex(message), VortexPunishmentStrikeParser.parse(message));
+		VortexMessageParser.VortexMessage vortexMessage = VortexMessageParser.parse(message);
+		assertNotNull(vortexMessage);
+		assertEquals(313456789012345678L, vortexMessage.userId());
+	}
+
+	@Test
+	void testParse() {
+		VortexMessageParser.VortexMessage message = VortexMessageParser.parse(CORPUS.get(0));
+		assertEquals(new VortexMessageParser.VortexMessage("Moderator", "gave", "User", 123456789012345678L, 1, 0, 1,
+			false, "Spamming in #general"), message);
+	}
+
+	private static User mockUser(long userId) {
+		return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[] {User.class},
+			(proxy, method, args) -> switch (method.getName()) {
+				case "getId" -> userId;
+				case "equals" -> proxy == args[0];
+				case "hashCode" -> Long.hashCode(userId);
+				case "toString" -> "User " + userId;
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+	}
+
+	/**
+	 * Former implementation of {@link VortexPunishmentStrikeParser#parse(String)}
+	 */
+	private static VortexPunishmentStrikeParser.StrikePunishment parsePunishmentWithRegex(String message) {
+		Matcher strikesMatcher = STRIKE_MSG_STRIKE.matcher(message);
+		Matcher punishmentMatcher = STRIKE_MSG_OTHER_PUNISHMENT.matcher(message);
+		Matcher matcher;
+
+		if (strikesMatcher.find()) {
+			matcher = strikesMatcher;
+		} else if (punishmentMatcher.find()) {
+			matcher = punishmentMatcher;
+		} else {
+			return null;
+		}
+
+		long userId = Long.parseLong(matcher.group("id"));
+		String username = matcher.group("username");
+		String moderator = matcher.group("moderator");
+		int newNumStrikes;
+
+		Matcher strikeChangeMatcher = STRIKE_MSG_STRIKE_CHANGE_1.matcher(message);
+		if (strikeChangeMatcher.find()) {
+			newNumStrikes = Integer.parseInt(strikeChangeMatcher.group(2));
+		} else {
+			Matcher strikeChangeMatcher2 = STRIKE_MSG_STRIKE_CHANGE_2.matcher(message);
+
+			if (strikeChangeMatcher2.find()) {
+				newNumStrikes = Integer.parseInt(strikeChangeMatcher2.group(2));
+			} else {
+				return null;
+			}
+		}
+		return new VortexPunishmentStrikeParser.StrikePunishment(userId, username, moderator, newNumStrikes);
+	}
+
+	/**
+	 * Former implementation of {@link VortexStrikeParser#parse(String)}, without the user lookup
+	 */
+	private static StrikeFields parseStrikeWithRegex(String message) {
+		Matcher strikesMatcher = STRIKE_MSG_STRIKES.matcher(message);
+		if (!strikesMatcher.find()) {
+			return null;
+		}
+		int strikesGiven = Integer.parseInt(strikesMatcher.group(1));
+
+		Matcher userIdMatcher = STRIKE_MSG_USER_ID.matcher(message);
+		if (!userIdMatcher.find()) {
+			return null;
+		}
+		long userId = Long.parseLong(userIdMatcher.group(1));
+
+		Matcher strikeChangeMatcher = STRIKE_MSG_STRIKE_CHANGE_1.matcher(message);
+		if (!strikeChangeMatcher.find()) {
+			return null;
+		}
+		int oldNumStrikes = Integer.parseInt(strikeChangeMatcher.group(1));
+		int newNumStrikes = Integer.parseInt(strikeChangeMatcher.group(2));
+
+		Matcher reasonMatcher = STRIKE_MSG_REASON.matcher(message);
+		if (!reasonMatcher.find()) {
+			return null;
+		}
+		return new StrikeFields(strikesGiven, userId, oldNumStrikes, newNumStrikes, reasonMatcher.group(1));
+	}
+
+	private record StrikeFields(int strikesGiven, long userId, int oldNumStrikes, int newNumStrikes, String reason) {}
+}
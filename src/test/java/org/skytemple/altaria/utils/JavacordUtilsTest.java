@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2026. Frostbyte and other contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.skytemple.altaria.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JavacordUtilsTest {
+	@Test
+	void testInternalsAvailable() {
+		assertDoesNotThrow(JavacordUtils::init);
+	}
+
+	@Test
+	void testCreatePublicArchivedThreadsRequest() throws Throwable {
+		Object request = JavacordUtils.createPublicArchivedThreadsRequest(null, 1234, Instant.EPOCH, 50);
+		assertEquals("org.javacord.core.util.rest.RestRequest", request.getClass().getName());
+	}
+}